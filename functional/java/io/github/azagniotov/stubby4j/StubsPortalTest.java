@@ -347,6 +347,50 @@ public class StubsPortalTest {
         assertThat(response.parseAsString().trim()).isEqualTo("OK");
     }
 
+    @Test
+    public void should_ReturnPreGzippedStaticResponse_WhenClientAcceptsGzip() throws Exception {
+        final String requestUrl = String.format("%s%s", STUBS_URL, "/complex/json/tree/get");
+
+        final URL jsonContentUrl = StubsPortalTest.class.getResource("/json/graph.2.json");
+        assertThat(jsonContentUrl).isNotNull();
+        final String expectedContent = StringUtils.inputStreamToString(jsonContentUrl.openStream());
+
+        final HttpRequest request = HttpUtils.constructHttpRequest(HttpMethods.GET, requestUrl);
+        final HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.setAcceptEncoding("gzip");
+        request.setHeaders(httpHeaders);
+
+        final HttpResponse response = request.execute();
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK_200);
+        assertThat(response.getContentEncoding()).isEqualTo("gzip");
+        // Compressed on the fly, a response would not know its Content-Length upfront
+        assertThat(response.getHeaders().getContentLength()).isLessThan((long) expectedContent.length());
+        assertThat(response.parseAsString().trim()).isEqualTo(expectedContent);
+    }
+
+    @Test
+    public void should_ReturnStaticResponseWithContentLength_WhenClientDoesNotAcceptGzip() throws Exception {
+        final String requestUrl = String.format("%s%s", STUBS_URL, "/complex/json/tree/get");
+
+        final URL jsonContentUrl = StubsPortalTest.class.getResource("/json/graph.2.json");
+        assertThat(jsonContentUrl).isNotNull();
+        final String expectedContent = StringUtils.inputStreamToString(jsonContentUrl.openStream());
+
+        final HttpRequest request = HttpUtils.constructHttpRequest(HttpMethods.GET, requestUrl);
+        final HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.setAcceptEncoding("identity");
+        request.setHeaders(httpHeaders);
+
+        final HttpResponse response = request.execute();
+        final String responseContent = response.parseAsString();
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK_200);
+        assertThat(response.getContentEncoding()).isNull();
+        assertThat(response.getHeaders().getContentLength()).isEqualTo(StringUtils.getBytesUtf8(responseContent).length);
+        assertThat(responseContent.trim()).isEqualTo(expectedContent);
+    }
+
     @Test
     public void should_FindPostContentsNotEqual_WhenJsonParseExceptionThrown() throws Exception {
         final String requestUrl = String.format("%s%s", STUBS_URL, "/complex/json/tree");
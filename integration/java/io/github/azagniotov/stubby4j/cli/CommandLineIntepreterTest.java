@@ -32,33 +32,62 @@ public class CommandLineIntepreterTest {
 
         final String expectedConsoleOutput = "usage:" + BR +
                 "       java -jar stubby4j-x.x.xx.jar [-a <arg>] [-d <arg>] [-da] [-ds]" + BR +
-                "       [-h] [-k <arg>] [-l <arg>] [-m] [-o] [-p <arg>] [-s <arg>] [-t" + BR +
-                "       <arg>] [-v] [-w]" + BR +
-                " -a,--admin <arg>             Port for admin portal. Defaults to 8889." + BR +
-                " -d,--data <arg>              Data file to pre-load endpoints. Valid YAML" + BR +
-                "                              1.1 expected." + BR +
-                " -da,--disable_admin_portal   Does not start Admin portal" + BR +
-                " -ds,--disable_ssl            Does not enable SSL connections" + BR +
-                " -h,--help                    This help text." + BR +
-                " -k,--keystore <arg>          Keystore file for custom TLS. By default TLS" + BR +
-                "                              is enabled using internal keystore." + BR +
-                " -l,--location <arg>          Hostname at which to bind stubby." + BR +
-                " -m,--mute                    Mute console output." + BR +
-                " -o,--debug                   Dumps raw HTTP request to the console (if" + BR +
-                "                              console is not muted!)." + BR +
-                " -p,--password <arg>          Password for the provided keystore file." + BR +
-                " -s,--stubs <arg>             Port for stub portal. Defaults to 8882." + BR +
-                " -t,--tls <arg>               Port for TLS connection. Defaults to 7443." + BR +
-                " -v,--version                 Prints out to console stubby version." + BR +
-                " -w,--watch                   Periodically scans for changes in last" + BR +
-                "                              modification date of the main YAML and" + BR +
-                "                              referenced external files (if any). The flag" + BR +
-                "                              can accept an optional arg value which is" + BR +
-                "                              the watch scan time in milliseconds. If" + BR +
-                "                              milliseconds is not provided, the watch" + BR +
-                "                              scans every 100ms. If last modification date" + BR +
-                "                              changed since the last scan period, the stub" + BR +
-                "                              configuration is reloaded";
+                "       [-h] [-k <arg>] [-l <arg>] [-lf <arg>] [-m] [-o] [-p <arg>] [-pm" + BR +
+                "       <arg>] [-rb <arg>] [-rf <arg>] [-s <arg>] [-t <arg>] [-v] [-w]" + BR +
+                " -a,--admin <arg>                   Port for admin portal. Defaults to" + BR +
+                "                                    8889." + BR +
+                " -d,--data <arg>                    Data file to pre-load endpoints. Valid" + BR +
+                "                                    YAML 1.1 expected." + BR +
+                " -da,--disable_admin_portal         Does not start Admin portal" + BR +
+                " -ds,--disable_ssl                  Does not enable SSL connections" + BR +
+                " -h,--help                          This help text." + BR +
+                " -k,--keystore <arg>                Keystore file for custom TLS. By" + BR +
+                "                                    default TLS is enabled using internal" + BR +
+                "                                    keystore." + BR +
+                " -l,--location <arg>                Hostname at which to bind stubby." + BR +
+                " -lf,--large_file_threshold <arg>   Size in bytes over which a binary" + BR +
+                "                                    response file is not loaded into" + BR +
+                "                                    memory, but is sent from disk on every" + BR +
+                "                                    response. Defaults to 67108864 (64" + BR +
+                "                                    MB)." + BR +
+                " -m,--mute                          Mute console output." + BR +
+                " -o,--debug                         Dumps raw HTTP request to the console" + BR +
+                "                                    (if console is not muted!)." + BR +
+                " -p,--password <arg>                Password for the provided keystore" + BR +
+                "                                    file." + BR +
+                " -pm,--parallel_matching <arg>      Evaluates stubs that can potentially" + BR +
+                "                                    match an incoming request in parallel," + BR +
+                "                                    when there are many of them. The flag" + BR +
+                "                                    can accept an optional arg value which" + BR +
+                "                                    is the minimal number of such stubs" + BR +
+                "                                    for parallel evaluation. If the number" + BR +
+                "                                    is not provided, it defaults to 1024" + BR +
+                " -rb,--regex_budget <arg>           Maximum number of characters a stubbed" + BR +
+                "                                    regex may read while matching a single" + BR +
+                "                                    value of incoming request. An incoming" + BR +
+                "                                    value that exhausts it is matched" + BR +
+                "                                    against the regex as a literal string" + BR +
+                "                                    instead. Defaults to 10000000." + BR +
+                " -rf,--response_file_cache <arg>    Maximum total size in bytes of the" + BR +
+                "                                    response files kept in memory, whose" + BR +
+                "                                    path is resolved from template tokens" + BR +
+                "                                    on every response. Defaults to" + BR +
+                "                                    67108864 (64 MB)." + BR +
+                " -s,--stubs <arg>                   Port for stub portal. Defaults to" + BR +
+                "                                    8882." + BR +
+                " -t,--tls <arg>                     Port for TLS connection. Defaults to" + BR +
+                "                                    7443." + BR +
+                " -v,--version                       Prints out to console stubby version." + BR +
+                " -w,--watch                         Periodically scans for changes in last" + BR +
+                "                                    modification date of the main YAML and" + BR +
+                "                                    referenced external files (if any)." + BR +
+                "                                    The flag can accept an optional arg" + BR +
+                "                                    value which is the watch scan time in" + BR +
+                "                                    milliseconds. If milliseconds is not" + BR +
+                "                                    provided, the watch scans every 100ms." + BR +
+                "                                    If last modification date changed" + BR +
+                "                                    since the last scan period, the stub" + BR +
+                "                                    configuration is reloaded";
 
         final String actualConsoleOutput = consoleCaptor.toString(StringUtils.UTF_8).trim();
 
@@ -877,6 +877,10 @@ public class StubRepositoryTest {
                 assertThat(sequenceStubResponse.getHeaders().get(StubResponse.STUBBY_RESOURCE_ID_HEADER)).isEqualTo(String.valueOf(resourceId));
             }
         }
+
+        // The stubs of the previous snapshot, which a stub search may still hold on to, keep their resource IDs
+        assertThat(beforeDeletionLoadedHttpCycles.get(2).getResourceId()).isEqualTo("2");
+        assertThat(afterDeletionLoadedHttpCycles.get(0)).isSameAs(beforeDeletionLoadedHttpCycles.get(0));
     }
 
     @Test
@@ -13,8 +13,10 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.file.Files;
 import java.util.List;
 
 import static com.google.common.truth.Truth.assertThat;
@@ -772,6 +774,67 @@ public class YAMLParserTest {
     }
 
 
+    @Test
+    public void shouldUnmarshall_WhenYAMLValid_WithPostMatches() throws Exception {
+
+        final String yaml =
+                "-  request:\n" +
+                        "      method: [POST]\n" +
+                        "      url: /orders\n" +
+                        "      post_matches:\n" +
+                        "         - $.order.id == 42\n" +
+                        "         - /order/@status == 'NEW'\n" +
+                        "\n" +
+                        "   response:\n" +
+                        "      status: 201";
+
+        final List<StubHttpLifecycle> loadedHttpCycles = unmarshall(yaml);
+        final StubRequest actualRequest = loadedHttpCycles.get(0).getRequest();
+
+        assertThat(actualRequest.getPostMatches()).containsExactly("$.order.id == 42", "/order/@status == 'NEW'").inOrder();
+    }
+
+    @Test
+    public void shouldThrow_WhenPostMatchesPredicateIsInvalid() throws Exception {
+        expectedException.expect(IllegalStateException.class);
+        expectedException.expectMessage("Invalid post_matches predicate [order.id == 42]: the path must start with either '$' or '/'");
+
+        final String yaml =
+                "-  request:\n" +
+                        "      method: [POST]\n" +
+                        "      url: /orders\n" +
+                        "      post_matches:\n" +
+                        "         - order.id == 42\n" +
+                        "\n" +
+                        "   response:\n" +
+                        "      status: 201";
+
+        unmarshall(yaml);
+    }
+
+    @Test
+    public void shouldMarkBinaryResponseFileAsLarge_WhenItExceedsParserLargeFileThreshold() throws Exception {
+        final File binaryFile = File.createTempFile("large-file-threshold", ".pdf");
+        binaryFile.deleteOnExit();
+        Files.write(binaryFile.toPath(), new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+
+        final String yaml =
+                "-  request:\n" +
+                        "      method: GET\n" +
+                        "      url: /binary\n" +
+                        "\n" +
+                        "   response:\n" +
+                        "      status: 200\n" +
+                        "      file: " + binaryFile.getName();
+
+        final String dataConfigHomeDirectory = binaryFile.getParent();
+        final StubResponse largeResponse = new YAMLParser(4).parse(dataConfigHomeDirectory, yaml).get(0).getResponse(true);
+        final StubResponse smallResponse = new YAMLParser().parse(dataConfigHomeDirectory, yaml).get(0).getResponse(true);
+
+        assertThat(largeResponse.isLargeFile()).isTrue();
+        assertThat(smallResponse.isLargeFile()).isFalse();
+    }
+
     private List<StubHttpLifecycle> unmarshall(final String yaml) throws Exception {
         return new YAMLParser().parse(".", yaml);
     }
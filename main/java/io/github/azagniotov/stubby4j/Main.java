@@ -114,11 +114,13 @@ public final class Main {
             ANSITerminal.muteConsole(commandLineInterpreter.isMute());
             ConsoleUtils.enableDebug(commandLineInterpreter.isDebug());
 
+            final StubbyManagerFactory stubbyManagerFactory = new StubbyManagerFactory();
+            final YAMLParser yamlParser = stubbyManagerFactory.constructYAMLParser(commandLineArgs);
             final File configFile = new File(configFilename);
             final Future<List<StubHttpLifecycle>> stubLoadComputation =
-                    EXECUTOR_SERVICE.submit(() -> new YAMLParser().parse(configFile.getParent(), configFile));
+                    EXECUTOR_SERVICE.submit(() -> yamlParser.parse(configFile.getParent(), configFile));
 
-            final StubbyManager stubbyManager = new StubbyManagerFactory().construct(configFile, commandLineArgs, stubLoadComputation);
+            final StubbyManager stubbyManager = stubbyManagerFactory.construct(configFile, commandLineArgs, stubLoadComputation);
             stubbyManager.startJetty();
             final long totalEnd = System.currentTimeMillis();
 
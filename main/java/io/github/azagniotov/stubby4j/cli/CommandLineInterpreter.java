@@ -57,6 +57,10 @@ public final class CommandLineInterpreter {
     public static final String OPTION_DEBUG = "debug";
     public static final String OPTION_DISABLE_ADMIN = "disable_admin_portal";
     public static final String OPTION_DISABLE_SSL = "disable_ssl";
+    public static final String OPTION_PARALLEL_MATCHING = "parallel_matching";
+    public static final String OPTION_REGEX_BUDGET = "regex_budget";
+    public static final String OPTION_LARGE_FILE_THRESHOLD = "large_file_threshold";
+    public static final String OPTION_RESPONSE_FILE_CACHE = "response_file_cache";
 
     private static final CommandLineParser POSIX_PARSER = new PosixParser();
     private static final Options OPTIONS = new Options();
@@ -75,6 +79,9 @@ public final class CommandLineInterpreter {
         OPTIONS.addOption("o", OPTION_DEBUG, false, "Dumps raw HTTP request to the console (if console is not muted!).");
         OPTIONS.addOption("da", OPTION_DISABLE_ADMIN, false, "Does not start Admin portal");
         OPTIONS.addOption("ds", OPTION_DISABLE_SSL, false, "Does not enable SSL connections");
+        OPTIONS.addOption("rb", OPTION_REGEX_BUDGET, true, "Maximum number of characters a stubbed regex may read while matching a single value of incoming request. An incoming value that exhausts it is matched against the regex as a literal string instead. Defaults to 10000000.");
+        OPTIONS.addOption("lf", OPTION_LARGE_FILE_THRESHOLD, true, "Size in bytes over which a binary response file is not loaded into memory, but is sent from disk on every response. Defaults to 67108864 (64 MB).");
+        OPTIONS.addOption("rf", OPTION_RESPONSE_FILE_CACHE, true, "Maximum total size in bytes of the response files kept in memory, whose path is resolved from template tokens on every response. Defaults to 67108864 (64 MB).");
         @SuppressWarnings("static-access")
         Option watch =
                 OptionBuilder
@@ -83,6 +90,15 @@ public final class CommandLineInterpreter {
                         .hasOptionalArg()
                         .create("w");
         OPTIONS.addOption(watch);
+
+        @SuppressWarnings("static-access")
+        Option parallelMatching =
+                OptionBuilder
+                        .withDescription("Evaluates stubs that can potentially match an incoming request in parallel, when there are many of them. The flag can accept an optional arg value which is the minimal number of such stubs for parallel evaluation. If the number is not provided, it defaults to 1024")
+                        .withLongOpt(OPTION_PARALLEL_MATCHING)
+                        .hasOptionalArg()
+                        .create("pm");
+        OPTIONS.addOption(parallelMatching);
     }
 
     private CommandLine line;
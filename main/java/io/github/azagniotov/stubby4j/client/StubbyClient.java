@@ -131,10 +131,12 @@ public final class StubbyClient {
         commandLineInterpreter.parseCommandLine(args);
 
         final File configFile = new File(yamlConfigurationFilename);
+        final StubbyManagerFactory stubbyManagerFactory = new StubbyManagerFactory();
+        final YAMLParser yamlParser = stubbyManagerFactory.constructYAMLParser(commandLineInterpreter.getCommandlineParams());
         final Future<List<StubHttpLifecycle>> stubLoadComputation =
-                EXECUTOR_SERVICE.submit(() -> new YAMLParser().parse(configFile.getParent(), configFile));
+                EXECUTOR_SERVICE.submit(() -> yamlParser.parse(configFile.getParent(), configFile));
 
-        stubbyManager = new StubbyManagerFactory().construct(configFile, commandLineInterpreter.getCommandlineParams(), stubLoadComputation);
+        stubbyManager = stubbyManagerFactory.construct(configFile, commandLineInterpreter.getCommandlineParams(), stubLoadComputation);
         stubbyManager.startJetty();
     }
 
@@ -155,10 +157,12 @@ public final class StubbyClient {
         final URL url = StubbyClient.class.getResource("/yaml/empty-stub.yaml");
 
         final File configFile = new File(url.getFile());
+        final StubbyManagerFactory stubbyManagerFactory = new StubbyManagerFactory();
+        final YAMLParser yamlParser = stubbyManagerFactory.constructYAMLParser(commandLineInterpreter.getCommandlineParams());
         final Future<List<StubHttpLifecycle>> stubLoadComputation =
-                EXECUTOR_SERVICE.submit(() -> new YAMLParser().parse(configFile.getParent(), configFile));
+                EXECUTOR_SERVICE.submit(() -> yamlParser.parse(configFile.getParent(), configFile));
 
-        stubbyManager = new StubbyManagerFactory().construct(configFile, commandLineInterpreter.getCommandlineParams(), stubLoadComputation);
+        stubbyManager = stubbyManagerFactory.construct(configFile, commandLineInterpreter.getCommandlineParams(), stubLoadComputation);
         stubbyManager.startJetty();
     }
 
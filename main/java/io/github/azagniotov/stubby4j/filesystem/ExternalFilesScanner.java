@@ -3,7 +3,6 @@ package io.github.azagniotov.stubby4j.filesystem;
 import io.github.azagniotov.stubby4j.cli.ANSITerminal;
 import io.github.azagniotov.stubby4j.stubs.StubRepository;
 import io.github.azagniotov.stubby4j.utils.FileUtils;
-import io.github.azagniotov.stubby4j.yaml.YAMLParser;
 
 import java.io.File;
 import java.util.Date;
@@ -52,7 +51,7 @@ public final class ExternalFilesScanner implements Runnable {
                 ANSITerminal.info(String.format("%sExternal file scan detected change in %s%s", FileUtils.BR, offendingFilename, FileUtils.BR));
 
                 try {
-                    stubRepository.refreshStubsFromYAMLConfig(new YAMLParser());
+                    stubRepository.refreshStubsFromYAMLConfig(stubRepository.newYAMLParser());
                     ANSITerminal.ok(String.format("%sSuccessfully performed live refresh of main YAML with external files from: %s on [" + new Date().toString().trim() + "]%s",
                             FileUtils.BR,
                             stubRepository.getYAMLConfig(),
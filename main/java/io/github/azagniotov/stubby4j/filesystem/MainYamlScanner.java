@@ -2,7 +2,6 @@ package io.github.azagniotov.stubby4j.filesystem;
 
 import io.github.azagniotov.stubby4j.cli.ANSITerminal;
 import io.github.azagniotov.stubby4j.stubs.StubRepository;
-import io.github.azagniotov.stubby4j.yaml.YAMLParser;
 
 import java.io.File;
 import java.util.Date;
@@ -40,7 +39,7 @@ public final class MainYamlScanner implements Runnable {
 
                 try {
                     mainYamlLastModified = currentFileModified;
-                    stubRepository.refreshStubsFromYAMLConfig(new YAMLParser());
+                    stubRepository.refreshStubsFromYAMLConfig(stubRepository.newYAMLParser());
                     ANSITerminal.ok(String.format("%sSuccessfully performed live refresh of main YAML file from: %s on [" + new Date().toString().trim() + "]%s",
                             BR,
                             dataYaml.getAbsolutePath(),
@@ -188,6 +188,8 @@ public final class StatusPageHandler extends AbstractHandler {
         builder.append(interpolateHtmlTableRowTemplate("UPTIME", HandlerUtils.calculateStubbyUpTime(RUNTIME_MX_BEAN.getUptime())));
         builder.append(interpolateHtmlTableRowTemplate("INPUT ARGS", CommandLineInterpreter.PROVIDED_OPTIONS));
         builder.append(interpolateHtmlTableRowTemplate("STUBBED ENDPOINTS", stubRepository.getStubs().size()));
+        builder.append(interpolateHtmlTableRowTemplate("MATCH CACHE", stubRepository.getMatchCacheStats()));
+        builder.append(interpolateHtmlTableRowTemplate("PATTERN CACHE", stubRepository.getPatternCacheStats()));
         builder.append(interpolateHtmlTableRowTemplate("LOADED YAML", buildLoadedFileMetadata(stubRepository.getYAMLConfig())));
 
         if (!stubRepository.getExternalFiles().isEmpty()) {
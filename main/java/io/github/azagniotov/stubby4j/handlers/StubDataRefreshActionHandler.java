@@ -24,7 +24,6 @@ import io.github.azagniotov.stubby4j.server.JettyContext;
 import io.github.azagniotov.stubby4j.stubs.StubRepository;
 import io.github.azagniotov.stubby4j.utils.ConsoleUtils;
 import io.github.azagniotov.stubby4j.utils.HandlerUtils;
-import io.github.azagniotov.stubby4j.yaml.YAMLParser;
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpStatus;
 import org.eclipse.jetty.server.Request;
@@ -60,7 +59,7 @@ public final class StubDataRefreshActionHandler extends AbstractHandler {
         response.setHeader(HttpHeader.SERVER.asString(), HandlerUtils.constructHeaderServerName());
 
         try {
-            stubRepository.refreshStubsFromYAMLConfig(new YAMLParser());
+            stubRepository.refreshStubsFromYAMLConfig(stubRepository.newYAMLParser());
             final String successMessage = String.format("Successfully performed live refresh of main YAML from: %s on [" + new Date().toString().trim() + "]",
                     stubRepository.getYAMLConfig());
             response.getWriter().println(successMessage);
@@ -57,7 +57,7 @@ public class StubsPortalHandler extends AbstractHandler {
 
         try {
             final StubSearchResult stubSearchResult = stubRepository.search(request);
-            final StubResponseHandlingStrategy strategyStubResponse = getStrategy(stubSearchResult.getMatch());
+            final StubResponseHandlingStrategy strategyStubResponse = getStrategy(stubSearchResult.getMatch(), stubRepository.getResponseFileCache());
 
             strategyStubResponse.handle(response, stubSearchResult.getInvariant());
             ConsoleUtils.logOutgoingResponse(stubSearchResult.getInvariant().getUrl(), response);
@@ -4,7 +4,6 @@ import io.github.azagniotov.stubby4j.handlers.AdminPortalHandler;
 import io.github.azagniotov.stubby4j.stubs.StubRepository;
 import io.github.azagniotov.stubby4j.utils.HandlerUtils;
 import io.github.azagniotov.stubby4j.utils.StringUtils;
-import io.github.azagniotov.stubby4j.yaml.YAMLParser;
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpStatus;
 
@@ -38,7 +37,7 @@ public class PutHandlingStrategy implements AdminResponseHandlingStrategy {
             return;
         }
 
-        final String updatedCycleUrl = stubRepository.refreshStubByIndex(new YAMLParser(), put, stubIndexToUpdate);
+        final String updatedCycleUrl = stubRepository.refreshStubByIndex(stubRepository.newYAMLParser(), put, stubIndexToUpdate);
 
         response.setStatus(HttpStatus.CREATED_201);
         response.addHeader(HttpHeader.LOCATION.asString(), updatedCycleUrl);
@@ -19,69 +19,160 @@ along with this program.  If not, see <http://www.gnu.org/licenses/>.
 
 package io.github.azagniotov.stubby4j.handlers.strategy.stubs;
 
+import io.github.azagniotov.stubby4j.stubs.ResponseFileCache;
+import io.github.azagniotov.stubby4j.stubs.StaticResponse;
 import io.github.azagniotov.stubby4j.stubs.StubRequest;
 import io.github.azagniotov.stubby4j.stubs.StubResponse;
+import io.github.azagniotov.stubby4j.utils.HandlerUtils;
+import io.github.azagniotov.stubby4j.utils.ResponseTemplate;
 import io.github.azagniotov.stubby4j.utils.StringUtils;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpMethod;
 import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.server.HttpOutput;
 
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
-import static io.github.azagniotov.stubby4j.utils.FileUtils.fileToBytes;
 import static io.github.azagniotov.stubby4j.utils.HandlerUtils.setResponseMainHeaders;
-import static io.github.azagniotov.stubby4j.utils.StringUtils.getBytesUtf8;
-import static io.github.azagniotov.stubby4j.utils.StringUtils.isTokenized;
-import static io.github.azagniotov.stubby4j.utils.StringUtils.replaceTokens;
-import static io.github.azagniotov.stubby4j.utils.StringUtils.replaceTokensInString;
+import static io.github.azagniotov.stubby4j.utils.ObjectUtils.isNotNull;
+import static io.github.azagniotov.stubby4j.utils.StringUtils.toLower;
 
 public final class DefaultResponseHandlingStrategy implements StubResponseHandlingStrategy {
 
+    private static final String GZIP_ENCODING = "gzip";
+
     private final StubResponse stubbedResponse;
+    private final ResponseFileCache responseFileCache;
 
-    DefaultResponseHandlingStrategy(final StubResponse stubbedResponse) {
+    public DefaultResponseHandlingStrategy(final StubResponse stubbedResponse, final ResponseFileCache responseFileCache) {
         this.stubbedResponse = stubbedResponse;
+        this.responseFileCache = responseFileCache;
     }
 
     @Override
     public void handle(final HttpServletResponse response, final StubRequest assertionStubRequest) throws Exception {
+        final StaticResponse staticResponse = stubbedResponse.getStaticResponse();
+        if (isNotNull(staticResponse)) {
+            handleStatic(response, assertionStubRequest, staticResponse);
+            return;
+        }
+
         final Map<String, String> regexGroups = assertionStubRequest.getRegexGroups();
 
         setResponseMainHeaders(response);
         setResponseStubbedHeaders(response, stubbedResponse, regexGroups);
 
-        if (StringUtils.isSet(stubbedResponse.getLatency())) {
-            final long latency = Long.parseLong(stubbedResponse.getLatency());
-            TimeUnit.MILLISECONDS.sleep(latency);
-        }
+        sleepLatency();
         response.setStatus(stubbedResponse.getHttpStatusCode().getCode());
 
-        final byte[] responseBody = stubbedResponse.getResponseBodyAsBytes();
         if (stubbedResponse.isFilePathContainsTemplateTokens()) {
-            final String resolvedPath = replaceTokensInString(stubbedResponse.getRawFileAbsolutePath(), regexGroups);
-            final File resolvedFile = new File(resolvedPath);
-            if (resolvedFile.exists()) {
-                writeOutputStream(response, getBytesUtf8(replaceTokens(fileToBytes(resolvedFile), regexGroups)));
+            final String resolvedPath = stubbedResponse.getFilePathTemplate().renderToString(regexGroups);
+            final ResponseTemplate resolvedFileTemplate = responseFileCache.get(resolvedPath);
+            if (isNotNull(resolvedFileTemplate)) {
+                renderOutputStream(response, resolvedFileTemplate, regexGroups);
             } else {
                 response.setStatus(HttpStatus.NOT_FOUND_404);
             }
         } else if (stubbedResponse.isBodyContainsTemplateTokens()) {
-            writeOutputStream(response, getBytesUtf8(replaceTokens(responseBody, regexGroups)));
+            renderOutputStream(response, stubbedResponse.getBodyTemplate(), regexGroups);
+        } else if (stubbedResponse.isLargeFile()) {
+            sendFile(response, stubbedResponse.getRawFile());
         } else {
-            writeOutputStream(response, responseBody);
+            writeOutputStream(response, stubbedResponse.getResponseBodyAsBytes());
+        }
+    }
+
+    private void handleStatic(final HttpServletResponse response, final StubRequest assertionStubRequest, final StaticResponse staticResponse) throws Exception {
+        setResponseMainHeaders(response);
+        for (final Map.Entry<String, String> header : staticResponse.getHeaders()) {
+            response.setHeader(header.getKey(), header.getValue());
+        }
+
+        sleepLatency();
+        response.setStatus(staticResponse.getStatus());
+
+        final boolean isGzipped = staticResponse.hasGzippedBody() && isGzipAccepted(assertionStubRequest);
+        final byte[] responseBody = isGzipped ? staticResponse.getGzippedBody() : staticResponse.getBody();
+        if (isGzipped) {
+            // Already compressed, the GzipHandler leaves responses with a Content-Encoding as they are
+            response.setHeader(HttpHeader.CONTENT_ENCODING.asString(), GZIP_ENCODING);
+            if (!response.containsHeader(HttpHeader.VARY.asString())) {
+                response.setHeader(HttpHeader.VARY.asString(), HttpHeader.ACCEPT_ENCODING.asString());
+            }
+        }
+        if (responseBody.length > 0 && !staticResponse.isContentLengthStubbed()) {
+            response.setContentLength(responseBody.length);
+        }
+        writeOutputStream(response, responseBody);
+    }
+
+    /**
+     * Only GET responses are served gzipped, the same way the GzipHandler compresses responses on the fly, and only
+     * when the Accept-Encoding header accepts gzip with a non-zero quality value
+     */
+    private static boolean isGzipAccepted(final StubRequest assertionStubRequest) {
+        if (!assertionStubRequest.getMethod().contains(HttpMethod.GET.asString())) {
+            return false;
+        }
+        final String acceptEncoding = assertionStubRequest.getHeaders().get(toLower(HttpHeader.ACCEPT_ENCODING.asString()));
+
+        return HandlerUtils.isGzipAccepted(acceptEncoding);
+    }
+
+    private void sleepLatency() throws InterruptedException {
+        if (StringUtils.isSet(stubbedResponse.getLatency())) {
+            final long latency = Long.parseLong(stubbedResponse.getLatency());
+            TimeUnit.MILLISECONDS.sleep(latency);
         }
     }
 
     private void setResponseStubbedHeaders(final HttpServletResponse response, final StubResponse stubResponse, final Map<String, String> regexGroups) {
+        final Map<String, ResponseTemplate> headerTemplates = stubResponse.getHeaderTemplates();
         for (final Map.Entry<String, String> headerPair : stubResponse.getHeaders().entrySet()) {
-            String responseHeaderValue = headerPair.getValue();
-            if (isTokenized(responseHeaderValue)) {
-                responseHeaderValue = replaceTokensInString(headerPair.getValue(), regexGroups);
+            final ResponseTemplate headerTemplate = headerTemplates.get(headerPair.getKey());
+            if (isNotNull(headerTemplate)) {
+                response.setHeader(headerPair.getKey(), headerTemplate.renderToString(regexGroups));
+            } else {
+                response.setHeader(headerPair.getKey(), headerPair.getValue());
+            }
+        }
+    }
+
+    private void renderOutputStream(final HttpServletResponse response, final ResponseTemplate responseTemplate, final Map<String, String> regexGroups) throws IOException {
+        try (final OutputStream outputStream = response.getOutputStream()) {
+            responseTemplate.render(outputStream, regexGroups);
+            outputStream.flush();
+        }
+    }
+
+    /**
+     * Sends the file without reading it into the heap. Jetty writes a memory mapped file straight from the page cache,
+     * files too large to be mapped at once are read through pooled buffers
+     */
+    private void sendFile(final HttpServletResponse response, final File file) throws IOException {
+        try (final FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final long fileSize = fileChannel.size();
+            response.setContentLengthLong(fileSize);
+
+            final ServletOutputStream outputStream = response.getOutputStream();
+            if (!(outputStream instanceof HttpOutput)) {
+                try (final OutputStream servletOutputStream = outputStream) {
+                    Files.copy(file.toPath(), servletOutputStream);
+                }
+            } else if (fileSize <= Integer.MAX_VALUE) {
+                ((HttpOutput) outputStream).sendContent(fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize));
+            } else {
+                ((HttpOutput) outputStream).sendContent(fileChannel);
             }
-            response.setHeader(headerPair.getKey(), responseHeaderValue);
         }
     }
 
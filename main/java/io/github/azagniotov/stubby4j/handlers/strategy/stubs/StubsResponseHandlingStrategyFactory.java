@@ -19,6 +19,7 @@ along with this program.  If not, see <http://www.gnu.org/licenses/>.
 
 package io.github.azagniotov.stubby4j.handlers.strategy.stubs;
 
+import io.github.azagniotov.stubby4j.stubs.ResponseFileCache;
 import io.github.azagniotov.stubby4j.stubs.StubResponse;
 import org.eclipse.jetty.http.HttpStatus;
 
@@ -28,7 +29,7 @@ public final class StubsResponseHandlingStrategyFactory {
 
     }
 
-    public static StubResponseHandlingStrategy getStrategy(final StubResponse foundStubResponse) {
+    public static StubResponseHandlingStrategy getStrategy(final StubResponse foundStubResponse, final ResponseFileCache responseFileCache) {
 
         final HttpStatus.Code httpStatusCode = foundStubResponse.getHttpStatusCode();
         switch (httpStatusCode) {
@@ -60,7 +61,7 @@ public final class StubsResponseHandlingStrategyFactory {
                 return new RedirectResponseHandlingStrategy(foundStubResponse);
 
             default:
-                return new DefaultResponseHandlingStrategy(foundStubResponse);
+                return new DefaultResponseHandlingStrategy(foundStubResponse, responseFileCache);
 
         }
     }
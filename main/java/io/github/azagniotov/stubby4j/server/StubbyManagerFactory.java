@@ -26,7 +26,9 @@ import io.github.azagniotov.stubby4j.filesystem.ExternalFilesScanner;
 import io.github.azagniotov.stubby4j.filesystem.MainYamlScanner;
 import io.github.azagniotov.stubby4j.stubs.StubHttpLifecycle;
 import io.github.azagniotov.stubby4j.stubs.StubRepository;
+import io.github.azagniotov.stubby4j.stubs.StubResponse;
 import io.github.azagniotov.stubby4j.utils.ObjectUtils;
+import io.github.azagniotov.stubby4j.yaml.YAMLParser;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.util.log.Log;
 
@@ -48,7 +50,7 @@ public class StubbyManagerFactory {
         // Commenting out the following line will configure Jetty for StdErrLog DEBUG level logging
         Log.setLog(new EmptyLogger());
 
-        final StubRepository stubRepository = new StubRepository(configFile, stubLoadComputation);
+        final StubRepository stubRepository = constructStubRepository(configFile, commandLineArgs, stubLoadComputation);
         final JettyFactory jettyFactory = new JettyFactory(commandLineArgs, stubRepository);
         final Server server = jettyFactory.construct();
 
@@ -65,6 +67,44 @@ public class StubbyManagerFactory {
         return new StubbyManager(server, jettyFactory, stubRepository);
     }
 
+    /**
+     * @return a {@link YAMLParser} for the stubs that are loaded on startup, before the {@link StubRepository} that
+     * holds them is constructed
+     */
+    public YAMLParser constructYAMLParser(final Map<String, String> commandLineArgs) {
+        return new YAMLParser(largeFileThreshold(commandLineArgs));
+    }
+
+    private StubRepository constructStubRepository(final File configFile,
+                                                   final Map<String, String> commandLineArgs,
+                                                   final Future<List<StubHttpLifecycle>> stubLoadComputation) {
+        int parallelMatchingThreshold = StubRepository.PARALLEL_MATCHING_DISABLED;
+        if (commandLineArgs.containsKey(CommandLineInterpreter.OPTION_PARALLEL_MATCHING)) {
+            final String thresholdValue = commandLineArgs.get(CommandLineInterpreter.OPTION_PARALLEL_MATCHING);
+            parallelMatchingThreshold = ObjectUtils.isNotNull(thresholdValue) ? Integer.parseInt(thresholdValue) : 1024;
+        }
+
+        long regexStepBudget = StubRepository.DEFAULT_REGEX_STEP_BUDGET;
+        if (commandLineArgs.containsKey(CommandLineInterpreter.OPTION_REGEX_BUDGET)) {
+            regexStepBudget = Long.parseLong(commandLineArgs.get(CommandLineInterpreter.OPTION_REGEX_BUDGET));
+        }
+
+        long responseFileCacheBytes = StubRepository.DEFAULT_RESPONSE_FILE_CACHE_BYTES;
+        if (commandLineArgs.containsKey(CommandLineInterpreter.OPTION_RESPONSE_FILE_CACHE)) {
+            responseFileCacheBytes = Long.parseLong(commandLineArgs.get(CommandLineInterpreter.OPTION_RESPONSE_FILE_CACHE));
+        }
+
+        return new StubRepository(configFile, stubLoadComputation, parallelMatchingThreshold, regexStepBudget, responseFileCacheBytes,
+                largeFileThreshold(commandLineArgs));
+    }
+
+    private static long largeFileThreshold(final Map<String, String> commandLineArgs) {
+        if (commandLineArgs.containsKey(CommandLineInterpreter.OPTION_LARGE_FILE_THRESHOLD)) {
+            return Long.parseLong(commandLineArgs.get(CommandLineInterpreter.OPTION_LARGE_FILE_THRESHOLD));
+        }
+        return StubResponse.DEFAULT_LARGE_FILE_THRESHOLD;
+    }
+
     private void watchDataStore(final StubRepository stubRepository, final long sleepTime) {
 
         final MainYamlScanner mainYamlScanner = new MainYamlScanner(stubRepository, sleepTime);
@@ -0,0 +1,301 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import static io.github.azagniotov.stubby4j.utils.ObjectUtils.isNotNull;
+import static io.github.azagniotov.stubby4j.utils.StringUtils.isNotSet;
+
+/**
+ * A single predicate of the stubbed <code>post_matches</code>, which a request body must satisfy, e.g.:
+ * <code>$.order.id == 42</code> or <code>/order/customer/@type == 'vip'</code>.
+ * <p>
+ * A path that starts with '$' is a JSONPath made of member names and array indexes, e.g.:
+ * <code>$.order.items[0].sku</code> or <code>$['order']['id']</code>. A path that starts with '/' is an absolute
+ * XPath made of element names, optionally with a 1-based position and a trailing attribute, e.g.:
+ * <code>/Envelope/Body/order[2]/@id</code>. Namespace prefixes of XPath element names are ignored.
+ * <p>
+ * Without the '==' operator, the predicate only requires the path to exist in the body. The expected value is
+ * either a quoted string, or a number, true, false or null, anything else is taken as an unquoted string.
+ */
+final class BodyPredicate {
+
+    private static final String EQUALS_OPERATOR = "==";
+
+    private final String expression;
+    private final boolean isJsonPath;
+    // JSON member names and array indexes, or XPath element steps
+    private final List<Object> steps;
+    private final String attributeName;
+    private final boolean isValueExpected;
+    private final String expectedText;
+    private final boolean isExpectedQuoted;
+    private final Double expectedNumber;
+
+    private BodyPredicate(final String expression) {
+        this.expression = expression;
+
+        final int operatorIdx = indexOfOperator(expression);
+        final String path = (operatorIdx < 0 ? expression : expression.substring(0, operatorIdx)).trim();
+        this.isJsonPath = path.startsWith("$");
+        this.steps = new ArrayList<>();
+        if (isJsonPath) {
+            this.attributeName = null;
+            parseJsonPath(path);
+        } else if (path.startsWith("/")) {
+            this.attributeName = parseXPath(path);
+        } else {
+            throw invalidExpression("the path must start with either '$' or '/'");
+        }
+
+        this.isValueExpected = operatorIdx >= 0;
+        final String expectedLiteral = isValueExpected ? expression.substring(operatorIdx + EQUALS_OPERATOR.length()).trim() : "";
+        this.isExpectedQuoted = isQuoted(expectedLiteral);
+        this.expectedText = isExpectedQuoted ? expectedLiteral.substring(1, expectedLiteral.length() - 1) : expectedLiteral;
+        this.expectedNumber = isExpectedQuoted ? null : toNumber(expectedLiteral);
+    }
+
+    /**
+     * @throws IllegalStateException if the given expression is not a valid predicate
+     */
+    static List<BodyPredicate> compile(final List<String> expressions) {
+        final List<BodyPredicate> predicates = new ArrayList<>(expressions.size());
+        for (final String expression : expressions) {
+            predicates.add(new BodyPredicate(expression));
+        }
+        return Collections.unmodifiableList(predicates);
+    }
+
+    /**
+     * @return true if the given body satisfies all the given predicates. JSONPath predicates are evaluated by
+     * {@link JsonPathScanner}, XPath predicates are evaluated by {@link XPathScanner}, each of them stops reading the
+     * body as soon as all of its predicates are decided
+     */
+    static boolean allMatch(final List<BodyPredicate> predicates, final String body) {
+        if (predicates.isEmpty()) {
+            return true;
+        } else if (isNotSet(body)) {
+            return false;
+        }
+
+        final List<BodyPredicate> jsonPathPredicates = new ArrayList<>();
+        final List<BodyPredicate> xPathPredicates = new ArrayList<>();
+        for (final BodyPredicate predicate : predicates) {
+            (predicate.isJsonPath ? jsonPathPredicates : xPathPredicates).add(predicate);
+        }
+
+        return (jsonPathPredicates.isEmpty() || JsonPathScanner.allMatch(body, jsonPathPredicates)) &&
+                (xPathPredicates.isEmpty() || XPathScanner.allMatch(body, xPathPredicates));
+    }
+
+    List<Object> getSteps() {
+        return steps;
+    }
+
+    String getAttributeName() {
+        return attributeName;
+    }
+
+    boolean isValueExpected() {
+        return isValueExpected;
+    }
+
+    /**
+     * @return true if this JSONPath predicate addresses the value at the given path of member names and array indexes
+     */
+    boolean addresses(final List<Object> path) {
+        return steps.equals(path);
+    }
+
+    /**
+     * @return true if this JSONPath predicate addresses a value nested under the value at the given path
+     */
+    boolean isUnder(final List<Object> path) {
+        return steps.size() > path.size() && steps.subList(0, path.size()).equals(path);
+    }
+
+    /**
+     * @param tokenType the type of the JSON scalar: 's' for a string, 'n' for a number, or 'k' for true, false and null
+     * @param tokenText the unescaped string, or the text of a number or keyword
+     */
+    boolean matchesJsonScalar(final char tokenType, final String tokenText) {
+        if (!isValueExpected) {
+            return true;
+        } else if (isExpectedQuoted) {
+            return tokenType == 's' && expectedText.equals(tokenText);
+        } else if (isNotNull(expectedNumber)) {
+            return tokenType == 'n' && Objects.equals(expectedNumber, toNumber(tokenText));
+        } else if (isKeyword(expectedText)) {
+            return tokenType == 'k' && expectedText.equals(tokenText);
+        }
+        return tokenType == 's' && expectedText.equals(tokenText);
+    }
+
+    boolean matchesXmlText(final String text) {
+        if (!isValueExpected) {
+            return true;
+        } else if (!isExpectedQuoted && isNotNull(expectedNumber)) {
+            return Objects.equals(expectedNumber, toNumber(text.trim()));
+        }
+        return expectedText.equals(text);
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    private void parseJsonPath(final String path) {
+        int idx = 1;
+        while (idx < path.length()) {
+            final char character = path.charAt(idx);
+            if (character == '.') {
+                final int nameEnd = indexOfAny(path, ".[", idx + 1);
+                final String memberName = path.substring(idx + 1, nameEnd);
+                if (memberName.isEmpty()) {
+                    throw invalidExpression("empty member name");
+                }
+                steps.add(memberName);
+                idx = nameEnd;
+            } else if (character == '[') {
+                final int closingIdx = path.indexOf(']', idx);
+                if (closingIdx < 0) {
+                    throw invalidExpression("unclosed '['");
+                }
+                final String subscript = path.substring(idx + 1, closingIdx).trim();
+                if (isQuoted(subscript)) {
+                    steps.add(subscript.substring(1, subscript.length() - 1));
+                } else if (isIndex(subscript)) {
+                    steps.add(Integer.valueOf(subscript));
+                } else {
+                    throw invalidExpression("the subscript must be either a quoted member name or an array index");
+                }
+                idx = closingIdx + 1;
+            } else {
+                throw invalidExpression("unexpected '" + character + "'");
+            }
+        }
+    }
+
+    private String parseXPath(final String path) {
+        final String[] pathSteps = path.substring(1).split("/", -1);
+        for (int idx = 0; idx < pathSteps.length; idx++) {
+            final String pathStep = pathSteps[idx].trim();
+            final boolean isLastStep = idx == pathSteps.length - 1;
+            if (isLastStep && pathStep.startsWith("@") && pathStep.length() > 1) {
+                return localNameOf(pathStep.substring(1));
+            } else if (isLastStep && pathStep.equals("text()") && !steps.isEmpty()) {
+                return null;
+            }
+            steps.add(XPathStep.parse(pathStep, this));
+        }
+        return null;
+    }
+
+    private IllegalStateException invalidExpression(final String reason) {
+        return new IllegalStateException(String.format("Invalid post_matches predicate [%s]: %s", expression, reason));
+    }
+
+    private static int indexOfOperator(final String expression) {
+        char openingQuote = 0;
+        for (int idx = 0; idx < expression.length(); idx++) {
+            final char character = expression.charAt(idx);
+            if (openingQuote != 0) {
+                openingQuote = character == openingQuote ? 0 : openingQuote;
+            } else if (character == '\'' || character == '"') {
+                openingQuote = character;
+            } else if (expression.startsWith(EQUALS_OPERATOR, idx)) {
+                return idx;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOfAny(final String value, final String characters, final int fromIdx) {
+        for (int idx = fromIdx; idx < value.length(); idx++) {
+            if (characters.indexOf(value.charAt(idx)) >= 0) {
+                return idx;
+            }
+        }
+        return value.length();
+    }
+
+    private static boolean isQuoted(final String value) {
+        return value.length() >= 2 && (value.charAt(0) == '\'' || value.charAt(0) == '"')
+                && value.charAt(value.length() - 1) == value.charAt(0);
+    }
+
+    private static boolean isIndex(final String value) {
+        if (value.isEmpty() || value.length() > 9) {
+            return false;
+        }
+        for (int idx = 0; idx < value.length(); idx++) {
+            if (!Character.isDigit(value.charAt(idx))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isKeyword(final String value) {
+        return value.equals("true") || value.equals("false") || value.equals("null");
+    }
+
+    private static Double toNumber(final String value) {
+        if (value.isEmpty() || "-0123456789".indexOf(value.charAt(0)) < 0) {
+            return null;
+        }
+        try {
+            return Double.valueOf(value);
+        } catch (final NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String localNameOf(final String qualifiedName) {
+        return qualifiedName.substring(qualifiedName.indexOf(':') + 1);
+    }
+
+    /**
+     * An XPath element step, i.e.: a local element name with an optional 1-based position among the same-named siblings
+     */
+    static final class XPathStep {
+        private static final int ANY_POSITION = 0;
+
+        private final String localName;
+        private final int position;
+
+        private XPathStep(final String localName, final int position) {
+            this.localName = localName;
+            this.position = position;
+        }
+
+        private static XPathStep parse(final String pathStep, final BodyPredicate predicate) {
+            final int openingIdx = pathStep.indexOf('[');
+            final String name = openingIdx < 0 ? pathStep : pathStep.substring(0, openingIdx);
+            if (name.isEmpty() || name.startsWith("@") || name.contains("(")) {
+                throw predicate.invalidExpression("unsupported step '" + pathStep + "'");
+            }
+            if (openingIdx < 0) {
+                return new XPathStep(localNameOf(name), ANY_POSITION);
+            }
+
+            final String positionErrorMessage = "the position of step '" + pathStep + "' must be a number from 1";
+            if (!pathStep.endsWith("]") || openingIdx >= pathStep.length() - 1) {
+                throw predicate.invalidExpression(positionErrorMessage);
+            }
+            final String position = pathStep.substring(openingIdx + 1, pathStep.length() - 1);
+            if (!isIndex(position) || Integer.parseInt(position) == 0) {
+                throw predicate.invalidExpression(positionErrorMessage);
+            }
+            return new XPathStep(localNameOf(name), Integer.parseInt(position));
+        }
+
+        boolean matches(final String elementLocalName, final int elementPosition) {
+            return localName.equals(elementLocalName) && (position == ANY_POSITION || position == elementPosition);
+        }
+    }
+}
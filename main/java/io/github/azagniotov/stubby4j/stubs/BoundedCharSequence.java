@@ -0,0 +1,53 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+/**
+ * A {@link CharSequence} view of an incoming value that is matched by a stub regex, which limits the number of
+ * characters the regex engine may read from it. A regex that backtracks catastrophically reads the same characters
+ * over and over, so it runs out of its budget instead of pinning the thread that matches it.
+ * <p>
+ * A view is scoped to a single match, it must not be shared between threads.
+ */
+final class BoundedCharSequence implements CharSequence {
+
+    private final String value;
+    private final long stepBudget;
+    private long steps;
+
+    BoundedCharSequence(final String value, final long stepBudget) {
+        this.value = value;
+        this.stepBudget = stepBudget;
+    }
+
+    @Override
+    public int length() {
+        return value.length();
+    }
+
+    @Override
+    public char charAt(final int index) {
+        if (++steps > stepBudget) {
+            throw new StepBudgetExceededException();
+        }
+        return value.charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+        // Only used to extract matched groups, which reads every character once
+        return value.subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+
+    static final class StepBudgetExceededException extends RuntimeException {
+
+        private StepBudgetExceededException() {
+            // No stack trace, it is thrown from deep within the regex engine and it is handled right above it
+            super("Regex step budget exceeded", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+import static io.github.azagniotov.stubby4j.utils.ObjectUtils.isNotNull;
+
+/**
+ * A concurrent map bounded by the total weight of its values, which backs the caches of this package. A value
+ * weighs one by default, so the capacity is the number of entries, unless the value says otherwise (see
+ * {@link Entry#weight()}).
+ * <p>
+ * Lookups do not lock. Once the map grows over its capacity, the thread that grew it evicts the least recently
+ * accessed entries, together with a further tenth of the capacity so that the next few puts do not evict again.
+ * Only one thread evicts at a time, the others carry on without waiting.
+ */
+final class BoundedLruMap<K, V extends BoundedLruMap.Entry> {
+
+    private static final int EVICTION_BATCH_PERCENT = 10;
+
+    private final long capacity;
+    private final ConcurrentHashMap<K, V> entries;
+    private final AtomicLong weight;
+    private final AtomicLong accessTicks;
+    private final ReentrantLock evictionLock;
+
+    BoundedLruMap(final long capacity) {
+        this.capacity = capacity;
+        this.entries = new ConcurrentHashMap<>();
+        this.weight = new AtomicLong();
+        this.accessTicks = new AtomicLong();
+        this.evictionLock = new ReentrantLock();
+    }
+
+    /**
+     * @return the value of the given key, marked as the most recently accessed one, or null if there is none
+     */
+    V get(final K key) {
+        final V value = entries.get(key);
+        if (isNotNull(value)) {
+            value.lastAccessTick = accessTicks.incrementAndGet();
+        }
+
+        return value;
+    }
+
+    void put(final K key, final V value) {
+        value.lastAccessTick = accessTicks.incrementAndGet();
+        final V previous = entries.put(key, value);
+        weight.addAndGet(value.weight() - (isNotNull(previous) ? previous.weight() : 0));
+
+        if (weight.get() > capacity) {
+            evictLeastRecentlyAccessed();
+        }
+    }
+
+    void remove(final K key) {
+        final V removed = entries.remove(key);
+        if (isNotNull(removed)) {
+            weight.addAndGet(-removed.weight());
+        }
+    }
+
+    void removeIf(final Predicate<V> filter) {
+        for (final Map.Entry<K, V> entry : entries.entrySet()) {
+            if (filter.test(entry.getValue())) {
+                remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    boolean containsKey(final K key) {
+        return entries.containsKey(key);
+    }
+
+    void clear() {
+        removeIf(value -> true);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    long weight() {
+        return weight.get();
+    }
+
+    long capacity() {
+        return capacity;
+    }
+
+    private boolean remove(final K key, final V value) {
+        if (entries.remove(key, value)) {
+            weight.addAndGet(-value.weight());
+            return true;
+        }
+        return false;
+    }
+
+    private void evictLeastRecentlyAccessed() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            final long overflow = weight.get() - capacity;
+            if (overflow <= 0) {
+                return;
+            }
+            final long evictionWeight = overflow + Math.max(1, capacity * EVICTION_BATCH_PERCENT / 100);
+            final List<Map.Entry<K, V>> sortedEntries = new ArrayList<>(entries.entrySet());
+            sortedEntries.sort(Comparator.comparingLong(entry -> entry.getValue().lastAccessTick));
+
+            long evictedWeight = 0;
+            for (int index = 0; evictedWeight < evictionWeight && index < sortedEntries.size(); index++) {
+                final Map.Entry<K, V> entry = sortedEntries.get(index);
+                if (remove(entry.getKey(), entry.getValue())) {
+                    evictedWeight += entry.getValue().weight();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * A value of {@link BoundedLruMap}, which keeps track of when it was last accessed
+     */
+    abstract static class Entry {
+        volatile long lastAccessTick;
+
+        /**
+         * @return how much of the map capacity the value takes up, it must not change once the value is put
+         */
+        long weight() {
+            return 1;
+        }
+    }
+}
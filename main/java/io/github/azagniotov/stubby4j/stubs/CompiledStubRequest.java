@@ -0,0 +1,397 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import io.github.azagniotov.stubby4j.cli.ANSITerminal;
+import org.eclipse.jetty.http.HttpMethod;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static io.github.azagniotov.stubby4j.utils.ObjectUtils.isNotNull;
+import static io.github.azagniotov.stubby4j.utils.ObjectUtils.isNull;
+import static io.github.azagniotov.stubby4j.utils.StringUtils.calculateFingerprint;
+import static io.github.azagniotov.stubby4j.utils.StringUtils.escapeSpecialRegexCharacters;
+import static io.github.azagniotov.stubby4j.utils.StringUtils.isNotSet;
+import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.HEADERS;
+import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.POST;
+import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.QUERY;
+import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.URL;
+
+/**
+ * An immutable, matching-ready form of a stubbed {@link StubRequest}, compiled once when the stub is loaded.
+ * <p>
+ * Everything that does not depend on the incoming request is derived here: upper-cased HTTP methods,
+ * lower-cased header names without the authorization headers, the line separator normalized POST body
+ * and the regex {@link Pattern patterns} of the stubbed values. Matching an incoming request against it
+ * comes down to comparisons.
+ */
+final class CompiledStubRequest {
+
+    private final List<String> method;
+    private final Set<HttpMethod> httpMethods;
+    private final Set<String> customMethods;
+    private final CompiledValue url;
+    private final CompiledMappings headers;
+    private final CompiledMappings query;
+    private final boolean isPostStubbed;
+    private final boolean isPostRegex;
+    private final CompiledValue post;
+    private final JsonTree jsonPost;
+    private final XmlTree xmlPost;
+    private final boolean isPostFingerprinted;
+    private final long postFingerprint;
+    private final List<BodyPredicate> postPredicates;
+    private final List<StubMatcher.Criterion> matchCriteria;
+    private volatile CompiledValue escapedPost;
+
+    CompiledStubRequest(final StubRequest stubbedRequest) {
+        this.method = Collections.unmodifiableList(stubbedRequest.getMethod());
+        this.httpMethods = EnumSet.noneOf(HttpMethod.class);
+        this.customMethods = new HashSet<>();
+        for (final String stubbedMethod : method) {
+            final HttpMethod httpMethod = HttpMethod.fromString(stubbedMethod);
+            if (isNull(httpMethod)) {
+                customMethods.add(stubbedMethod);
+            } else {
+                httpMethods.add(httpMethod);
+            }
+        }
+
+        this.url = new CompiledValue(URL.toString(), stubbedRequest.getUri());
+        this.headers = new CompiledMappings(HEADERS.toString(), withoutAuthorizationHeaders(stubbedRequest.getHeaders()));
+        this.query = new CompiledMappings(QUERY.toString(), stubbedRequest.getQuery());
+        this.isPostStubbed = stubbedRequest.isPostStubbed();
+        this.isPostRegex = stubbedRequest.isPostRegex();
+        this.post = new CompiledValue(POST.toString(), isPostStubbed ? stubbedRequest.getPostBody() : null, isPostRegex);
+        this.jsonPost = JsonTree.parse(post.getValue());
+        this.xmlPost = XmlTree.parse(post.getValue());
+        this.isPostFingerprinted = isPostStubbed && post.getKind() == ValueKind.LITERAL;
+        this.postFingerprint = isPostFingerprinted ? calculateFingerprint(post.getValue()) : 0L;
+        this.postPredicates = BodyPredicate.compile(stubbedRequest.getPostMatches());
+        this.matchCriteria = StubMatcher.orderByEstimatedCost(stubbedRequest);
+    }
+
+    List<String> getMethod() {
+        return method;
+    }
+
+    CompiledValue getUrl() {
+        return url;
+    }
+
+    CompiledMappings getHeaders() {
+        return headers;
+    }
+
+    CompiledMappings getQuery() {
+        return query;
+    }
+
+    boolean isPostStubbed() {
+        return isPostStubbed;
+    }
+
+    CompiledValue getPost() {
+        return post;
+    }
+
+    /**
+     * @return true if the stubbed POST body is a literal, which can only match an incoming body with the same
+     * {@link #getPostFingerprint() fingerprint}
+     */
+    boolean isPostFingerprinted() {
+        return isPostFingerprinted;
+    }
+
+    long getPostFingerprint() {
+        return postFingerprint;
+    }
+
+    /**
+     * @return the compiled predicates of the stubbed <code>post_matches</code>, which the POST body must satisfy on top of
+     * matching the stubbed POST body, if any
+     */
+    List<BodyPredicate> getPostPredicates() {
+        return postPredicates;
+    }
+
+    /**
+     * @return the parsed stubbed POST body, or null if it is not a well-formed JSON object or array
+     */
+    JsonTree getJsonPost() {
+        return jsonPost;
+    }
+
+    /**
+     * @return the parsed stubbed POST body, or null if it is not a well-formed XML document
+     */
+    XmlTree getXmlPost() {
+        return xmlPost;
+    }
+
+    /**
+     * @return the stubbed POST body with JSON object and array brackets escaped, so that it can be matched as a
+     * regex against a JSON body that is not structurally equal to it. Compiled on first use, since most stubbed
+     * JSON bodies never need it. A stubbed POST body that was opted out of regex semantics is returned as is
+     */
+    CompiledValue getEscapedPost() {
+        if (!isPostRegex) {
+            return post;
+        }
+        if (isNull(escapedPost)) {
+            escapedPost = new CompiledValue(POST.toString(), escapeSpecialRegexCharacters(post.getValue()));
+        }
+        return escapedPost;
+    }
+
+    List<StubMatcher.Criterion> getMatchCriteria() {
+        return matchCriteria;
+    }
+
+    boolean methodsMatch(final List<String> assertingMethods) {
+        if (method.isEmpty()) {
+            return true;
+        }
+        for (final String assertingMethod : assertingMethods) {
+            final HttpMethod httpMethod = HttpMethod.fromString(assertingMethod);
+            if (isNull(httpMethod) ? customMethods.contains(assertingMethod) : httpMethods.contains(httpMethod)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static Map<String, String> withoutAuthorizationHeaders(final Map<String, String> stubbedHeaders) {
+        final Map<String, String> stubbedHeadersCopy = new LinkedHashMap<>(stubbedHeaders);
+        for (final StubbableAuthorizationType authorizationType : StubbableAuthorizationType.values()) {
+            // auth header is dealt with in StubRepository after request is matched
+            stubbedHeadersCopy.remove(authorizationType.asYAMLProp());
+        }
+        return stubbedHeadersCopy;
+    }
+
+    /**
+     * A single stubbed value, classified once by {@link ValueKind}. Literal and prefix values are compared with plain
+     * string operations, only regex values are matched by their pre-resolved {@link Pattern}.
+     */
+    static final class CompiledValue {
+        private static final String ANY_SUFFIX = ".*";
+        // The characters that '.' does not match, unless Pattern.DOTALL is set
+        private static final String LINE_TERMINATORS = "\n\r\u0085\u2028\u2029";
+
+        private final String templateTokenName;
+        private final String value;
+        private final ValueKind kind;
+        private final String prefix;
+        private final Pattern pattern;
+
+        CompiledValue(final String templateTokenName, final String value) {
+            this(templateTokenName, value, true);
+        }
+
+        /**
+         * @param isRegexAllowed when false, the value is classified as {@link ValueKind#LITERAL} without scanning it,
+         *                       so it is only ever compared as a literal string
+         */
+        CompiledValue(final String templateTokenName, final String value, final boolean isRegexAllowed) {
+            this.templateTokenName = templateTokenName;
+            this.value = value;
+
+            if (!isRegexAllowed || isNotSet(value) || RegexParser.isLiteral(value)) {
+                this.kind = ValueKind.LITERAL;
+                this.prefix = null;
+                this.pattern = null;
+            } else if (isNotNull(literalPrefixOf(value))) {
+                this.kind = ValueKind.PREFIX;
+                this.prefix = literalPrefixOf(value);
+                this.pattern = null;
+            } else {
+                this.kind = ValueKind.REGEX;
+                this.prefix = null;
+                this.pattern = RegexParser.INSTANCE.resolvePattern(value);
+                if (RegexParser.hasNestedQuantifier(value)) {
+                    ANSITerminal.warn(String.format("Stubbed %s regex [%s] has a nested quantifier, which is prone to catastrophic backtracking", templateTokenName, value));
+                }
+            }
+        }
+
+        /**
+         * @return the literal part of a regex that is a literal followed by '.*', optionally anchored with a leading
+         * '^' and a trailing '$', e.g.: ^/api/.*$, or null if the given regex is anything else
+         */
+        static String literalPrefixOf(final String regex) {
+            final int start = regex.startsWith("^") ? 1 : 0;
+            final int end = regex.endsWith("$") ? regex.length() - 1 : regex.length();
+            if (end - start < ANY_SUFFIX.length() || !regex.startsWith(ANY_SUFFIX, end - ANY_SUFFIX.length())) {
+                return null;
+            }
+
+            final String literalPrefix = regex.substring(start, end - ANY_SUFFIX.length());
+
+            return RegexParser.isLiteral(literalPrefix) ? literalPrefix : null;
+        }
+
+        ValueKind getKind() {
+            return kind;
+        }
+
+        String getValue() {
+            return value;
+        }
+
+        boolean matches(final String assertingValue, final StubMatchContext matchContext) {
+            if (isNotSet(value)) {
+                return true;
+            } else if (isNotSet(assertingValue)) {
+                return false;
+            }
+
+            switch (kind) {
+                case REGEX:
+                    final long stepBudget = matchContext.getRegexStepBudget();
+                    final Matcher matcher = pattern.matcher(new BoundedCharSequence(assertingValue, stepBudget));
+                    if (matchesWithinStepBudget(matcher, stepBudget)) {
+                        // Regex groups are extracted later, only if the whole stub matches
+                        matchContext.recordRegexMatch(templateTokenName, matcher);
+                        return true;
+                    }
+                    return value.equals(assertingValue);
+
+                case PREFIX:
+                    // Same outcome as of matching the regex: the '.*' matches whatever follows, up to a line terminator
+                    if (assertingValue.startsWith(prefix) && !containsLineTerminator(assertingValue, prefix.length())) {
+                        matchContext.recordLiteralMatch(templateTokenName, assertingValue);
+                        return true;
+                    }
+                    return value.equals(assertingValue);
+
+                default:
+                    if (value.equals(assertingValue)) {
+                        matchContext.recordLiteralMatch(templateTokenName, assertingValue);
+                        return true;
+                    }
+                    return false;
+            }
+        }
+
+        /**
+         * Same outcome as of {@link #matches(String, StubMatchContext)}, without recording anything for regex groups
+         *
+         * @param stepBudget the maximum number of characters the regex may read while matching the given value
+         */
+        boolean matches(final String assertingValue, final long stepBudget) {
+            if (isNotSet(value)) {
+                return true;
+            } else if (isNotSet(assertingValue)) {
+                return false;
+            }
+
+            switch (kind) {
+                case REGEX:
+                    return matchesWithinStepBudget(pattern.matcher(new BoundedCharSequence(assertingValue, stepBudget)), stepBudget) ||
+                            value.equals(assertingValue);
+                case PREFIX:
+                    return (assertingValue.startsWith(prefix) && !containsLineTerminator(assertingValue, prefix.length())) ||
+                            value.equals(assertingValue);
+                default:
+                    return value.equals(assertingValue);
+            }
+        }
+
+        /**
+         * A regex that runs out of its step budget does not match the value at hand, the next value gets a fresh budget
+         */
+        private boolean matchesWithinStepBudget(final Matcher matcher, final long stepBudget) {
+            try {
+                return matcher.matches();
+            } catch (final BoundedCharSequence.StepBudgetExceededException e) {
+                ANSITerminal.warn(String.format("Stubbed %s regex [%s] exceeded the budget of %s steps, matching incoming value as a literal string",
+                        templateTokenName, value, stepBudget));
+                return false;
+            }
+        }
+
+        private static boolean containsLineTerminator(final String assertingValue, final int fromIndex) {
+            for (int idx = fromIndex; idx < assertingValue.length(); idx++) {
+                if (LINE_TERMINATORS.indexOf(assertingValue.charAt(idx)) >= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return value;
+        }
+    }
+
+    /**
+     * How a stubbed value is matched: by equality, by a literal prefix or by a regex
+     */
+    enum ValueKind {
+        LITERAL,
+        PREFIX,
+        REGEX
+    }
+
+    /**
+     * Stubbed name/value pairs, e.g. headers or query params. Every stubbed name must be present in the
+     * incoming request, with a value matching the stubbed one.
+     */
+    static final class CompiledMappings {
+        private final Map<String, String> mappings;
+        private final String[] names;
+        private final CompiledValue[] values;
+
+        CompiledMappings(final String mapName, final Map<String, String> stubbedMappings) {
+            this.mappings = Collections.unmodifiableMap(new LinkedHashMap<>(stubbedMappings));
+            this.names = new String[stubbedMappings.size()];
+            this.values = new CompiledValue[stubbedMappings.size()];
+
+            int index = 0;
+            for (final Map.Entry<String, String> stubbedMappingEntry : stubbedMappings.entrySet()) {
+                final String templateTokenName = String.format("%s.%s", mapName, stubbedMappingEntry.getKey());
+                names[index] = stubbedMappingEntry.getKey();
+                values[index] = new CompiledValue(templateTokenName, stubbedMappingEntry.getValue());
+                index++;
+            }
+        }
+
+        boolean isEmpty() {
+            return names.length == 0;
+        }
+
+        boolean matches(final Map<String, String> assertingMappings, final StubMatchContext matchContext) {
+            if (names.length == 0) {
+                return true;
+            } else if (assertingMappings.isEmpty()) {
+                return false;
+            }
+
+            for (int index = 0; index < names.length; index++) {
+                final String assertingValue = assertingMappings.get(names[index]);
+                if (isNull(assertingValue) && !assertingMappings.containsKey(names[index])) {
+                    return false;
+                }
+                if (!values[index].matches(assertingValue, matchContext)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return mappings.toString();
+        }
+    }
+}
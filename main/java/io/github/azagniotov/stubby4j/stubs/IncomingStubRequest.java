@@ -0,0 +1,86 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static io.github.azagniotov.stubby4j.utils.CollectionUtils.constructParamMap;
+import static io.github.azagniotov.stubby4j.utils.HandlerUtils.extractPostRequestBody;
+import static io.github.azagniotov.stubby4j.utils.ObjectUtils.isNotNull;
+import static io.github.azagniotov.stubby4j.utils.ObjectUtils.isNull;
+import static io.github.azagniotov.stubby4j.utils.StringUtils.isSet;
+import static io.github.azagniotov.stubby4j.utils.StringUtils.toLower;
+import static java.lang.String.valueOf;
+
+/**
+ * A view of the incoming {@link HttpServletRequest} as an asserting {@link StubRequest}.
+ * <p>
+ * Only the URL and HTTP method are read upfront. Headers, query params and the request body are read from the
+ * underlying request when they are asked for the first time, e.g. by a candidate stub that matches on them, and
+ * are kept from then on. Requests that no stub can match on URL and method never have their headers or body read.
+ * <p>
+ * The view is scoped to the incoming request. Its on demand reads are guarded by its monitor, since the candidates of
+ * a single incoming request may be evaluated on several threads at once (see {@link ParallelCandidateSearch}).
+ */
+final class IncomingStubRequest extends StubRequest {
+
+    private static final String SOURCE = "stubs";
+
+    private final HttpServletRequest request;
+    private Map<String, String> headers;
+    private Map<String, String> query;
+    private String post;
+    private boolean isPostRead;
+
+    IncomingStubRequest(final HttpServletRequest request) {
+        super(request.getPathInfo(), null, null, toMethodList(request.getMethod()), new LinkedHashMap<>(), new LinkedHashMap<>(), null, new ArrayList<>());
+        this.request = request;
+    }
+
+    @Override
+    public synchronized String getPost() {
+        if (!isPostRead) {
+            isPostRead = true;
+            try {
+                post = extractPostRequestBody(request, SOURCE);
+            } catch (final IOException e) {
+                post = null;
+            }
+        }
+        return post;
+    }
+
+    @Override
+    public synchronized Map<String, String> getHeaders() {
+        if (isNull(headers)) {
+            headers = new LinkedHashMap<>();
+            final Enumeration<String> headerNames = request.getHeaderNames();
+            while (isNotNull(headerNames) && headerNames.hasMoreElements()) {
+                final String headerName = headerNames.nextElement();
+                headers.put(toLower(headerName), valueOf(request.getHeader(headerName)));
+            }
+        }
+        return headers;
+    }
+
+    @Override
+    public synchronized Map<String, String> getQuery() {
+        if (isNull(query)) {
+            query = constructParamMap(request.getQueryString());
+        }
+        return query;
+    }
+
+    private static List<String> toMethodList(final String method) {
+        final List<String> methods = new ArrayList<>(1);
+        if (isSet(method)) {
+            methods.add(method);
+        }
+        return methods;
+    }
+}
@@ -0,0 +1,252 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Evaluates JSONPath {@link BodyPredicate predicates} in a single forward pass over a JSON body, without building a
+ * tree of it. Values that no undecided predicate is addressing, or nested under, are skipped over rather than parsed.
+ * <p>
+ * A JSONPath made of member names and array indexes addresses at most one value, so a predicate is decided once its
+ * value is reached. Scanning stops as soon as a predicate fails, or once all the predicates are satisfied.
+ * <p>
+ * A scanner is scoped to a single evaluation, it must not be shared between threads.
+ */
+final class JsonPathScanner {
+
+    private static final char STRING = 's';
+    private static final char NUMBER = 'n';
+    private static final char KEYWORD = 'k';
+
+    private final String json;
+    private final List<BodyPredicate> undecidedPredicates;
+    private int pos;
+    private boolean isMalformed;
+    private boolean isRejected;
+    private char tokenType;
+
+    private JsonPathScanner(final String json, final List<BodyPredicate> predicates) {
+        this.json = json;
+        this.undecidedPredicates = new ArrayList<>(predicates);
+    }
+
+    static boolean allMatch(final String json, final List<BodyPredicate> predicates) {
+        final JsonPathScanner scanner = new JsonPathScanner(json, predicates);
+        scanner.scanValue(new ArrayList<>());
+
+        return !scanner.isMalformed && !scanner.isRejected && scanner.undecidedPredicates.isEmpty();
+    }
+
+    private boolean isDone() {
+        return isMalformed || isRejected || undecidedPredicates.isEmpty();
+    }
+
+    private void scanValue(final List<Object> path) {
+        skipWhitespace();
+        if (pos >= json.length()) {
+            isMalformed = true;
+            return;
+        }
+
+        final char character = json.charAt(pos);
+        final boolean isContainer = character == '{' || character == '[';
+        final String scalar = isContainer ? null : readScalar();
+        if (isMalformed) {
+            return;
+        }
+
+        boolean isAnyPredicateNested = false;
+        for (int idx = undecidedPredicates.size() - 1; idx >= 0; idx--) {
+            final BodyPredicate predicate = undecidedPredicates.get(idx);
+            if (predicate.addresses(path)) {
+                final boolean isSatisfied = isContainer ? !predicate.isValueExpected() : predicate.matchesJsonScalar(tokenType, scalar);
+                if (!isSatisfied) {
+                    isRejected = true;
+                    return;
+                }
+                undecidedPredicates.remove(idx);
+            } else if (predicate.isUnder(path)) {
+                isAnyPredicateNested = true;
+            }
+        }
+
+        if (!isContainer || isDone()) {
+            return;
+        }
+        if (!isAnyPredicateNested) {
+            skipContainer();
+        } else if (character == '{') {
+            scanObject(path);
+        } else {
+            scanArray(path);
+        }
+    }
+
+    private void scanObject(final List<Object> path) {
+        pos++;
+        skipWhitespace();
+        if (consume('}')) {
+            return;
+        }
+        do {
+            skipWhitespace();
+            if (pos >= json.length() || json.charAt(pos) != '"') {
+                isMalformed = true;
+                return;
+            }
+            final String memberName = readString();
+            skipWhitespace();
+            if (isMalformed || !consume(':')) {
+                isMalformed = true;
+                return;
+            }
+
+            path.add(memberName);
+            scanValue(path);
+            path.remove(path.size() - 1);
+            if (isDone()) {
+                return;
+            }
+            skipWhitespace();
+        } while (consume(','));
+
+        isMalformed = !consume('}');
+    }
+
+    private void scanArray(final List<Object> path) {
+        pos++;
+        skipWhitespace();
+        if (consume(']')) {
+            return;
+        }
+        int index = 0;
+        do {
+            path.add(index++);
+            scanValue(path);
+            path.remove(path.size() - 1);
+            if (isDone()) {
+                return;
+            }
+            skipWhitespace();
+        } while (consume(','));
+
+        isMalformed = !consume(']');
+    }
+
+    private void skipContainer() {
+        int depth = 0;
+        while (pos < json.length()) {
+            final char character = json.charAt(pos++);
+            if (character == '"') {
+                skipStringRemainder();
+            } else if (character == '{' || character == '[') {
+                depth++;
+            } else if ((character == '}' || character == ']') && --depth == 0) {
+                return;
+            }
+        }
+        isMalformed = true;
+    }
+
+    private void skipStringRemainder() {
+        while (pos < json.length()) {
+            final char character = json.charAt(pos++);
+            if (character == '\\') {
+                pos++;
+            } else if (character == '"') {
+                return;
+            }
+        }
+        isMalformed = true;
+    }
+
+    private String readScalar() {
+        final char character = json.charAt(pos);
+        if (character == '"') {
+            tokenType = STRING;
+            return readString();
+        }
+
+        final int start = pos;
+        while (pos < json.length() && (Character.isLetterOrDigit(json.charAt(pos)) || "+-.".indexOf(json.charAt(pos)) >= 0)) {
+            pos++;
+        }
+        final String token = json.substring(start, pos);
+        if (token.equals("true") || token.equals("false") || token.equals("null")) {
+            tokenType = KEYWORD;
+        } else if (!token.isEmpty() && "-0123456789".indexOf(token.charAt(0)) >= 0) {
+            tokenType = NUMBER;
+        } else {
+            isMalformed = true;
+        }
+        return token;
+    }
+
+    private String readString() {
+        final StringBuilder value = new StringBuilder();
+        pos++;
+        while (pos < json.length()) {
+            final char character = json.charAt(pos++);
+            if (character == '"') {
+                return value.toString();
+            } else if (character != '\\') {
+                value.append(character);
+            } else if (pos < json.length()) {
+                final char escaped = json.charAt(pos++);
+                switch (escaped) {
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'u':
+                        if (pos + 4 > json.length() || !isHex(json, pos, pos + 4)) {
+                            isMalformed = true;
+                            return value.toString();
+                        }
+                        value.append((char) Integer.parseInt(json.substring(pos, pos + 4), 16));
+                        pos += 4;
+                        break;
+                    default:
+                        value.append(escaped);
+                }
+            }
+        }
+        isMalformed = true;
+        return value.toString();
+    }
+
+    private void skipWhitespace() {
+        while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private boolean consume(final char expected) {
+        if (pos < json.length() && json.charAt(pos) == expected) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean isHex(final String value, final int from, final int to) {
+        for (int idx = from; idx < to; idx++) {
+            if (Character.digit(value.charAt(idx), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
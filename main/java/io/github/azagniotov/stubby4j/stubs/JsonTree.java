@@ -0,0 +1,148 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static io.github.azagniotov.stubby4j.utils.ObjectUtils.isNull;
+import static io.github.azagniotov.stubby4j.utils.StringUtils.isNotSet;
+
+/**
+ * An immutable tree of a parsed JSON object or array. A stubbed JSON body is parsed once when stubs get loaded, and an
+ * incoming JSON body is parsed once per incoming request, no matter how many candidate stubs it is compared with.
+ * <p>
+ * Two trees are compared structurally: objects must have the same set of keys, arrays must have the same elements
+ * in any order, and numbers are compared by their value, i.e.: 1 and 1.0 are the same number.
+ */
+final class JsonTree {
+
+    // Stands for the JSON null, so that the tree does not hold any null references
+    private static final Object NULL = new Object() {
+        @Override
+        public String toString() {
+            return "null";
+        }
+    };
+
+    private final Object root;
+
+    private JsonTree(final Object root) {
+        this.root = root;
+    }
+
+    /**
+     * @return the parsed tree of the given JSON object or array, or null if the given value is not a well-formed JSON
+     * object or array
+     */
+    static JsonTree parse(final String json) {
+        if (isNotSet(json)) {
+            return null;
+        }
+
+        final String trimmed = json.trim();
+        try {
+            if (trimmed.startsWith("{")) {
+                return new JsonTree(toTree(new JSONObject(trimmed)));
+            } else if (trimmed.startsWith("[")) {
+                return new JsonTree(toTree(new JSONArray(trimmed)));
+            }
+        } catch (final JSONException e) {
+            // Not a well-formed JSON, e.g.: a regex that looks like JSON. It is matched as a string instead
+            return null;
+        }
+
+        return null;
+    }
+
+    boolean matches(final JsonTree assertingTree) {
+        return valuesMatch(root, assertingTree.root);
+    }
+
+    @Override
+    public String toString() {
+        return root.toString();
+    }
+
+    private static Object toTree(final Object parsedValue) throws JSONException {
+        if (parsedValue instanceof JSONObject) {
+            final JSONObject jsonObject = (JSONObject) parsedValue;
+            final Map<String, Object> members = new HashMap<>();
+            final Iterator<?> keys = jsonObject.keys();
+            while (keys.hasNext()) {
+                final String key = String.valueOf(keys.next());
+                members.put(key, toTree(jsonObject.get(key)));
+            }
+            return Collections.unmodifiableMap(members);
+        } else if (parsedValue instanceof JSONArray) {
+            final JSONArray jsonArray = (JSONArray) parsedValue;
+            final List<Object> elements = new ArrayList<>(jsonArray.length());
+            for (int idx = 0; idx < jsonArray.length(); idx++) {
+                elements.add(toTree(jsonArray.get(idx)));
+            }
+            return Collections.unmodifiableList(elements);
+        } else if (isNull(parsedValue) || JSONObject.NULL.equals(parsedValue)) {
+            return NULL;
+        }
+
+        return parsedValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean valuesMatch(final Object stubbedValue, final Object assertingValue) {
+        if (stubbedValue instanceof Number && assertingValue instanceof Number) {
+            return ((Number) stubbedValue).doubleValue() == ((Number) assertingValue).doubleValue();
+        } else if (stubbedValue instanceof Map && assertingValue instanceof Map) {
+            return objectsMatch((Map<String, Object>) stubbedValue, (Map<String, Object>) assertingValue);
+        } else if (stubbedValue instanceof List && assertingValue instanceof List) {
+            return arraysMatch((List<Object>) stubbedValue, (List<Object>) assertingValue);
+        }
+
+        return stubbedValue.equals(assertingValue);
+    }
+
+    private static boolean objectsMatch(final Map<String, Object> stubbedObject, final Map<String, Object> assertingObject) {
+        if (stubbedObject.size() != assertingObject.size()) {
+            return false;
+        }
+        for (final Map.Entry<String, Object> stubbedMember : stubbedObject.entrySet()) {
+            final Object assertingValue = assertingObject.get(stubbedMember.getKey());
+            if (isNull(assertingValue) || !valuesMatch(stubbedMember.getValue(), assertingValue)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean arraysMatch(final List<Object> stubbedArray, final List<Object> assertingArray) {
+        if (stubbedArray.size() != assertingArray.size()) {
+            return false;
+        }
+
+        // Matching is an equivalence, so pairing every stubbed element with any unpaired equal element is enough
+        final boolean[] isPaired = new boolean[assertingArray.size()];
+        for (final Object stubbedElement : stubbedArray) {
+            if (!pairWithUnpairedElement(stubbedElement, assertingArray, isPaired)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean pairWithUnpairedElement(final Object stubbedElement, final List<Object> assertingArray, final boolean[] isPaired) {
+        for (int idx = 0; idx < assertingArray.size(); idx++) {
+            if (!isPaired[idx] && valuesMatch(stubbedElement, assertingArray.get(idx))) {
+                isPaired[idx] = true;
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,88 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Evaluates the candidate stubs of an incoming request on the common {@link ForkJoinPool}, by recursively splitting
+ * the candidate list into ranges that are evaluated in order by a {@link StubMatcher#fork() forked matcher} each.
+ * <p>
+ * The outcome is the same as of the sequential search: the lowest candidate index that matches, i.e.: the first
+ * defined stub. The lowest index matched so far is shared between the ranges, so that ranges, and candidates within
+ * a range, that come after it are not evaluated at all.
+ */
+final class ParallelCandidateSearch extends RecursiveAction {
+
+    static final int NO_MATCH = -1;
+
+    private static final int SEQUENTIAL_RANGE_SIZE = 64;
+
+    private final List<StubHttpLifecycle> candidates;
+    private final StubRequest assertingRequest;
+    private final StubMatcher stubMatcher;
+    private final AtomicInteger lowestMatchIndex;
+    private final int fromIndex;
+    private final int toIndex;
+
+    private ParallelCandidateSearch(final List<StubHttpLifecycle> candidates,
+                                    final StubRequest assertingRequest,
+                                    final StubMatcher stubMatcher,
+                                    final AtomicInteger lowestMatchIndex,
+                                    final int fromIndex,
+                                    final int toIndex) {
+        this.candidates = candidates;
+        this.assertingRequest = assertingRequest;
+        this.stubMatcher = stubMatcher;
+        this.lowestMatchIndex = lowestMatchIndex;
+        this.fromIndex = fromIndex;
+        this.toIndex = toIndex;
+    }
+
+    /**
+     * @param candidates       the candidate stubs, in the order the stubs were defined
+     * @param assertingRequest the incoming request
+     * @param stubMatcher      the {@link StubMatcher} of the incoming request, every range is evaluated by a fork of it
+     * @return the lowest index of a matching candidate, or {@link #NO_MATCH} if none of the candidates matched
+     */
+    static int findLowestMatchIndex(final List<StubHttpLifecycle> candidates,
+                                    final StubRequest assertingRequest,
+                                    final StubMatcher stubMatcher) {
+        final AtomicInteger lowestMatchIndex = new AtomicInteger(Integer.MAX_VALUE);
+        ForkJoinPool.commonPool().invoke(
+                new ParallelCandidateSearch(candidates, assertingRequest, stubMatcher, lowestMatchIndex, 0, candidates.size()));
+
+        final int matchIndex = lowestMatchIndex.get();
+
+        return matchIndex == Integer.MAX_VALUE ? NO_MATCH : matchIndex;
+    }
+
+    @Override
+    protected void compute() {
+        if (fromIndex >= lowestMatchIndex.get()) {
+            return;
+        }
+
+        if (toIndex - fromIndex <= SEQUENTIAL_RANGE_SIZE) {
+            evaluateRange();
+            return;
+        }
+
+        final int middleIndex = (fromIndex + toIndex) >>> 1;
+        invokeAll(
+                new ParallelCandidateSearch(candidates, assertingRequest, stubMatcher, lowestMatchIndex, fromIndex, middleIndex),
+                new ParallelCandidateSearch(candidates, assertingRequest, stubMatcher, lowestMatchIndex, middleIndex, toIndex));
+    }
+
+    private void evaluateRange() {
+        final StubMatcher workerMatcher = stubMatcher.fork();
+        for (int idx = fromIndex; idx < toIndex && idx < lowestMatchIndex.get(); idx++) {
+            if (workerMatcher.matches(candidates.get(idx).getRequest(), assertingRequest)) {
+                lowestMatchIndex.accumulateAndGet(idx, Math::min);
+                return;
+            }
+        }
+    }
+}
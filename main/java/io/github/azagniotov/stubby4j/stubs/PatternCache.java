@@ -0,0 +1,141 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import io.github.azagniotov.stubby4j.annotations.VisibleForTesting;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import static io.github.azagniotov.stubby4j.utils.ObjectUtils.isNull;
+
+/**
+ * A size-bounded cache of compiled {@link Pattern patterns}, keyed on the whole pattern string and the flags it was
+ * compiled with.
+ * <p>
+ * Patterns are compiled when stubs get loaded, so the cache mostly saves compiling the same pattern repeated across
+ * stubs. Every entry is stamped with the stub set generation in which it was last looked up. Once a new stub set is
+ * published (see {@link #advanceGeneration()}), the entries that the new stub set did not look up are dropped, so
+ * that the patterns of removed or replaced stubs do not pile up across reloads. The loaded stubs hold on to their
+ * compiled patterns regardless.
+ * <p>
+ * Lookups do not lock. Once the cache grows over its capacity, the least recently accessed entries are evicted
+ * (see {@link BoundedLruMap}).
+ */
+final class PatternCache {
+
+    private final BoundedLruMap<Key, CachedPattern> cache;
+    private final AtomicLong generation;
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    PatternCache(final int capacity) {
+        this.cache = new BoundedLruMap<>(capacity);
+        this.generation = new AtomicLong();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+    }
+
+    /**
+     * @return the cached {@link Pattern} for the given pattern string and flags, or null if there is none
+     */
+    Pattern get(final String regex, final int flags) {
+        final CachedPattern cachedPattern = cache.get(new Key(regex, flags));
+        if (isNull(cachedPattern)) {
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        cachedPattern.generation = generation.get();
+
+        return cachedPattern.pattern;
+    }
+
+    void put(final String regex, final int flags, final Pattern pattern) {
+        cache.put(new Key(regex, flags), new CachedPattern(pattern, generation.get()));
+    }
+
+    /**
+     * Drops the entries that were not looked up since the previous generation began, and begins a new one
+     */
+    void advanceGeneration() {
+        final long currentGeneration = generation.getAndIncrement();
+        cache.removeIf(cachedPattern -> cachedPattern.generation < currentGeneration);
+    }
+
+    @VisibleForTesting
+    boolean contains(final String regex, final int flags) {
+        return cache.containsKey(new Key(regex, flags));
+    }
+
+    void clear() {
+        cache.clear();
+    }
+
+    int size() {
+        return cache.size();
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    double getHitRatio() {
+        final long hits = getHits();
+        final long lookups = hits + getMisses();
+
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("size=%s/%s, hits=%s, compilations=%s, hit ratio=%.2f%%",
+                size(), cache.capacity(), getHits(), getMisses(), getHitRatio() * 100);
+    }
+
+    private static final class CachedPattern extends BoundedLruMap.Entry {
+        private final Pattern pattern;
+        private volatile long generation;
+
+        private CachedPattern(final Pattern pattern, final long generation) {
+            this.pattern = pattern;
+            this.generation = generation;
+        }
+    }
+
+    private static final class Key {
+        private final String regex;
+        private final int flags;
+        private final int hashCode;
+
+        private Key(final String regex, final int flags) {
+            this.regex = regex;
+            this.flags = flags;
+            this.hashCode = 31 * regex.hashCode() + flags;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            final Key that = (Key) o;
+
+            return hashCode == that.hashCode && flags == that.flags && regex.equals(that.regex);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -3,83 +3,130 @@ package io.github.azagniotov.stubby4j.stubs;
 
 import io.github.azagniotov.stubby4j.annotations.VisibleForTesting;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Matcher;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
-import static io.github.azagniotov.stubby4j.utils.StringUtils.buildToken;
-import static java.util.regex.Pattern.quote;
+import static io.github.azagniotov.stubby4j.utils.ObjectUtils.isNotNull;
 
 enum RegexParser {
 
     INSTANCE;
 
-    @VisibleForTesting
-    static final Map<Integer, Pattern> PATTERN_CACHE = new ConcurrentHashMap<>();
+    private static final int PATTERN_CACHE_CAPACITY = 8192;
+    static final long DEFAULT_STEP_BUDGET = 10_000_000L;
 
-    // A very primitive way to test if string is *maybe* a regex pattern, instead of compiling a Pattern
     @VisibleForTesting
-    static final Pattern SPECIAL_REGEX_CHARS = Pattern.compile(String.format(".*([%s%s%s%s%s%s%s%s%s%s]).*",
-            quote("^"),
-            quote("$"),
-            quote("["),
-            quote("]"),
-            quote("{"),
-            quote("}"),
-            quote("*"),
-            quote("|"),
-            quote("\\"),
-            quote("?")));
-
-    void compilePatternAndCache(final String value) {
-        compilePatternAndCache(value, Pattern.MULTILINE);
+    static final PatternCache PATTERN_CACHE = new PatternCache(PATTERN_CACHE_CAPACITY);
+
+    // Characters that have a special meaning in a regex. A value without any of them matches only itself
+    static final String REGEX_META_CHARS = "\\^$.|?*+()[]{}";
+
+    // Lookup table of the ASCII regex meta characters, all of them are below 128
+    private static final boolean[] IS_REGEX_META_CHAR = new boolean[128];
+
+    static {
+        for (final char metaChar : REGEX_META_CHARS.toCharArray()) {
+            IS_REGEX_META_CHAR[metaChar] = true;
+        }
     }
 
-    private void compilePatternAndCache(final String value, final int flags) {
-        try {
-            if (SPECIAL_REGEX_CHARS.matcher(value).matches()) {
-                PATTERN_CACHE.computeIfAbsent(value.hashCode(), hashCode -> Pattern.compile(value, flags));
+    /**
+     * Classifies the given value in a single pass over its characters, which stops at the first regex meta character
+     */
+    static boolean isLiteral(final String value) {
+        for (int idx = 0; idx < value.length(); idx++) {
+            final char character = value.charAt(idx);
+            if (character < IS_REGEX_META_CHAR.length && IS_REGEX_META_CHAR[character]) {
+                return false;
             }
-        } catch (final PatternSyntaxException e) {
-            // We could not compile, probably because of some characters that are special for Pattern
-            compilePatternAndCache(value, Pattern.LITERAL | Pattern.MULTILINE);
         }
+        return true;
     }
 
-    boolean match(final String patternCandidate, final String subject, final String templateTokenName, final Map<String, String> regexGroups) {
+    Pattern resolvePattern(final String patternCandidate) {
         // Pattern.MULTILINE changes the behavior of '^' and '$' characters,
         // it does not mean that newline feeds and carriage return will be matched by default
         // You need to make sure that you regex pattern covers both \r (carriage return) and \n (linefeed).
         // It is achievable by using symbol '\s+' which covers both \r (carriage return) and \n (linefeed).
-        return match(patternCandidate, subject, templateTokenName, regexGroups, Pattern.MULTILINE);
+        return resolvePattern(patternCandidate, Pattern.MULTILINE);
     }
 
-    private boolean match(final String patternCandidate, final String subject, final String templateTokenName, final Map<String, String> regexGroups, final int flags) {
-        try {
-            final Pattern pattern = PATTERN_CACHE.computeIfAbsent(
-                    patternCandidate.hashCode(), hashCode -> Pattern.compile(patternCandidate, flags));
-
-            final Matcher matcher = pattern.matcher(subject);
-            final boolean isMatch = matcher.matches();
-            if (isMatch) {
-                // group(0) holds the full regex matchStubByIndex
-                regexGroups.put(buildToken(templateTokenName, 0), matcher.group(0));
-
-                //Matcher.groupCount() returns the number of explicitly defined capturing groups in the pattern regardless
-                // of whether the capturing groups actually participated in the matchStubByIndex. It does not include matcher.group(0)
-                final int groupCount = matcher.groupCount();
-                if (groupCount > 0) {
-                    for (int idx = 1; idx <= groupCount; idx++) {
-                        regexGroups.put(buildToken(templateTokenName, idx), matcher.group(idx));
-                    }
+    /**
+     * A static check for the construct that is most prone to catastrophic backtracking: a group that contains an
+     * unbounded quantifier and is repeated by an unbounded quantifier itself, e.g.: (a+)+, (.*)* or (\w+\s?)*
+     */
+    static boolean hasNestedQuantifier(final String regex) {
+        final Deque<Boolean> enclosingGroupsQuantified = new ArrayDeque<>();
+        boolean isQuantified = false;
+        boolean isInCharacterClass = false;
+        for (int idx = 0; idx < regex.length(); idx++) {
+            final char character = regex.charAt(idx);
+            if (character == '\\') {
+                idx++;
+            } else if (isInCharacterClass) {
+                isInCharacterClass = character != ']';
+            } else if (character == '[') {
+                isInCharacterClass = true;
+            } else if (character == '(') {
+                enclosingGroupsQuantified.push(isQuantified);
+                isQuantified = false;
+            } else if (character == ')') {
+                final boolean isGroupContentQuantified = isQuantified;
+                if (isGroupContentQuantified && isUnboundedQuantifierAt(regex, idx + 1)) {
+                    return true;
                 }
+                isQuantified = isGroupContentQuantified || (!enclosingGroupsQuantified.isEmpty() && enclosingGroupsQuantified.pop());
+            } else if (isUnboundedQuantifierAt(regex, idx)) {
+                isQuantified = true;
             }
-            return isMatch;
+        }
+        return false;
+    }
+
+    private static boolean isUnboundedQuantifierAt(final String regex, final int idx) {
+        if (idx >= regex.length()) {
+            return false;
+        }
+        final char character = regex.charAt(idx);
+        if (character == '{') {
+            final int closingIdx = regex.indexOf('}', idx);
+            return closingIdx > idx && regex.charAt(closingIdx - 1) == ',';
+        }
+        return character == '*' || character == '+';
+    }
+
+    /**
+     * Begins a new stub set generation of the compiled patterns cache, see {@link PatternCache#advanceGeneration()}
+     */
+    void advanceGeneration() {
+        PATTERN_CACHE.advanceGeneration();
+    }
+
+    String getCacheStats() {
+        return PATTERN_CACHE.toString();
+    }
+
+    private Pattern resolvePattern(final String patternCandidate, final int flags) {
+        final Pattern cachedPattern = PATTERN_CACHE.get(patternCandidate, flags);
+        if (isNotNull(cachedPattern)) {
+            return cachedPattern;
+        }
+
+        // The outcome is cached under the requested flags, so that an invalid pattern is not compiled over and over
+        final Pattern compiledPattern = compilePattern(patternCandidate, flags);
+        PATTERN_CACHE.put(patternCandidate, flags, compiledPattern);
+
+        return compiledPattern;
+    }
+
+    private static Pattern compilePattern(final String patternCandidate, final int flags) {
+        try {
+            return Pattern.compile(patternCandidate, flags);
         } catch (final PatternSyntaxException e) {
             // We could not compile, probably because of some characters that are special for Pattern
-            return match(patternCandidate, subject, templateTokenName, regexGroups, Pattern.LITERAL | Pattern.MULTILINE);
+            return Pattern.compile(patternCandidate, Pattern.LITERAL | flags);
         }
     }
 }
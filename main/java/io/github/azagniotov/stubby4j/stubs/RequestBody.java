@@ -0,0 +1,130 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static io.github.azagniotov.stubby4j.utils.ObjectUtils.isNull;
+import static io.github.azagniotov.stubby4j.utils.StringUtils.calculateFingerprint;
+import static io.github.azagniotov.stubby4j.utils.StringUtils.getBytesUtf8;
+import static io.github.azagniotov.stubby4j.utils.StringUtils.isNotSet;
+import static io.github.azagniotov.stubby4j.utils.StringUtils.toLower;
+
+/**
+ * The body of an asserting request together with its media type, which is classified from the request
+ * <code>content-type</code> once per request. Representations of the body are derived on first use and kept from
+ * then on, so that every candidate stub of the request reuses one classification, one parse and one fingerprint.
+ */
+final class RequestBody {
+
+    private static final Pattern SUB_TYPE_PATTERN = Pattern.compile("/(?:.*\\+)?(\\w*);?");
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    enum MediaType {
+        JSON,
+        XML,
+        FORM,
+        OTHER
+    }
+
+    private final String text;
+    private final MediaType mediaType;
+    private JsonTree json;
+    private XmlTree xml;
+    private long fingerprint;
+    private byte[] digest;
+    private boolean isJsonParsed;
+    private boolean isXmlParsed;
+    private boolean isFingerprinted;
+
+    RequestBody(final String text, final String contentType) {
+        this.text = text;
+        this.mediaType = classify(contentType);
+    }
+
+    static MediaType classify(final String contentType) {
+        if (isNotSet(contentType)) {
+            return MediaType.OTHER;
+        }
+
+        final Matcher matcher = SUB_TYPE_PATTERN.matcher(contentType);
+        final String subType = matcher.find() ? matcher.group(1) : "";
+        if (subType.equals("json")) {
+            return MediaType.JSON;
+        } else if (subType.equals("xml")) {
+            return MediaType.XML;
+        }
+
+        final String lowerContentType = toLower(contentType);
+        if (lowerContentType.contains("x-www-form-urlencoded") || lowerContentType.contains("form-data")) {
+            return MediaType.FORM;
+        }
+        return MediaType.OTHER;
+    }
+
+    String getText() {
+        return text;
+    }
+
+    MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * @return true if the body is compared with stubbed bodies structurally rather than as a string
+     */
+    boolean isStructured() {
+        return mediaType == MediaType.JSON || mediaType == MediaType.XML;
+    }
+
+    /**
+     * @return the parsed tree of a JSON body, or null if the body is not JSON or is not well-formed
+     */
+    synchronized JsonTree asJson() {
+        if (!isJsonParsed) {
+            isJsonParsed = true;
+            json = mediaType == MediaType.JSON ? JsonTree.parse(text) : null;
+        }
+        return json;
+    }
+
+    /**
+     * @return the parsed document of an XML body, or null if the body is not XML or is not well-formed
+     */
+    synchronized XmlTree asXml() {
+        if (!isXmlParsed) {
+            isXmlParsed = true;
+            xml = mediaType == MediaType.XML ? XmlTree.parse(text) : null;
+        }
+        return xml;
+    }
+
+    /**
+     * @return the 64-bit fingerprint of the body text, see {@link io.github.azagniotov.stubby4j.utils.StringUtils#calculateFingerprint(String)}
+     */
+    synchronized long getFingerprint() {
+        if (!isFingerprinted) {
+            isFingerprinted = true;
+            fingerprint = calculateFingerprint(text);
+        }
+        return fingerprint;
+    }
+
+    /**
+     * @return the SHA-256 digest of the body text. Unlike the {@link #getFingerprint() fingerprint}, two different
+     * bodies practically never share a digest, so it can stand for the body where a false equality is not acceptable
+     */
+    synchronized byte[] getDigest() {
+        if (isNull(digest)) {
+            try {
+                digest = MessageDigest.getInstance(DIGEST_ALGORITHM).digest(getBytesUtf8(text));
+            } catch (final NoSuchAlgorithmException e) {
+                // Every Java platform implementation is required to support SHA-256
+                throw new IllegalStateException(e);
+            }
+        }
+        return digest;
+    }
+}
@@ -0,0 +1,110 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import io.github.azagniotov.stubby4j.utils.ResponseTemplate;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+import static io.github.azagniotov.stubby4j.utils.FileUtils.fileToBytes;
+import static io.github.azagniotov.stubby4j.utils.ObjectUtils.isNotNull;
+
+/**
+ * A cache of response files bounded by their total size in bytes, whose path is resolved from template tokens on every response, e.g.:
+ * <code>file: ../json/users/&lt;% url.1 %&gt;.json</code>. Every resolved path is cached as a parsed
+ * {@link ResponseTemplate} together with the last modified time and size of its file.
+ * <p>
+ * A cached file is checked on disk at most once per stat interval. Once the interval has passed, a file with a
+ * different last modified time or size is read and parsed again, and a file that no longer exists is evicted.
+ * Files larger than the maximum cached file length are read on every response, and are never cached.
+ * <p>
+ * Lookups do not lock. Once the total length of the cached files grows over the maximum cached bytes, the least
+ * recently accessed files are evicted (see {@link BoundedLruMap}).
+ */
+public final class ResponseFileCache {
+
+    private final long maxCachedFileLength;
+    private final long statIntervalNanos;
+    private final BoundedLruMap<String, CachedFile> entries;
+
+    /**
+     * @param maxCachedBytes      the maximum total length of the cached files
+     * @param maxCachedFileLength the maximum length of a single cached file
+     * @param statIntervalMillis  how often a cached file is checked on disk for changes
+     */
+    public ResponseFileCache(final long maxCachedBytes, final long maxCachedFileLength, final long statIntervalMillis) {
+        this.maxCachedFileLength = Math.min(maxCachedFileLength, maxCachedBytes);
+        this.statIntervalNanos = TimeUnit.MILLISECONDS.toNanos(statIntervalMillis);
+        this.entries = new BoundedLruMap<>(maxCachedBytes);
+    }
+
+    /**
+     * @return the parsed {@link ResponseTemplate} of the file at the given resolved path, or null if there is no
+     * file at the given path
+     */
+    public ResponseTemplate get(final String resolvedPath) throws IOException {
+        final long nowNanos = System.nanoTime();
+        final CachedFile cachedFile = entries.get(resolvedPath);
+        if (isNotNull(cachedFile) && nowNanos - cachedFile.lastStatNanos < statIntervalNanos) {
+            return cachedFile.template;
+        }
+
+        final File file = new File(resolvedPath);
+        final BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        } catch (final NoSuchFileException e) {
+            entries.remove(resolvedPath);
+            return null;
+        }
+
+        final long lastModified = attributes.lastModifiedTime().toMillis();
+        if (isNotNull(cachedFile) && cachedFile.lastModified == lastModified && cachedFile.length == attributes.size()) {
+            cachedFile.lastStatNanos = nowNanos;
+            return cachedFile.template;
+        }
+
+        final ResponseTemplate template = ResponseTemplate.compile(fileToBytes(file));
+        if (attributes.size() <= maxCachedFileLength) {
+            entries.put(resolvedPath, new CachedFile(template, lastModified, attributes.size(), nowNanos));
+        } else {
+            entries.remove(resolvedPath);
+        }
+
+        return template;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    long cachedBytes() {
+        return entries.weight();
+    }
+
+    private static final class CachedFile extends BoundedLruMap.Entry {
+        private final ResponseTemplate template;
+        private final long lastModified;
+        private final long length;
+        private volatile long lastStatNanos;
+
+        private CachedFile(final ResponseTemplate template,
+                           final long lastModified,
+                           final long length,
+                           final long lastStatNanos) {
+            this.template = template;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.lastStatNanos = lastStatNanos;
+        }
+
+        @Override
+        long weight() {
+            return length;
+        }
+    }
+}
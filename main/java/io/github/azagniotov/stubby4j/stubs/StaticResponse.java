@@ -0,0 +1,111 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static io.github.azagniotov.stubby4j.utils.ObjectUtils.isNotNull;
+import static io.github.azagniotov.stubby4j.utils.StringUtils.toLower;
+
+/**
+ * A {@link StubResponse} without any template tokens, serialized once: its HTTP status, stubbed headers, body bytes
+ * and the body Content-Length. A body that is worth compressing is also gzipped once, so that it does not have to
+ * be compressed on every response to clients that accept gzip.
+ * <p>
+ * A static response is immutable and can be written by several threads at the same time.
+ */
+public final class StaticResponse {
+
+    static final int GZIP_MIN_LENGTH = 1024;
+
+    private static final String DEFAULT_CONTENT_TYPE = "text/html";
+
+    private final int status;
+    private final List<Map.Entry<String, String>> headers;
+    private final boolean isContentLengthStubbed;
+    private final byte[] body;
+    private final byte[] gzippedBody;
+
+    StaticResponse(final int status, final Map<String, String> stubbedHeaders, final byte[] body) {
+        this.status = status;
+
+        final List<Map.Entry<String, String>> headers = new ArrayList<>(stubbedHeaders.size());
+        boolean isContentLengthStubbed = false;
+        boolean isContentEncodingStubbed = false;
+        String contentType = DEFAULT_CONTENT_TYPE;
+        for (final Map.Entry<String, String> stubbedHeader : stubbedHeaders.entrySet()) {
+            headers.add(new AbstractMap.SimpleImmutableEntry<>(stubbedHeader.getKey(), stubbedHeader.getValue()));
+
+            final String headerName = toLower(stubbedHeader.getKey());
+            isContentLengthStubbed |= headerName.equals("content-length") || headerName.equals("transfer-encoding");
+            isContentEncodingStubbed |= headerName.equals("content-encoding");
+            if (headerName.equals("content-type") && isNotNull(stubbedHeader.getValue())) {
+                contentType = stubbedHeader.getValue();
+            }
+        }
+        this.headers = Collections.unmodifiableList(headers);
+        this.isContentLengthStubbed = isContentLengthStubbed;
+        this.body = body;
+        this.gzippedBody = !isContentEncodingStubbed && isCompressible(contentType) ? gzip(body) : null;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public List<Map.Entry<String, String>> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * @return true if the stubbed headers already say how the body length is delimited, i.e.: the Content-Length of
+     * the body must not be set
+     */
+    public boolean isContentLengthStubbed() {
+        return isContentLengthStubbed;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public boolean hasGzippedBody() {
+        return isNotNull(gzippedBody);
+    }
+
+    public byte[] getGzippedBody() {
+        return gzippedBody;
+    }
+
+    private static boolean isCompressible(final String contentType) {
+        final String mimeType = toLower(contentType);
+
+        return mimeType.startsWith("text/") || mimeType.contains("json") || mimeType.contains("xml")
+                || mimeType.contains("javascript") || mimeType.contains("svg");
+    }
+
+    /**
+     * @return the gzipped body, or null if the body is too short to be worth compressing or does not get shorter
+     */
+    private static byte[] gzip(final byte[] body) {
+        if (body.length < GZIP_MIN_LENGTH) {
+            return null;
+        }
+
+        final ByteArrayOutputStream gzippedBody = new ByteArrayOutputStream(body.length / 2);
+        try (final GZIPOutputStream gzipOutputStream = new GZIPOutputStream(gzippedBody)) {
+            gzipOutputStream.write(body);
+        } catch (final IOException e) {
+            // A ByteArrayOutputStream does not throw
+            return null;
+        }
+
+        return gzippedBody.size() < body.length ? gzippedBody.toByteArray() : null;
+    }
+}
@@ -14,6 +14,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import static io.github.azagniotov.generics.TypeSafeConverter.asCheckedLinkedList;
 import static io.github.azagniotov.stubby4j.stubs.StubResponse.okResponse;
+import static java.util.stream.Collectors.toCollection;
 
 
 public class StubHttpLifecycle implements ReflectableStub {
@@ -97,8 +98,30 @@ public class StubHttpLifecycle implements ReflectableStub {
         return getResponses().get(0).getResourceIDHeader();
     }
 
-    void setResourceId(final int resourceId) {
-        getResponses().forEach(response -> response.addResourceIDHeader(resourceId));
+    boolean hasResourceId(final int resourceId) {
+        final String resourceIdHeader = String.valueOf(resourceId);
+        return getResponses().stream().allMatch(response -> resourceIdHeader.equals(response.getResourceIDHeader()));
+    }
+
+    /**
+     * @return a copy of this stub, which responses carry the given resource ID header. A published stub is shared
+     * between the stub searches of incoming requests, so it is copied rather than changed
+     */
+    StubHttpLifecycle withResourceId(final int resourceId) {
+        final StubHttpLifecycle stubHttpLifecycle =
+                new StubHttpLifecycle(request, withResourceIDHeaders(response, resourceId), requestAsYAML, responseAsYAML, completeYAML);
+        stubHttpLifecycle.responseSequencedIdCounter.set(responseSequencedIdCounter.get());
+
+        return stubHttpLifecycle;
+    }
+
+    private static Object withResourceIDHeaders(final Object response, final int resourceId) {
+        if (response instanceof StubResponse) {
+            return ((StubResponse) response).withResourceIDHeader(resourceId);
+        }
+        return asCheckedLinkedList(response, StubResponse.class).stream()
+                .map(stubResponse -> stubResponse.withResourceIDHeader(resourceId))
+                .collect(toCollection(LinkedList::new));
     }
 
     /**
@@ -221,7 +244,7 @@ public class StubHttpLifecycle implements ReflectableStub {
         }
 
         public Builder withResourceId(final int resourceId) {
-            getResponses().forEach(response -> response.addResourceIDHeader(resourceId));
+            this.response = withResourceIDHeaders(response, resourceId);
 
             return this;
         }
@@ -237,12 +260,5 @@ public class StubHttpLifecycle implements ReflectableStub {
 
             return stubHttpLifecycle;
         }
-
-        private List<StubResponse> getResponses() {
-            if (response instanceof StubResponse) {
-                return new LinkedList<>(Collections.singletonList((StubResponse) response));
-            }
-            return asCheckedLinkedList(this.response, StubResponse.class);
-        }
     }
 }
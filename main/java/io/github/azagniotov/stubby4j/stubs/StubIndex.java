@@ -0,0 +1,155 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import static io.github.azagniotov.stubby4j.utils.ObjectUtils.isNotNull;
+import static io.github.azagniotov.stubby4j.utils.StringUtils.isSet;
+
+/**
+ * An immutable, pre-built lookup index over a snapshot of the loaded stubs, which narrows down the list of stubs that can potentially
+ * match an incoming request before the (expensive) {@link StubMatcher} runs.
+ * <p>
+ * Stubs are bucketed by HTTP method, and every bucket routes the incoming URL through a segment trie of the
+ * stubbed URLs (see {@link StubUrlRouter}). Stubs without a stubbed method are indexed under a wildcard method,
+ * since they match any incoming method.
+ * <p>
+ * The trie resolves literal URLs exactly, but it can only narrow down regex URLs. Those regex URL stubs that the
+ * trie returns are then checked against the incoming URL, evaluating each distinct stubbed regex once, however
+ * many stubs share it. Hence, every candidate URL matches the incoming URL, and the {@link StubMatcher} only has to
+ * evaluate the URL of a stub that matched on everything else, to capture its regex groups.
+ * <p>
+ * Regex URLs are matched within the regex step budget of the repository that built the index.
+ * <p>
+ * The index does not decide a match on its own, it only drops stubs that cannot possibly match. The returned
+ * candidates keep the order in which stubs were defined, so the first-match semantics stay the same.
+ */
+class StubIndex {
+
+    private static final String ANY_METHOD = "*";
+    private static final String CONTENT_TYPE = "content-type";
+
+    private final List<StubHttpLifecycle> stubs;
+    private final Map<String, StubUrlRouter> methodRouters;
+    private final BitSet regexUrlStubIndexes;
+    private final List<String> matchableHeaderNames;
+    private final boolean isQueryMatchable;
+    private final boolean isPostMatchable;
+    private final long regexStepBudget;
+
+    /**
+     * @param stubs           the stubs to index, in the order they were defined
+     * @param regexStepBudget the maximum number of characters a stub regex may read while matching a single incoming value
+     */
+    StubIndex(final List<StubHttpLifecycle> stubs, final long regexStepBudget) {
+        this.stubs = Collections.unmodifiableList(new ArrayList<>(stubs));
+        this.regexStepBudget = regexStepBudget;
+        this.methodRouters = new HashMap<>();
+        this.regexUrlStubIndexes = new BitSet(this.stubs.size());
+
+        final TreeSet<String> distinctHeaderNames = new TreeSet<>();
+        boolean isAnyQueryStubbed = false;
+        boolean isAnyPostStubbed = false;
+        for (int index = 0; index < this.stubs.size(); index++) {
+            final StubRequest stubbedRequest = this.stubs.get(index).getRequest();
+            distinctHeaderNames.addAll(stubbedRequest.getHeaders().keySet());
+            isAnyQueryStubbed |= !stubbedRequest.getQuery().isEmpty();
+            isAnyPostStubbed |= stubbedRequest.isPostStubbed() || !stubbedRequest.getPostMatches().isEmpty();
+            if (stubbedRequest.getCompiledRequest().getUrl().getKind() != CompiledStubRequest.ValueKind.LITERAL) {
+                regexUrlStubIndexes.set(index);
+            }
+            final List<String> stubbedMethods = stubbedRequest.getMethod().isEmpty() ?
+                    Collections.singletonList(ANY_METHOD) : stubbedRequest.getMethod();
+
+            for (final String stubbedMethod : stubbedMethods) {
+                methodRouters.computeIfAbsent(stubbedMethod, method -> new StubUrlRouter(regexStepBudget)).add(stubbedRequest.getUri(), index);
+            }
+        }
+
+        this.isQueryMatchable = isAnyQueryStubbed;
+        this.isPostMatchable = isAnyPostStubbed;
+        if (isPostMatchable) {
+            // Request body matching depends on the incoming content type
+            distinctHeaderNames.add(CONTENT_TYPE);
+        }
+
+        for (final StubbableAuthorizationType authorizationType : StubbableAuthorizationType.values()) {
+            // auth header is dealt with in StubRepository after request is matched
+            distinctHeaderNames.remove(authorizationType.asYAMLProp());
+        }
+        this.matchableHeaderNames = Collections.unmodifiableList(new ArrayList<>(distinctHeaderNames));
+    }
+
+    /**
+     * Returns stubs that can potentially match the given incoming request, in the order they were defined. The
+     * method and URL of every returned stub match the incoming request.
+     *
+     * @param assertingRequest the incoming {@link StubRequest}
+     * @return a {@link List} of candidate {@link StubHttpLifecycle stubs}, never null
+     */
+    List<StubHttpLifecycle> findCandidates(final StubRequest assertingRequest) {
+        final String assertingUrl = assertingRequest.getUri();
+        final String[] assertingUrlSegments = isSet(assertingUrl) ? StubUrlRouter.splitPath(assertingUrl) : null;
+        final BitSet candidateIndexes = new BitSet(stubs.size());
+
+        collectCandidates(methodRouters.get(ANY_METHOD), assertingUrl, assertingUrlSegments, candidateIndexes);
+        for (final String assertingMethod : assertingRequest.getMethod()) {
+            collectCandidates(methodRouters.get(assertingMethod), assertingUrl, assertingUrlSegments, candidateIndexes);
+        }
+
+        final Map<String, Boolean> regexUrlOutcomes = new HashMap<>();
+        final List<StubHttpLifecycle> candidates = new ArrayList<>(candidateIndexes.cardinality());
+        for (int index = candidateIndexes.nextSetBit(0); index >= 0; index = candidateIndexes.nextSetBit(index + 1)) {
+            final StubHttpLifecycle candidate = stubs.get(index);
+            if (regexUrlStubIndexes.get(index)) {
+                final CompiledStubRequest.CompiledValue stubbedUrl = candidate.getRequest().getCompiledRequest().getUrl();
+                if (!regexUrlOutcomes.computeIfAbsent(stubbedUrl.getValue(), regex -> stubbedUrl.matches(assertingUrl, regexStepBudget))) {
+                    continue;
+                }
+            }
+            candidates.add(candidate);
+        }
+
+        return candidates;
+    }
+
+    List<StubHttpLifecycle> getStubs() {
+        return stubs;
+    }
+
+    /**
+     * @return sorted names of the request headers that any of the indexed stubs can match on
+     */
+    List<String> getMatchableHeaderNames() {
+        return matchableHeaderNames;
+    }
+
+    /**
+     * @return true if any of the indexed stubs matches on query params, otherwise the query of an incoming request
+     * can not affect the search outcome
+     */
+    boolean isQueryMatchable() {
+        return isQueryMatchable;
+    }
+
+    /**
+     * @return true if any of the indexed stubs matches on the request body, otherwise the body of an incoming
+     * request can not affect the search outcome
+     */
+    boolean isPostMatchable() {
+        return isPostMatchable;
+    }
+
+    private static void collectCandidates(final StubUrlRouter methodRouter, final String assertingUrl,
+                                          final String[] assertingUrlSegments, final BitSet candidateIndexes) {
+        if (isNotNull(methodRouter)) {
+            methodRouter.collectCandidates(assertingUrl, assertingUrlSegments, candidateIndexes);
+        }
+    }
+}
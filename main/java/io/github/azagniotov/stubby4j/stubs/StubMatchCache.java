@@ -0,0 +1,193 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import io.github.azagniotov.stubby4j.annotations.VisibleForTesting;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+import static io.github.azagniotov.stubby4j.utils.ObjectUtils.isNull;
+
+/**
+ * A size-bounded cache of stub search outcomes, keyed on a fingerprint of the incoming request: HTTP method,
+ * URL, query if any loaded stub matches on it, the values of the headers that any loaded stub matches on and a SHA-256 digest of the request body,
+ * if any loaded stub matches on it.
+ * <p>
+ * Both matches and misses are cached. A cached match is only a hint, the caller still has to match the incoming
+ * request against the cached stub to capture its regex groups. A cached miss is final, which is why the body is
+ * keyed on a digest rather than on a 64-bit hash, which two different bodies of the same length may share.
+ * <p>
+ * Matches and misses are kept apart, each bounded by its own capacity and looked up misses first. Requests that no
+ * stub matches, e.g.: from health checkers or misconfigured clients, often come with ever changing URLs or query
+ * params, and must not push the cached matches out.
+ * <p>
+ * Every entry remembers the {@link StubIndex} snapshot it was computed against, and is never served for any other
+ * snapshot. Publishing a new snapshot therefore invalidates all existing entries atomically, even the ones that
+ * are being added concurrently by searches that are still running against the previous snapshot.
+ * <p>
+ * Lookups do not lock. Once matches or misses grow over their capacity, their least recently accessed entries are
+ * evicted (see {@link BoundedLruMap}).
+ */
+class StubMatchCache {
+
+    private final BoundedLruMap<Fingerprint, CachedMatch> cachedMatches;
+    private final BoundedLruMap<Fingerprint, CachedMatch> cachedMisses;
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    StubMatchCache(final int matchCapacity, final int missCapacity) {
+        this.cachedMatches = new BoundedLruMap<>(matchCapacity);
+        this.cachedMisses = new BoundedLruMap<>(missCapacity);
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+    }
+
+    /**
+     * @return a {@link CachedMatch} computed against the given snapshot, or null if there is none
+     */
+    CachedMatch get(final StubIndex snapshot, final StubRequest assertingRequest) {
+        final Fingerprint fingerprint = new Fingerprint(snapshot, assertingRequest);
+        CachedMatch cachedMatch = get(cachedMisses, fingerprint, snapshot);
+        if (isNull(cachedMatch)) {
+            cachedMatch = get(cachedMatches, fingerprint, snapshot);
+        }
+
+        if (isNull(cachedMatch)) {
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+
+        return cachedMatch;
+    }
+
+    /**
+     * @param match the matched {@link StubHttpLifecycle}, or null to cache a miss
+     */
+    void put(final StubIndex snapshot, final StubRequest assertingRequest, final StubHttpLifecycle match) {
+        final CachedMatch cachedMatch = new CachedMatch(snapshot, match);
+        final BoundedLruMap<Fingerprint, CachedMatch> region = cachedMatch.isMiss() ? cachedMisses : cachedMatches;
+        region.put(new Fingerprint(snapshot, assertingRequest), cachedMatch);
+    }
+
+    void clear() {
+        cachedMatches.clear();
+        cachedMisses.clear();
+    }
+
+    int size() {
+        return cachedMatches.size() + cachedMisses.size();
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    double getHitRatio() {
+        final long hits = getHits();
+        final long lookups = hits + getMisses();
+
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("matches=%s/%s, misses=%s/%s, hits=%s, lookup misses=%s, hit ratio=%.2f%%",
+                cachedMatches.size(), cachedMatches.capacity(), cachedMisses.size(), cachedMisses.capacity(),
+                getHits(), getMisses(), getHitRatio() * 100);
+    }
+
+    private static CachedMatch get(final BoundedLruMap<Fingerprint, CachedMatch> region, final Fingerprint fingerprint, final StubIndex snapshot) {
+        final CachedMatch cachedMatch = region.get(fingerprint);
+
+        return isNull(cachedMatch) || cachedMatch.snapshot != snapshot ? null : cachedMatch;
+    }
+
+    static final class CachedMatch extends BoundedLruMap.Entry {
+        private final StubIndex snapshot;
+        private final StubHttpLifecycle match;
+
+        private CachedMatch(final StubIndex snapshot, final StubHttpLifecycle match) {
+            this.snapshot = snapshot;
+            this.match = match;
+        }
+
+        boolean isMiss() {
+            return isNull(match);
+        }
+
+        StubHttpLifecycle getMatch() {
+            return match;
+        }
+    }
+
+    @VisibleForTesting
+    static final class Fingerprint {
+        private static final byte[] NO_BODY_DIGEST = new byte[]{};
+
+        private final List<String> method;
+        private final String url;
+        private final Map<String, String> query;
+        private final String[] headerValues;
+        private final byte[] bodyDigest;
+        private final int hashCode;
+
+        Fingerprint(final StubIndex snapshot, final StubRequest assertingRequest) {
+            final List<String> matchableHeaderNames = snapshot.getMatchableHeaderNames();
+
+            this.method = assertingRequest.getMethod();
+            this.url = assertingRequest.getUri();
+            // Neither the query nor the request body is read at all, unless some stub can match on it
+            this.query = snapshot.isQueryMatchable() ? assertingRequest.getQuery() : Collections.emptyMap();
+            this.headerValues = new String[matchableHeaderNames.size()];
+            if (headerValues.length > 0) {
+                final Map<String, String> headers = assertingRequest.getHeaders();
+                for (int index = 0; index < headerValues.length; index++) {
+                    headerValues[index] = headers.get(matchableHeaderNames.get(index));
+                }
+            }
+            final RequestBody postBody = snapshot.isPostMatchable() ? assertingRequest.getRequestBody() : null;
+            this.bodyDigest = isNull(postBody) ? NO_BODY_DIGEST : postBody.getDigest();
+
+            int result = method.hashCode();
+            result = 31 * result + Objects.hashCode(url);
+            result = 31 * result + query.hashCode();
+            result = 31 * result + Arrays.hashCode(headerValues);
+            result = 31 * result + Arrays.hashCode(bodyDigest);
+            this.hashCode = result;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Fingerprint)) {
+                return false;
+            }
+
+            final Fingerprint that = (Fingerprint) o;
+
+            return hashCode == that.hashCode &&
+                    Arrays.equals(bodyDigest, that.bodyDigest) &&
+                    Objects.equals(url, that.url) &&
+                    method.equals(that.method) &&
+                    query.equals(that.query) &&
+                    Arrays.equals(headerValues, that.headerValues);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
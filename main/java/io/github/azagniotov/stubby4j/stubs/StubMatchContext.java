@@ -0,0 +1,106 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import org.w3c.dom.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+
+import static io.github.azagniotov.stubby4j.utils.ObjectUtils.isNull;
+import static io.github.azagniotov.stubby4j.utils.StringUtils.buildToken;
+
+/**
+ * Holds the state of a stub search for a single incoming request, it is never shared between requests.
+ * <p>
+ * While a candidate stub is evaluated, successful regex matches are only recorded by reference. Regex groups are
+ * materialized into template tokens just once, for the stub that fully matched, so candidates that fail to match
+ * do not allocate any regex group entries and do not leak their captured groups into the response.
+ * <p>
+ * A match context is confined to one thread, so it also owns the parsed document of an incoming XML body, which every
+ * candidate evaluated in the context diffs against (see {@link XmlTree}).
+ */
+final class StubMatchContext {
+
+    private final List<String> templateTokenNames;
+    private final List<Matcher> matchers;
+    private final List<String> literals;
+    private final long regexStepBudget;
+    private XmlTree xmlBody;
+    private Document xmlBodyDocument;
+
+    /**
+     * @param regexStepBudget the maximum number of characters a stub regex may read while matching a single incoming value
+     */
+    StubMatchContext(final long regexStepBudget) {
+        this.templateTokenNames = new ArrayList<>();
+        this.matchers = new ArrayList<>();
+        this.literals = new ArrayList<>();
+        this.regexStepBudget = regexStepBudget;
+    }
+
+    long getRegexStepBudget() {
+        return regexStepBudget;
+    }
+
+    void reset() {
+        templateTokenNames.clear();
+        matchers.clear();
+        literals.clear();
+    }
+
+    void recordRegexMatch(final String templateTokenName, final Matcher matcher) {
+        templateTokenNames.add(templateTokenName);
+        matchers.add(matcher);
+        literals.add(null);
+    }
+
+    /**
+     * Records a match on a stubbed value without regex meta characters. Had the value been evaluated as a regex,
+     * the whole value would have been captured as group(0), so it is exposed the same way.
+     */
+    void recordLiteralMatch(final String templateTokenName, final String literal) {
+        templateTokenNames.add(templateTokenName);
+        matchers.add(null);
+        literals.add(literal);
+    }
+
+    /**
+     * @return the document of the given incoming XML body that is owned by this context, it is taken from the body
+     * once and kept for the next candidates, since the body is the same for every candidate of the incoming request
+     */
+    Document getXmlBodyDocument(final XmlTree xmlBody) {
+        if (this.xmlBody != xmlBody) {
+            this.xmlBody = xmlBody;
+            this.xmlBodyDocument = xmlBody.takeDocument();
+        }
+        return xmlBodyDocument;
+    }
+
+    Map<String, String> captureRegexGroups() {
+        final Map<String, String> regexGroups = new TreeMap<>();
+        for (int index = 0; index < matchers.size(); index++) {
+            final String templateTokenName = templateTokenNames.get(index);
+            final Matcher matcher = matchers.get(index);
+
+            if (isNull(matcher)) {
+                regexGroups.put(buildToken(templateTokenName, 0), literals.get(index));
+                continue;
+            }
+
+            // group(0) holds the full regex match
+            regexGroups.put(buildToken(templateTokenName, 0), matcher.group(0));
+
+            //Matcher.groupCount() returns the number of explicitly defined capturing groups in the pattern regardless
+            // of whether the capturing groups actually participated in the match. It does not include matcher.group(0)
+            final int groupCount = matcher.groupCount();
+            for (int idx = 1; idx <= groupCount; idx++) {
+                regexGroups.put(buildToken(templateTokenName, idx), matcher.group(idx));
+            }
+        }
+
+        return regexGroups;
+    }
+}
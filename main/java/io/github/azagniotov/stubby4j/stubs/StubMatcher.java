@@ -1,199 +1,291 @@
 package io.github.azagniotov.stubby4j.stubs;
 
 
-import io.github.azagniotov.stubby4j.annotations.VisibleForTesting;
 import io.github.azagniotov.stubby4j.cli.ANSITerminal;
+import io.github.azagniotov.stubby4j.stubs.CompiledStubRequest.CompiledValue;
 import io.github.azagniotov.stubby4j.common.Common;
-import org.custommonkey.xmlunit.Diff;
-import org.custommonkey.xmlunit.ElementNameAndAttributeQualifier;
-import org.json.JSONException;
-import org.skyscreamer.jsonassert.JSONCompare;
-import org.skyscreamer.jsonassert.JSONCompareMode;
-import org.xml.sax.SAXException;
-
-import java.io.IOException;
-import java.util.HashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
-import static io.github.azagniotov.stubby4j.utils.StringUtils.escapeSpecialRegexCharacters;
+import static io.github.azagniotov.stubby4j.utils.ObjectUtils.isNotNull;
+import static io.github.azagniotov.stubby4j.utils.ObjectUtils.isNull;
 import static io.github.azagniotov.stubby4j.utils.StringUtils.isNotSet;
 import static io.github.azagniotov.stubby4j.utils.StringUtils.isSet;
-import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.HEADERS;
-import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.POST;
-import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.QUERY;
-import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.URL;
 
 class StubMatcher {
 
-    private final Map<String, String> regexGroups;
-    private static final Pattern SUB_TYPE_PATTERN = Pattern.compile("/(?:.*\\+)?(\\w*);?");
-
-    StubMatcher(final Map<String, String> regexGroups) {
-        this.regexGroups = regexGroups;
-    }
+    private static final int COST_NONE = 0;
+    private static final int COST_SET_MEMBERSHIP = 1;
+    private static final int COST_EXACT_STRING = 2;
+    private static final int COST_REGEX = 3;
+    private static final int COST_STRUCTURED_BODY = 4;
 
-    boolean matches(final StubRequest stubbedRequest, final StubRequest assertingRequest) {
-        if (!urlsMatch(stubbedRequest.getUri(), assertingRequest.getUri())) {
-            ANSITerminal.error(String.format("Failed to match on URL [%s] WITH [%s]", stubbedRequest.getUri(), assertingRequest.getUri()));
-            return false;
-        }
-        ANSITerminal.info(String.format("Matched on URL [%s] WITH [%s]", stubbedRequest.getUri(), assertingRequest.getUri()));
+    private final StubMatchContext matchContext;
+    private final boolean isUrlMatched;
 
-        if (!listsIntersect(stubbedRequest.getMethod(), assertingRequest.getMethod())) {
-            ANSITerminal.error(String.format("Failed to match on METHOD [%s] WITH [%s]", stubbedRequest.getMethod(), assertingRequest.getMethod()));
-            return false;
-        }
-        ANSITerminal.info(String.format("Matched on METHOD [%s] WITH [%s]", stubbedRequest.getMethod(), assertingRequest.getMethod()));
 
-        if (!postBodiesMatch(stubbedRequest.isPostStubbed(), stubbedRequest.getPostBody(), assertingRequest)) {
-            ANSITerminal.error(String.format("Failed to match on POST BODY [%s] WITH [%s]", stubbedRequest.getPostBody(), assertingRequest.getPostBody()));
-            return false;
-        }
-        ANSITerminal.info(String.format("Matched on POST BODY [%s] WITH [%s]", stubbedRequest.getPostBody(), assertingRequest.getPostBody()));
+    /**
+     * The criteria a stubbed request is matched on, each one knows how to estimate its matching cost for a stub
+     */
+    enum Criterion {
+        METHOD {
+            @Override
+            int estimateCost(final StubRequest stubbedRequest) {
+                return stubbedRequest.getMethod().isEmpty() ? COST_NONE : COST_SET_MEMBERSHIP;
+            }
+        },
+        URL {
+            @Override
+            int estimateCost(final StubRequest stubbedRequest) {
+                return estimateStringsCost(isSet(stubbedRequest.getUri()) ?
+                        Collections.singletonList(stubbedRequest.getUri()) : Collections.emptyList());
+            }
+        },
+        HEADERS {
+            @Override
+            int estimateCost(final StubRequest stubbedRequest) {
+                return estimateStringsCost(CompiledStubRequest.withoutAuthorizationHeaders(stubbedRequest.getHeaders()).values());
+            }
+        },
+        QUERY {
+            @Override
+            int estimateCost(final StubRequest stubbedRequest) {
+                return estimateStringsCost(stubbedRequest.getQuery().values());
+            }
+        },
+        POST {
+            @Override
+            int estimateCost(final StubRequest stubbedRequest) {
+                if (!stubbedRequest.getPostMatches().isEmpty()) {
+                    // The body is scanned for the post_matches predicates
+                    return COST_STRUCTURED_BODY;
+                }
+                if (!stubbedRequest.isPostStubbed()) {
+                    return COST_NONE;
+                }
+                final String stubbedPostBody = stubbedRequest.getPostBody().trim();
+                if (stubbedPostBody.startsWith("{") || stubbedPostBody.startsWith("[") || stubbedPostBody.startsWith("<")) {
+                    // Most likely JSON or XML, which may be compared structurally
+                    return COST_STRUCTURED_BODY;
+                }
+                if (!stubbedRequest.isPostRegex()) {
+                    return COST_EXACT_STRING;
+                }
+                return estimateStringsCost(Collections.singletonList(stubbedPostBody));
+            }
+        };
 
-        if (!headersMatch(stubbedRequest.getHeaders(), assertingRequest.getHeaders())) {
-            ANSITerminal.error(String.format("Failed to match on HEADERS [%s] WITH [%s]", stubbedRequest.getHeaders(), assertingRequest.getHeaders()));
-            return false;
-        }
-        ANSITerminal.info(String.format("Matched on HEADERS [%s] WITH [%s]", stubbedRequest.getHeaders(), assertingRequest.getHeaders()));
+        abstract int estimateCost(final StubRequest stubbedRequest);
+    }
 
-        if (!queriesMatch(stubbedRequest.getQuery(), assertingRequest.getQuery())) {
-            ANSITerminal.error(String.format("Failed to match on QUERY [%s] WITH [%s]", stubbedRequest.getQuery(), assertingRequest.getQuery()));
-            return false;
-        }
-        ANSITerminal.info(String.format("Matched on QUERY [%s] WITH [%s]", stubbedRequest.getQuery(), assertingRequest.getQuery()));
+    /**
+     * A {@link StubMatcher} is scoped to a single incoming request and can be reused across all candidate stubs
+     * evaluated for that request, it must not be shared between requests.
+     */
+    StubMatcher() {
+        this(false, RegexParser.DEFAULT_STEP_BUDGET);
+    }
 
-        return true;
+    /**
+     * @param isUrlMatched    true if the asserting URL is known to match the URL of every stubbed request this matcher
+     *                        evaluates, e.g.: of the candidates found by {@link StubIndex}. The URL is then evaluated
+     *                        last, only for a stubbed request that matched on everything else, to capture its regex
+     *                        groups
+     * @param regexStepBudget the maximum number of characters a stub regex may read while matching a single incoming
+     *                        value
+     */
+    StubMatcher(final boolean isUrlMatched, final long regexStepBudget) {
+        this.matchContext = new StubMatchContext(regexStepBudget);
+        this.isUrlMatched = isUrlMatched;
     }
 
-    private boolean urlsMatch(final String stubbedUrl, final String assertingUrl) {
-        return stringsMatch(stubbedUrl, assertingUrl, URL.toString());
+    /**
+     * Creates a {@link StubMatcher} with its own match context, that can evaluate candidates of the same asserting
+     * request on another thread. The asserting request reads its headers, query and body on demand under its own
+     * monitor, so the same asserting request can be matched on several threads at once.
+     */
+    StubMatcher fork() {
+        return new StubMatcher(isUrlMatched, matchContext.getRegexStepBudget());
     }
 
-    @VisibleForTesting
-    boolean postBodiesMatch(final boolean isPostStubbed, final String stubbedPostBody, final StubRequest assertingRequest) {
-        if (isPostStubbed) {
-            final String assertingPostBody = assertingRequest.getPostBody();
-            if (isNotSet(assertingPostBody)) {
+    /**
+     * Matches the asserting request against the stubbed one, criterion by criterion. The criteria are evaluated in
+     * the order of their estimated cost for the given stubbed request (see {@link #orderByEstimatedCost(StubRequest)}),
+     * so that a non-matching stub gets rejected as cheaply as possible.
+     * <p>
+     * Every criterion reads what it needs from the asserting request when it is evaluated, so the headers, query and
+     * body of an incoming request are only read once a candidate stub matches on them (see {@link IncomingStubRequest}).
+     */
+    boolean matches(final StubRequest stubbedRequest, final StubRequest assertingRequest) {
+        matchContext.reset();
+
+        final CompiledStubRequest compiledRequest = stubbedRequest.getCompiledRequest();
+        for (final Criterion criterion : compiledRequest.getMatchCriteria()) {
+            if (criterion == Criterion.URL && isUrlMatched) {
+                continue;
+            }
+            if (!matches(criterion, compiledRequest, assertingRequest)) {
                 return false;
             }
+        }
 
-            final String assertingContentType = assertingRequest.getHeaders().get("content-type");
+        return !isUrlMatched || matches(Criterion.URL, compiledRequest, assertingRequest);
+    }
 
-            if (isSet(assertingContentType)) {
-                final Matcher matcher = SUB_TYPE_PATTERN.matcher(assertingContentType);
-                if (matcher.find()) {
-                    final String subType = matcher.group(1);
+    private boolean matches(final Criterion criterion, final CompiledStubRequest stubbedRequest, final StubRequest assertingRequest) {
+        switch (criterion) {
+            case METHOD:
+                final List<String> assertingMethod = assertingRequest.getMethod();
+                if (!stubbedRequest.methodsMatch(assertingMethod)) {
+                    ANSITerminal.error(String.format("Failed to match on METHOD [%s] WITH [%s]", stubbedRequest.getMethod(), assertingMethod));
+                    return false;
+                }
+                ANSITerminal.info(String.format("Matched on METHOD [%s] WITH [%s]", stubbedRequest.getMethod(), assertingMethod));
+                return true;
 
-                    if ("json".equals(subType)) {
-                        return jsonMatch(stubbedPostBody, assertingPostBody);
-                    } else if ("xml".equals(subType)) {
-                        return xmlMatch(stubbedPostBody, assertingPostBody);
-                    }
+            case URL:
+                final String assertingUrl = assertingRequest.getUri();
+                if (!stubbedRequest.getUrl().matches(assertingUrl, matchContext)) {
+                    ANSITerminal.error(String.format("Failed to match on URL [%s] WITH [%s]", stubbedRequest.getUrl(), assertingUrl));
+                    return false;
                 }
-            }
+                ANSITerminal.info(String.format("Matched on URL [%s] WITH [%s]", stubbedRequest.getUrl(), assertingUrl));
+                return true;
 
-            return stringsMatch(stubbedPostBody, assertingPostBody, POST.toString());
-        }
+            case HEADERS:
+                if (stubbedRequest.getHeaders().isEmpty()) {
+                    // The headers are not read at all
+                    return true;
+                }
+                final Map<String, String> assertingHeaders = assertingRequest.getHeaders();
+                if (!stubbedRequest.getHeaders().matches(assertingHeaders, matchContext)) {
+                    ANSITerminal.error(String.format("Failed to match on HEADERS [%s] WITH [%s]", stubbedRequest.getHeaders(), assertingHeaders));
+                    return false;
+                }
+                ANSITerminal.info(String.format("Matched on HEADERS [%s] WITH [%s]", stubbedRequest.getHeaders(), assertingHeaders));
+                return true;
+
+            case QUERY:
+                if (stubbedRequest.getQuery().isEmpty()) {
+                    // The query is not read at all
+                    return true;
+                }
+                final Map<String, String> assertingQuery = assertingRequest.getQuery();
+                if (!stubbedRequest.getQuery().matches(assertingQuery, matchContext)) {
+                    ANSITerminal.error(String.format("Failed to match on QUERY [%s] WITH [%s]", stubbedRequest.getQuery(), assertingQuery));
+                    return false;
+                }
+                ANSITerminal.info(String.format("Matched on QUERY [%s] WITH [%s]", stubbedRequest.getQuery(), assertingQuery));
+                return true;
 
-        return true;
+            default:
+                if (!stubbedRequest.isPostStubbed() && stubbedRequest.getPostPredicates().isEmpty()) {
+                    // The body is not read at all
+                    return true;
+                }
+                final RequestBody assertingBody = assertingRequest.getRequestBody();
+                final String assertingPostBody = assertingBody.getText();
+                if (!postBodiesMatch(stubbedRequest, assertingBody)) {
+                    ANSITerminal.error(String.format("Failed to match on POST BODY [%s] WITH [%s]", stubbedRequest.getPost(), assertingPostBody));
+                    return false;
+                }
+                if (!BodyPredicate.allMatch(stubbedRequest.getPostPredicates(), assertingPostBody)) {
+                    ANSITerminal.error(String.format("Failed to match on POST BODY PREDICATES %s WITH [%s]", stubbedRequest.getPostPredicates(), assertingPostBody));
+                    return false;
+                }
+                ANSITerminal.info(String.format("Matched on POST BODY [%s] WITH [%s]", stubbedRequest.getPost(), assertingPostBody));
+                return true;
+        }
     }
 
-    private boolean queriesMatch(final Map<String, String> stubbedQuery, final Map<String, String> assertingQuery) {
-        return mapsMatch(stubbedQuery, assertingQuery, QUERY.toString());
+    /**
+     * Orders the match criteria of the given stubbed request by their estimated cost, cheapest first. Criteria with
+     * the same estimated cost keep their {@link Criterion declaration order}. Method set membership and exact string
+     * comparisons go first, regex evaluation comes next, and JSON or XML body comparisons always come last.
+     *
+     * @param stubbedRequest the stubbed {@link StubRequest}
+     * @return an unmodifiable {@link List} of all {@link Criterion criteria}, ordered by estimated cost
+     */
+    static List<Criterion> orderByEstimatedCost(final StubRequest stubbedRequest) {
+        final List<Criterion> criteria = new ArrayList<>(Arrays.asList(Criterion.values()));
+        criteria.sort(Comparator.comparingInt(criterion -> criterion.estimateCost(stubbedRequest)));
+
+        return Collections.unmodifiableList(criteria);
     }
 
-    private boolean headersMatch(final Map<String, String> stubbedHeaders, final Map<String, String> assertingHeaders) {
-        final Map<String, String> stubbedHeadersCopy = new HashMap<>(stubbedHeaders);
-        for (final StubbableAuthorizationType authorizationType : StubbableAuthorizationType.values()) {
-            // auth header is dealt with in StubRepository after request is matched
-            stubbedHeadersCopy.remove(authorizationType.asYAMLProp());
+    private static int estimateStringsCost(final Collection<String> stubbedValues) {
+        for (final String stubbedValue : stubbedValues) {
+            if (isSet(stubbedValue) && !RegexParser.isLiteral(stubbedValue) && isNull(CompiledValue.literalPrefixOf(stubbedValue))) {
+                return COST_REGEX;
+            }
         }
-        return mapsMatch(stubbedHeadersCopy, assertingHeaders, HEADERS.toString());
+        return stubbedValues.isEmpty() ? COST_NONE : COST_EXACT_STRING;
     }
 
-    @VisibleForTesting
-    boolean mapsMatch(final Map<String, String> stubbedMappings, final Map<String, String> assertingMappings, final String mapName) {
-        if (stubbedMappings.isEmpty()) {
+    private boolean postBodiesMatch(final CompiledStubRequest stubbedRequest, final RequestBody assertingBody) {
+        if (!stubbedRequest.isPostStubbed()) {
             return true;
-        } else if (assertingMappings.isEmpty()) {
-            return false;
         }
 
-        final Map<String, String> stubbedMappingsCopy = new HashMap<>(stubbedMappings);
-        final Map<String, String> assertingMappingsCopy = new HashMap<>(assertingMappings);
-
-        for (final Map.Entry<String, String> stubbedMappingEntry : stubbedMappingsCopy.entrySet()) {
-            final boolean containsRequiredParam = assertingMappingsCopy.containsKey(stubbedMappingEntry.getKey());
-            if (!containsRequiredParam) {
-                return false;
-            } else {
-                final String assertingValue = assertingMappingsCopy.get(stubbedMappingEntry.getKey());
-                final String templateTokenName = String.format("%s.%s", mapName, stubbedMappingEntry.getKey());
-
-                if (!stringsMatch(stubbedMappingEntry.getValue(), assertingValue, templateTokenName)) {
-                    return false;
-                }
-            }
+        final String assertingPostBody = assertingBody.getText();
+        if (isNotSet(assertingPostBody)) {
+            return false;
         }
 
-        return true;
-    }
-
-    @VisibleForTesting
-    boolean stringsMatch(final String stubbedValue, final String assertingValue, final String templateTokenName) {
-        if (isNotSet(stubbedValue)) {
-            return true;
-        } else if (isNotSet(assertingValue)) {
+        // JSON and XML bodies are compared structurally, every other body is compared as a string. The asserting body is
+        // fingerprinted on first use, i.e.: only when some loaded stub matches on a literal post
+        if (stubbedRequest.isPostFingerprinted() && !assertingBody.isStructured()
+                && stubbedRequest.getPostFingerprint() != assertingBody.getFingerprint()) {
+            // Literal bodies with different fingerprints can not be equal
             return false;
         }
-        return regexMatch(stubbedValue, assertingValue, templateTokenName) || stubbedValue.equals(assertingValue);
-    }
 
-    private boolean regexMatch(final String stubbedValue, final String assertingValue, final String templateTokenName) {
-        return RegexParser.INSTANCE.match(stubbedValue, assertingValue, templateTokenName, regexGroups);
+        if (assertingBody.getMediaType() == RequestBody.MediaType.JSON) {
+            return jsonMatch(stubbedRequest, assertingBody);
+        } else if (assertingBody.getMediaType() == RequestBody.MediaType.XML) {
+            return xmlMatch(stubbedRequest, assertingBody);
+        }
+
+        return stubbedRequest.getPost().matches(assertingPostBody, matchContext);
     }
 
-    @VisibleForTesting
-    boolean listsIntersect(final List<String> stubbedArray, final List<String> assertingArray) {
-        if (stubbedArray.isEmpty()) {
-            return true;
-        } else if (!assertingArray.isEmpty()) {
-            for (final String entry : assertingArray) {
-                if (stubbedArray.contains(entry)) {
-                    return true;
-                }
-            }
-        }
-        return false;
+    /**
+     * @return regex groups captured by the stub that was last evaluated by {@link #matches(StubRequest, StubRequest)}
+     */
+    Map<String, String> captureRegexGroups() {
+        return matchContext.captureRegexGroups();
     }
 
-    private boolean jsonMatch(final String stubbedJson, final String assertingJson) {
-        try {
-            boolean passed = JSONCompare.compareJSON(stubbedJson, assertingJson, JSONCompareMode.NON_EXTENSIBLE).passed();
-            if (passed) {
+    private boolean jsonMatch(final CompiledStubRequest stubbedRequest, final RequestBody assertingBody) {
+        final JsonTree stubbedJson = stubbedRequest.getJsonPost();
+        if (isNotNull(stubbedJson)) {
+            // Parsed on first use and shared with the other candidates, even the ones evaluated on other threads
+            final JsonTree assertingJson = assertingBody.asJson();
+            if (isNotNull(assertingJson) && stubbedJson.matches(assertingJson)) {
                 return true;
-            } else {
-                final String escapedStubbedPostBody = escapeSpecialRegexCharacters(stubbedJson);
-                return stringsMatch(escapedStubbedPostBody, assertingJson, POST.toString());
             }
-        } catch (final JSONException e) {
-            final String escapedStubbedPostBody = escapeSpecialRegexCharacters(stubbedJson);
-            return stringsMatch(escapedStubbedPostBody, assertingJson, POST.toString());
         }
+        // Either of the bodies is not a well-formed JSON, or they differ structurally, e.g.: the stubbed JSON has regexes
+        return stubbedRequest.getEscapedPost().matches(assertingBody.getText(), matchContext);
     }
 
-    private boolean xmlMatch(final String stubbedXml, final String assertingXml) {
-        try {
-            final Diff diff = new Diff(stubbedXml, assertingXml);
-            diff.overrideElementQualifier(new ElementNameAndAttributeQualifier());
-
-            return (diff.similar() || diff.identical());
-        } catch (SAXException | IOException e) {
-            return stringsMatch(stubbedXml, assertingXml, POST.toString());
+    private boolean xmlMatch(final CompiledStubRequest stubbedRequest, final RequestBody assertingBody) {
+        final XmlTree stubbedXml = stubbedRequest.getXmlPost();
+        if (isNotNull(stubbedXml)) {
+            // Parsed on first use and shared with the other candidates, even the ones evaluated on other threads. The
+            // parsed document itself is only read through the match context, which is confined to this thread
+            final XmlTree assertingXml = assertingBody.asXml();
+            if (isNotNull(assertingXml)) {
+                return stubbedXml.matches(assertingXml, () -> matchContext.getXmlBodyDocument(assertingXml));
+            }
         }
+        // Either of the bodies is not a well-formed XML, e.g.: the stubbed XML has regexes
+        return stubbedRequest.getPost().matches(assertingBody.getText(), matchContext);
     }
 }
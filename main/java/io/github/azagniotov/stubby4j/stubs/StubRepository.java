@@ -13,7 +13,6 @@ import javax.servlet.http.HttpServletRequest;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -25,35 +24,73 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static io.github.azagniotov.stubby4j.stubs.StubResponse.notFoundResponse;
 import static io.github.azagniotov.stubby4j.stubs.StubResponse.redirectResponse;
 import static io.github.azagniotov.stubby4j.stubs.StubResponse.unauthorizedResponse;
-import static io.github.azagniotov.stubby4j.utils.CollectionUtils.constructParamMap;
 import static io.github.azagniotov.stubby4j.utils.ConsoleUtils.logAssertingRequest;
-import static io.github.azagniotov.stubby4j.utils.HandlerUtils.extractPostRequestBody;
 import static io.github.azagniotov.stubby4j.utils.ObjectUtils.isNotNull;
 import static io.github.azagniotov.stubby4j.utils.ReflectionUtils.injectObjectFields;
-import static io.github.azagniotov.stubby4j.utils.StringUtils.toLower;
 import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.BODY;
-import static java.util.Collections.list;
 
 public class StubRepository {
 
+    private static final int MATCH_CACHE_CAPACITY = 4096;
+    private static final int MISS_CACHE_CAPACITY = 4096;
+    private static final long RESPONSE_FILE_MAX_CACHED_LENGTH = 1024 * 1024;
+    private static final long RESPONSE_FILE_STAT_INTERVAL_MILLIS = 1000;
+
+    public static final int PARALLEL_MATCHING_DISABLED = Integer.MAX_VALUE;
+    public static final long DEFAULT_REGEX_STEP_BUDGET = RegexParser.DEFAULT_STEP_BUDGET;
+    public static final long DEFAULT_RESPONSE_FILE_CACHE_BYTES = 64L * 1024 * 1024;
+
     private final File configFile;
-    private final List<StubHttpLifecycle> stubs;
     private final Future<List<StubHttpLifecycle>> stubLoadComputation;
     private final StubbyHttpTransport stubbyHttpTransport;
     private final ConcurrentHashMap<String, AtomicLong> resourceStats;
-    private final ConcurrentHashMap<String, StubHttpLifecycle> matchedStubsCache;
+    private final StubMatchCache matchCache;
+    private final int parallelMatchingThreshold;
+    // Shared by all stubs, a cached file is validated against its last modified time rather than a stubs reload
+    private final ResponseFileCache responseFileCache;
+    private final long regexStepBudget;
+    private final long largeFileThreshold;
+
+    // Immutable snapshot of the loaded stubs, replaced as a whole on every stub mutation. Readers never lock,
+    // while mutators are serialized on the repository monitor so that no concurrent update is lost
+    private final AtomicReference<StubIndex> stubIndex;
 
     public StubRepository(final File configFile, final Future<List<StubHttpLifecycle>> stubLoadComputation) {
-        this.stubs = new ArrayList<>();
+        this(configFile, stubLoadComputation, PARALLEL_MATCHING_DISABLED, DEFAULT_REGEX_STEP_BUDGET, DEFAULT_RESPONSE_FILE_CACHE_BYTES,
+                StubResponse.DEFAULT_LARGE_FILE_THRESHOLD);
+    }
+
+    /**
+     * @param parallelMatchingThreshold the minimal number of candidate stubs for an incoming request, from which the
+     *                                  candidates are evaluated in parallel (see {@link ParallelCandidateSearch})
+     * @param regexStepBudget           the maximum number of characters a stub regex may read while matching a single
+     *                                  incoming value (see {@link BoundedCharSequence})
+     * @param responseFileCacheBytes    the maximum total length of the response files, whose path has template tokens,
+     *                                  that are kept in memory (see {@link ResponseFileCache})
+     * @param largeFileThreshold        the size in bytes over which a binary response file of a stub that is loaded
+     *                                  by a {@link YAMLParser} from {@link #newYAMLParser()} is sent from disk
+     */
+    public StubRepository(final File configFile,
+                          final Future<List<StubHttpLifecycle>> stubLoadComputation,
+                          final int parallelMatchingThreshold,
+                          final long regexStepBudget,
+                          final long responseFileCacheBytes,
+                          final long largeFileThreshold) {
         this.configFile = configFile;
         this.stubLoadComputation = stubLoadComputation;
         this.stubbyHttpTransport = new StubbyHttpTransport();
         this.resourceStats = new ConcurrentHashMap<>();
-        this.matchedStubsCache = new ConcurrentHashMap<>();
+        this.matchCache = new StubMatchCache(MATCH_CACHE_CAPACITY, MISS_CACHE_CAPACITY);
+        this.parallelMatchingThreshold = parallelMatchingThreshold;
+        this.responseFileCache = new ResponseFileCache(responseFileCacheBytes, RESPONSE_FILE_MAX_CACHED_LENGTH, RESPONSE_FILE_STAT_INTERVAL_MILLIS);
+        this.largeFileThreshold = largeFileThreshold;
+        this.regexStepBudget = regexStepBudget;
+        this.stubIndex = new AtomicReference<>(new StubIndex(new ArrayList<>(), regexStepBudget));
     }
 
     public StubSearchResult search(final HttpServletRequest incomingRequest) throws IOException {
@@ -65,21 +102,15 @@ public class StubRepository {
         return new StubSearchResult(assertionStubRequest, match);
     }
 
+    /**
+     * Wraps the incoming {@link HttpServletRequest} into an asserting {@link StubRequest}. Nothing is copied upfront
+     * but the URL and HTTP method, the headers, query params and body are read on demand (see {@link IncomingStubRequest}).
+     *
+     * @param request the incoming {@link HttpServletRequest}
+     * @return an asserting {@link StubRequest} view of the incoming request
+     */
     public StubRequest toStubRequest(final HttpServletRequest request) throws IOException {
-        final StubRequest.Builder builder = new StubRequest.Builder();
-        builder.withUrl(request.getPathInfo())
-                .withPost(extractPostRequestBody(request, "stubs"))
-                .withMethod(request.getMethod());
-
-        final Enumeration<String> headerNamesEnumeration = request.getHeaderNames();
-        final List<String> headerNames = isNotNull(headerNamesEnumeration) ? list(request.getHeaderNames()) : new LinkedList<>();
-        for (final String headerName : headerNames) {
-            final String headerValue = request.getHeader(headerName);
-
-            builder.withHeader(toLower(headerName), headerValue);
-        }
-
-        return builder.withQuery(constructParamMap(request.getQueryString())).build();
+        return new IncomingStubRequest(request);
     }
 
     private StubResponse findMatch(final StubHttpLifecycle incomingRequest) {
@@ -120,71 +151,122 @@ public class StubRepository {
      * That's the point where the incoming {@link StubHttpLifecycle} that was created from the incoming
      * raw {@link HttpServletRequest request} is matched to the in-memory stubs.
      * <p>
-     * First, the local cache holding previously matched stubs is checked to see if there is a match for the incoming
-     * {@link StubHttpLifecycle request} URI. If the incoming {@link StubHttpLifecycle} URI found in the cache, then the
-     * cached match and the incoming {@link StubHttpLifecycle} are compared to each other to determine a complete
-     * equality based on the {@link StubRequest#equals(Object)}.
+     * First, the {@link StubIndex} narrows down the loaded stubs to the candidates that can potentially match the
+     * incoming request method and URL. If there are none, the search ends right there.
+     * <p>
+     * Then, the local cache holding previous search outcomes is checked for the fingerprint of the incoming
+     * {@link StubHttpLifecycle request} (see {@link StubMatchCache}). If the fingerprint is cached as a miss, the search
+     * ends right there. If it is cached as a match, then the cached match and the incoming {@link StubHttpLifecycle}
+     * are compared to each other to determine a complete match based on the
+     * {@link StubRequest#matches(StubRequest, StubMatcher)}.
      * <p>
-     * If a complete equality with the cached {@link StubHttpLifecycle match} was not achieved, the incoming
-     * {@link StubHttpLifecycle request} is compared to every {@link StubHttpLifecycle element} in the list of loaded
-     * stubs.
+     * If a complete match with the cached {@link StubHttpLifecycle match} was not achieved, the incoming
+     * {@link StubHttpLifecycle request} is compared to every candidate, in the order the stubs were
+     * defined, using {@link StubRequest#matches(StubRequest, StubMatcher)}. A single {@link StubMatcher} is used for
+     * all candidates of the incoming request, and only the regex groups captured by the matched stub are retained.
+     * When parallel matching is enabled and there are at least as many candidates as its threshold, the candidates are
+     * evaluated in parallel instead (see {@link ParallelCandidateSearch}), still yielding the first defined match.
      * <p>
-     * The {@link List<StubHttpLifecycle>#indexOf(Object)} implicitly invokes {@link StubHttpLifecycle#equals(Object)},
-     * which invokes the {@link StubRequest#equals(Object)}.
+     * The search outcome, match or miss, is then cached under the incoming request fingerprint.
+     * <p>
+     * The search runs against the {@link StubIndex} snapshot that was current when the search began, without locking,
+     * so concurrent searches never block each other or the stub mutators.
      *
      * @param incomingStub {@link StubHttpLifecycle}
      * @return an {@link Optional} describing {@link StubHttpLifecycle} match, or an empty {@link Optional} if there was no match.
      * @see #toStubRequest(HttpServletRequest)
-     * @see StubHttpLifecycle#equals(Object)
-     * @see StubRequest#equals(Object)
+     * @see StubRequest#matches(StubRequest, StubMatcher)
      * @see StubMatcher#matches(StubRequest, StubRequest)
+     * @see StubIndex#findCandidates(StubRequest)
+     * @see StubMatchCache
      */
-    private synchronized Optional<StubHttpLifecycle> matchStub(final StubHttpLifecycle incomingStub) {
+    private Optional<StubHttpLifecycle> matchStub(final StubHttpLifecycle incomingStub) {
+
+        final StubIndex snapshot = stubIndex.get();
+        final StubRequest incomingRequest = incomingStub.getRequest();
+        // Both the candidates and a cached match were found by the index for this very URL
+        final StubMatcher stubMatcher = new StubMatcher(true, regexStepBudget);
+
+        // The index only looks at the method and URL, so the requests that no stub can match do not read anything else
+        final List<StubHttpLifecycle> candidates = snapshot.findCandidates(incomingRequest);
+        if (candidates.isEmpty()) {
+            return Optional.empty();
+        }
 
         final String incomingRequestUrl = incomingStub.getUrl();
-        if (matchedStubsCache.containsKey(incomingRequestUrl)) {
+        final StubMatchCache.CachedMatch cachedMatch = matchCache.get(snapshot, incomingRequest);
+        if (isNotNull(cachedMatch)) {
+            if (cachedMatch.isMiss()) {
+                ANSITerminal.loaded(String.format("Local cache contains a previous miss for the URL [%s]", incomingRequestUrl));
+
+                return Optional.empty();
+            }
             ANSITerminal.loaded(String.format("Local cache contains potential match for the URL [%s]", incomingRequestUrl));
-            final StubHttpLifecycle cachedPotentialMatch = matchedStubsCache.get(incomingRequestUrl);
-            // The order(?) in which equality is determined is important here (what object is "equal to" the other one)
-            if (incomingStub.equals(cachedPotentialMatch)) {
+            final StubHttpLifecycle cachedPotentialMatch = cachedMatch.getMatch();
+            // The order(?) in which matching is determined is important here (what object is "matched to" the other one)
+            if (incomingRequest.matches(cachedPotentialMatch.getRequest(), stubMatcher)) {
                 ANSITerminal.loaded(String.format("Potential match for the URL [%s] was deemed as a full match", incomingRequestUrl));
 
                 return Optional.of(cachedPotentialMatch);
             }
-            ANSITerminal.warn(String.format("Cached match for the URL [%s] failed to match fully, invalidating match cache..", incomingRequestUrl));
-            matchedStubsCache.remove(incomingRequestUrl);
+            ANSITerminal.warn(String.format("Cached match for the URL [%s] failed to match fully, searching all stubs..", incomingRequestUrl));
         }
 
         final long initialStart = System.currentTimeMillis();
-        for (final StubHttpLifecycle stubbed : stubs) {
-            if (incomingStub.equals(stubbed)) {
-                final long elapsed = System.currentTimeMillis() - initialStart;
-                ANSITerminal.status(String.format("Found a match after %s milliseconds, caching the found match for URL [%s]", elapsed, incomingRequestUrl));
-                matchedStubsCache.put(incomingRequestUrl, stubbed);
+        final Optional<StubHttpLifecycle> match = candidates.size() < parallelMatchingThreshold ?
+                findFirstMatch(candidates, incomingRequest, stubMatcher) :
+                findFirstMatchInParallel(candidates, incomingRequest, stubMatcher);
+
+        if (match.isPresent()) {
+            final long elapsed = System.currentTimeMillis() - initialStart;
+            ANSITerminal.status(String.format("Found a match after %s milliseconds, caching the found match for URL [%s]", elapsed, incomingRequestUrl));
+            matchCache.put(snapshot, incomingRequest, match.get());
+
+            return match;
+        }
+        matchCache.put(snapshot, incomingRequest, null);
+
+        return Optional.empty();
+    }
 
+    private Optional<StubHttpLifecycle> findFirstMatch(final List<StubHttpLifecycle> candidates,
+                                                       final StubRequest incomingRequest,
+                                                       final StubMatcher stubMatcher) {
+        for (final StubHttpLifecycle stubbed : candidates) {
+            if (incomingRequest.matches(stubbed.getRequest(), stubMatcher)) {
                 return Optional.of(stubbed);
             }
         }
-
         return Optional.empty();
     }
 
-    public synchronized Optional<StubHttpLifecycle> matchStubByIndex(final int index) {
-        if (!canMatchStubByIndex(index)) {
+    private Optional<StubHttpLifecycle> findFirstMatchInParallel(final List<StubHttpLifecycle> candidates,
+                                                                 final StubRequest incomingRequest,
+                                                                 final StubMatcher stubMatcher) {
+        final int matchIndex = ParallelCandidateSearch.findLowestMatchIndex(candidates, incomingRequest, stubMatcher);
+        if (matchIndex == ParallelCandidateSearch.NO_MATCH) {
+            return Optional.empty();
+        }
+
+        final StubHttpLifecycle stubbed = candidates.get(matchIndex);
+        // Matched once more on the calling thread, so that the incoming request retains the captured regex groups
+        incomingRequest.matches(stubbed.getRequest(), stubMatcher);
+
+        return Optional.of(stubbed);
+    }
+
+    public Optional<StubHttpLifecycle> matchStubByIndex(final int index) {
+        final List<StubHttpLifecycle> stubs = stubIndex.get().getStubs();
+        if (stubs.size() - 1 < index) {
             return Optional.empty();
         }
         return Optional.of(stubs.get(index));
     }
 
     synchronized boolean resetStubsCache(final List<StubHttpLifecycle> newStubs) {
-        this.matchedStubsCache.clear();
-        this.stubs.clear();
-        final boolean added = this.stubs.addAll(newStubs);
-        if (added) {
-            this.matchedStubsCache.clear();
-            updateResourceIDHeaders();
-        }
-        return added;
+        publishStubs(new ArrayList<>(newStubs));
+
+        return !newStubs.isEmpty();
     }
 
     public synchronized void refreshStubsFromYAMLConfig(final YAMLParser yamlParser) throws Exception {
@@ -205,7 +287,29 @@ public class StubRepository {
 
     // Just a shallow copy that protects collection from modification, the points themselves are not copied
     public List<StubHttpLifecycle> getStubs() {
-        return new LinkedList<>(stubs);
+        return new LinkedList<>(stubIndex.get().getStubs());
+    }
+
+    public ResponseFileCache getResponseFileCache() {
+        return responseFileCache;
+    }
+
+    /**
+     * @return a {@link YAMLParser} for the stubs that are loaded into this repository after it was created, e.g.: on
+     * a stubs refresh
+     */
+    public YAMLParser newYAMLParser() {
+        return new YAMLParser(largeFileThreshold);
+    }
+
+    @CoberturaIgnore
+    public String getMatchCacheStats() {
+        return matchCache.toString();
+    }
+
+    @CoberturaIgnore
+    public String getPatternCacheStats() {
+        return RegexParser.INSTANCE.getCacheStats();
     }
 
     // Just a shallow copy that protects collection from modification, the points themselves are not copied
@@ -219,18 +323,18 @@ public class StubRepository {
         return String.format("resourceId,hits%s%s", FileUtils.BR, csvNoHeader);
     }
 
-    public synchronized String getOnlyStubRequestUrl() {
-        return stubs.get(0).getUrl();
+    public String getOnlyStubRequestUrl() {
+        return stubIndex.get().getStubs().get(0).getUrl();
     }
 
     public File getYAMLConfig() {
         return configFile;
     }
 
-    public synchronized Map<File, Long> getExternalFiles() {
+    public Map<File, Long> getExternalFiles() {
         final Set<String> escrow = new HashSet<>();
         final Map<File, Long> externalFiles = new HashMap<>();
-        for (final StubHttpLifecycle stub : stubs) {
+        for (final StubHttpLifecycle stub : stubIndex.get().getStubs()) {
             cacheExternalFile(escrow, externalFiles, stub.getRequest().getRawFile());
 
             final List<StubResponse> responses = stub.getResponses();
@@ -258,50 +362,66 @@ public class StubRepository {
         }
     }
 
-    public synchronized String getStubYAML() {
+    public String getStubYAML() {
         final StringBuilder builder = new StringBuilder();
-        for (final StubHttpLifecycle stub : stubs) {
+        for (final StubHttpLifecycle stub : stubIndex.get().getStubs()) {
             builder.append(stub.getCompleteYAML()).append(FileUtils.BR).append(FileUtils.BR);
         }
 
         return builder.toString();
     }
 
-    public synchronized String getStubYAMLByIndex(final int index) {
-        return stubs.get(index).getCompleteYAML();
+    public String getStubYAMLByIndex(final int index) {
+        return stubIndex.get().getStubs().get(index).getCompleteYAML();
     }
 
     synchronized void updateStubByIndex(final int index, final StubHttpLifecycle newStub) {
-        deleteStubByIndex(index);
+        final List<StubHttpLifecycle> stubs = new ArrayList<>(stubIndex.get().getStubs());
+        stubs.remove(index);
         stubs.add(index, newStub);
-        updateResourceIDHeaders();
+        publishStubs(stubs);
     }
 
-    public synchronized boolean canMatchStubByIndex(final int index) {
-        return stubs.size() - 1 >= index;
+    public boolean canMatchStubByIndex(final int index) {
+        return stubIndex.get().getStubs().size() - 1 >= index;
     }
 
     public synchronized StubHttpLifecycle deleteStubByIndex(final int index) {
+        final List<StubHttpLifecycle> stubs = new ArrayList<>(stubIndex.get().getStubs());
         final StubHttpLifecycle removedStub = stubs.remove(index);
-        updateResourceIDHeaders();
+        publishStubs(stubs);
 
         return removedStub;
     }
 
     public synchronized void deleteAllStubs() {
-        stubs.clear();
+        publishStubs(new ArrayList<>());
     }
 
-    private void updateResourceIDHeaders() {
+    private void publishStubs(final List<StubHttpLifecycle> stubs) {
+        updateResourceIDHeaders(stubs);
+        stubIndex.set(new StubIndex(stubs, regexStepBudget));
+        // Entries of the previous snapshot are never served again, clearing just frees them up
+        matchCache.clear();
+        // The published stubs hold on to their compiled patterns, the ones they did not look up are not needed anymore
+        RegexParser.INSTANCE.advanceGeneration();
+    }
+
+    private void updateResourceIDHeaders(final List<StubHttpLifecycle> stubs) {
         for (int index = 0; index < stubs.size(); index++) {
-            stubs.get(index).setResourceId(index);
+            // The previous snapshot may still be searched, so its stubs are copied rather than changed
+            if (!stubs.get(index).hasResourceId(index)) {
+                stubs.set(index, stubs.get(index).withResourceId(index));
+            }
         }
     }
 
     @CoberturaIgnore
-    public void retrieveLoadedStubs() {
+    public synchronized void retrieveLoadedStubs() {
         try {
+            final List<StubHttpLifecycle> stubs = new ArrayList<>(stubIndex.get().getStubs());
             stubs.addAll(stubLoadComputation.get());
+            publishStubs(stubs);
         } catch (InterruptedException | ExecutionException e) {
             e.printStackTrace();
         }
@@ -12,10 +12,10 @@ import org.eclipse.jetty.http.HttpMethod;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.TreeMap;
 
 import static io.github.azagniotov.generics.TypeSafeConverter.asCheckedArrayList;
@@ -31,6 +31,8 @@ import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.FILE;
 import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.HEADERS;
 import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.METHOD;
 import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.POST;
+import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.POST_MATCHES;
+import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.POST_REGEX;
 import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.QUERY;
 import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.URL;
 import static java.lang.String.valueOf;
@@ -48,28 +50,47 @@ public class StubRequest implements ReflectableStub {
     private final List<String> method;
     private final Map<String, String> headers;
     private final Map<String, String> query;
-    private final Map<String, String> regexGroups;
+    private final Boolean postRegex;
+    private final List<String> postMatches;
+    private Map<String, String> regexGroups;
+    private volatile CompiledStubRequest compiledRequest;
+    private volatile RequestBody requestBody;
 
-    private StubRequest(final String url,
+    StubRequest(final String url,
                         final String post,
                         final File file,
                         final List<String> method,
                         final Map<String, String> headers,
-                        final Map<String, String> query) {
+                        final Map<String, String> query,
+                        final Boolean postRegex,
+                        final List<String> postMatches) {
         this.url = url;
         this.post = post;
         this.file = file;
         this.fileBytes = ObjectUtils.isNull(file) ? new byte[]{} : getFileBytes();
         this.method = method;
-        this.headers = headers;
+        this.headers = lowerCaseKeys(headers);
         this.query = query;
-        this.regexGroups = new TreeMap<>();
+        this.postRegex = postRegex;
+        this.postMatches = postMatches;
+        this.regexGroups = Collections.emptyMap();
     }
 
     public final ArrayList<String> getMethod() {
         return method.stream().map(StringUtils::toUpper).collect(toCollection(ArrayList::new));
     }
 
+    // Header names are case insensitive. They are lower cased once, so that a stub shared between request threads
+    // never changes after it was built
+    private static Map<String, String> lowerCaseKeys(final Map<String, String> headers) {
+        final Map<String, String> lowerCaseHeaders = new LinkedHashMap<>();
+        for (final Map.Entry<String, String> entry : headers.entrySet()) {
+            lowerCaseHeaders.put(toLower(entry.getKey()), entry.getValue());
+        }
+
+        return Collections.unmodifiableMap(lowerCaseHeaders);
+    }
+
     public String getUri() {
         return url;
     }
@@ -84,7 +105,7 @@ public class StubRequest implements ReflectableStub {
             return url;
         }
 
-        final String queryString = CollectionUtils.constructQueryString(query);
+        final String queryString = CollectionUtils.constructQueryString(getQuery());
 
         return String.format("%s?%s", url, queryString);
     }
@@ -99,7 +120,7 @@ public class StubRequest implements ReflectableStub {
 
     public String getPostBody() {
         if (fileBytes.length == 0) {
-            return FileUtils.enforceSystemLineSeparator(post);
+            return FileUtils.enforceSystemLineSeparator(getPost());
         }
         final String utf8FileContent = newStringUtf8(fileBytes);
         return FileUtils.enforceSystemLineSeparator(utf8FileContent);
@@ -110,14 +131,10 @@ public class StubRequest implements ReflectableStub {
         return post;
     }
 
-    public final Map<String, String> getHeaders() {
-        final Map<String, String> headersCopy = new LinkedHashMap<>(headers);
-        final Set<Map.Entry<String, String>> entrySet = headersCopy.entrySet();
-        this.headers.clear();
-        for (final Map.Entry<String, String> entry : entrySet) {
-            this.headers.put(toLower(entry.getKey()), entry.getValue());
-        }
-
+    /**
+     * @return an unmodifiable view of the headers, with their names in lower case
+     */
+    public Map<String, String> getHeaders() {
         return headers;
     }
 
@@ -129,7 +146,26 @@ public class StubRequest implements ReflectableStub {
         return fileBytes;
     }
 
-    // Just a shallow copy that protects collection from modification, the points themselves are not copied
+    //Used by reflection when populating stubby admin page with stubbed information
+    public Boolean getPostRegex() {
+        return postRegex;
+    }
+
+    //Used by reflection when populating stubby admin page with stubbed information
+    public List<String> getPostMatches() {
+        return postMatches;
+    }
+
+    /**
+     * @return false if the stubbed POST body was opted out of regex semantics, in which case it is only ever
+     * compared as a literal string, otherwise true
+     */
+    public boolean isPostRegex() {
+        return !Boolean.FALSE.equals(postRegex);
+    }
+
+    // Just a shallow copy that protects collection from modification, the points themselves are not copied.
+    // Holds only the regex groups captured by the stub that this (incoming) request matched
     public Map<String, String> getRegexGroups() {
         return new TreeMap<>(regexGroups);
     }
@@ -138,6 +174,24 @@ public class StubRequest implements ReflectableStub {
         return file;
     }
 
+    /**
+     * @return the body of this request as an asserting request, with its media type classified once from the
+     * <code>content-type</code> header
+     */
+    RequestBody getRequestBody() {
+        RequestBody currentRequestBody = requestBody;
+        if (ObjectUtils.isNull(currentRequestBody)) {
+            synchronized (this) {
+                currentRequestBody = requestBody;
+                if (ObjectUtils.isNull(currentRequestBody)) {
+                    currentRequestBody = new RequestBody(getPostBody(), getHeaders().get("content-type"));
+                    requestBody = currentRequestBody;
+                }
+            }
+        }
+        return currentRequestBody;
+    }
+
     public boolean hasHeaders() {
         return !getHeaders().isEmpty();
     }
@@ -180,16 +234,23 @@ public class StubRequest implements ReflectableStub {
         return isSet(this.getPostBody()) && (getMethod().contains("POST") || getMethod().contains("PUT"));
     }
 
-    public void compileRegexPatternsAndCache() {
-        if (isSet(this.url)) {
-            RegexParser.INSTANCE.compilePatternAndCache(this.url);
-        }
-        if (isPostStubbed()) {
-            RegexParser.INSTANCE.compilePatternAndCache(getPostBody());
-        }
+    /**
+     * Compiles this stubbed request into its matching-ready form, so that nothing has to be derived from the stubbed
+     * request when incoming requests are matched against it
+     */
+    public void compile() {
+        this.compiledRequest = new CompiledStubRequest(this);
+    }
 
-        this.getQuery().values().forEach(RegexParser.INSTANCE::compilePatternAndCache);
-        this.getHeaders().values().forEach(RegexParser.INSTANCE::compilePatternAndCache);
+    /**
+     * @return the compiled form of this stubbed request. It is compiled when the stub is loaded, or lazily for stubs
+     * that were not loaded through YAML config.
+     */
+    CompiledStubRequest getCompiledRequest() {
+        if (ObjectUtils.isNull(compiledRequest)) {
+            compile();
+        }
+        return compiledRequest;
     }
 
     @Override
@@ -198,11 +259,24 @@ public class StubRequest implements ReflectableStub {
         if (this == that) {
             return true;
         } else if (that instanceof StubRequest) {
-            final StubRequest stubbedRequest = (StubRequest) that;
+            return matches((StubRequest) that, new StubMatcher());
+        }
 
-            if (new StubMatcher(regexGroups).matches(stubbedRequest, this)) {
-                return true;
-            }
+        return false;
+    }
+
+    /**
+     * Matches this incoming request against the given stubbed request using a request-scoped {@link StubMatcher}.
+     * On a successful match, the regex groups captured by the stubbed request are retained by this request.
+     *
+     * @param stubbedRequest the stubbed {@link StubRequest}
+     * @param stubMatcher    {@link StubMatcher} scoped to this incoming request
+     * @return true if the stubbed request matches this request
+     */
+    boolean matches(final StubRequest stubbedRequest, final StubMatcher stubMatcher) {
+        if (stubMatcher.matches(stubbedRequest, this)) {
+            this.regexGroups = stubMatcher.captureRegexGroups();
+            return true;
         }
 
         return false;
@@ -213,10 +287,10 @@ public class StubRequest implements ReflectableStub {
     public int hashCode() {
         int result = (isNotNull(url) ? url.hashCode() : 0);
         result = 31 * result + method.hashCode();
-        result = 31 * result + (isNotNull(post) ? post.hashCode() : 0);
+        result = 31 * result + (isNotNull(getPost()) ? getPost().hashCode() : 0);
         result = 31 * result + (isNotNull(fileBytes) && fileBytes.length != 0 ? Arrays.hashCode(fileBytes) : 0);
-        result = 31 * result + headers.hashCode();
-        result = 31 * result + query.hashCode();
+        result = 31 * result + getHeaders().hashCode();
+        result = 31 * result + getQuery().hashCode();
 
         return result;
     }
@@ -229,10 +303,13 @@ public class StubRequest implements ReflectableStub {
         sb.append("{url=").append(url);
         sb.append(", method=").append(method);
 
-        if (!ObjectUtils.isNull(post)) {
-            sb.append(", post=").append(post);
+        if (!ObjectUtils.isNull(getPost())) {
+            sb.append(", post=").append(getPost());
         }
-        sb.append(", query=").append(query);
+        if (!postMatches.isEmpty()) {
+            sb.append(", post_matches=").append(postMatches);
+        }
+        sb.append(", query=").append(getQuery());
         sb.append(", headers=").append(getHeaders());
         sb.append('}');
 
@@ -247,6 +324,8 @@ public class StubRequest implements ReflectableStub {
         private File file;
         private Map<String, String> headers;
         private Map<String, String> query;
+        private Boolean postRegex;
+        private List<String> postMatches;
 
         public Builder() {
             super();
@@ -256,6 +335,8 @@ public class StubRequest implements ReflectableStub {
             this.file = null;
             this.headers = new LinkedHashMap<>();
             this.query = new LinkedHashMap<>();
+            this.postRegex = null;
+            this.postMatches = new ArrayList<>();
         }
 
         public Builder withMethod(final String value) {
@@ -362,6 +443,18 @@ public class StubRequest implements ReflectableStub {
             return this;
         }
 
+        public Builder withPostRegex(final boolean postRegex) {
+            this.postRegex = postRegex;
+
+            return this;
+        }
+
+        public Builder withPostMatch(final String predicate) {
+            this.postMatches.add(predicate);
+
+            return this;
+        }
+
         public Builder withFile(final File file) {
             this.file = file;
 
@@ -388,8 +481,11 @@ public class StubRequest implements ReflectableStub {
             this.method = asCheckedArrayList(getStaged(List.class, METHOD, method), String.class);
             this.headers = asCheckedLinkedHashMap(getStaged(Map.class, HEADERS, headers), String.class, String.class);
             this.query = asCheckedLinkedHashMap(getStaged(Map.class, QUERY, query), String.class, String.class);
+            final String stagedPostRegex = getStaged(String.class, POST_REGEX, null);
+            this.postRegex = isSet(stagedPostRegex) ? Boolean.valueOf(stagedPostRegex) : postRegex;
+            this.postMatches = asCheckedArrayList(getStaged(List.class, POST_MATCHES, postMatches), String.class);
 
-            final StubRequest stubRequest = new StubRequest(url, post, file, method, headers, query);
+            final StubRequest stubRequest = new StubRequest(url, post, file, method, headers, query, postRegex, postMatches);
 
             this.url = null;
             this.method = new ArrayList<>();
@@ -397,6 +493,8 @@ public class StubRequest implements ReflectableStub {
             this.file = null;
             this.headers = new LinkedHashMap<>();
             this.query = new LinkedHashMap<>();
+            this.postRegex = null;
+            this.postMatches = new ArrayList<>();
             this.fieldNameAndValues.clear();
 
             return stubRequest;
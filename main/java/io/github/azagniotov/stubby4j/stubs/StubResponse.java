@@ -3,10 +3,13 @@ package io.github.azagniotov.stubby4j.stubs;
 import io.github.azagniotov.stubby4j.annotations.CoberturaIgnore;
 import io.github.azagniotov.stubby4j.annotations.VisibleForTesting;
 import io.github.azagniotov.stubby4j.utils.FileUtils;
+import io.github.azagniotov.stubby4j.utils.ResponseTemplate;
 import io.github.azagniotov.stubby4j.utils.StringUtils;
 import org.eclipse.jetty.http.HttpStatus.Code;
 
 import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -14,6 +17,7 @@ import java.util.Optional;
 import static io.github.azagniotov.generics.TypeSafeConverter.asCheckedLinkedHashMap;
 import static io.github.azagniotov.stubby4j.utils.FileUtils.fileToBytes;
 import static io.github.azagniotov.stubby4j.utils.FileUtils.isFilePathContainTemplateTokens;
+import static io.github.azagniotov.stubby4j.utils.ObjectUtils.isNotNull;
 import static io.github.azagniotov.stubby4j.utils.ObjectUtils.isNull;
 import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.BODY;
 import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.FILE;
@@ -27,25 +31,49 @@ import static org.eclipse.jetty.http.HttpStatus.getCode;
 public class StubResponse implements ReflectableStub {
 
     public static final String STUBBY_RESOURCE_ID_HEADER = "x-stubby-resource-id";
+    public static final long DEFAULT_LARGE_FILE_THRESHOLD = 64L * 1024 * 1024;
 
     private final Code httpStatusCode;
     private final String body;
     private final File file;
     private final byte[] fileBytes;
+    private final boolean isLargeFile;
     private final String latency;
     private final Map<String, String> headers;
+    private final ResponseTemplate bodyTemplate;
+    private final Map<String, ResponseTemplate> headerTemplates;
+    private final ResponseTemplate filePathTemplate;
+    private volatile StaticResponse staticResponse;
 
     private StubResponse(final Code httpStatusCode,
                          final String body,
                          final File file,
+                         final boolean isLargeFile,
                          final String latency,
                          final Map<String, String> headers) {
         this.httpStatusCode = httpStatusCode;
         this.body = body;
         this.file = file;
-        this.fileBytes = isNull(file) ? new byte[]{} : getFileBytes();
+        this.isLargeFile = isLargeFile;
+        this.fileBytes = isNull(file) || isLargeFile ? new byte[]{} : getFileBytes();
         this.latency = latency;
-        this.headers = isNull(headers) ? new LinkedHashMap<>() : headers;
+        this.headers = isNull(headers) ? Collections.emptyMap() : Collections.unmodifiableMap(new LinkedHashMap<>(headers));
+        this.bodyTemplate = compileBodyTemplate();
+        this.headerTemplates = compileHeaderTemplates(this.headers);
+        this.filePathTemplate = isFilePathContainsTemplateTokens() ? ResponseTemplate.compile(getRawFileAbsolutePath()) : null;
+    }
+
+    private StubResponse(final StubResponse stubResponse, final Map<String, String> headers) {
+        this.httpStatusCode = stubResponse.httpStatusCode;
+        this.body = stubResponse.body;
+        this.file = stubResponse.file;
+        this.isLargeFile = stubResponse.isLargeFile;
+        this.fileBytes = stubResponse.fileBytes;
+        this.latency = stubResponse.latency;
+        this.headers = Collections.unmodifiableMap(headers);
+        this.bodyTemplate = stubResponse.bodyTemplate;
+        this.headerTemplates = compileHeaderTemplates(this.headers);
+        this.filePathTemplate = stubResponse.filePathTemplate;
     }
 
     public static StubResponse okResponse() {
@@ -69,6 +97,7 @@ public class StubResponse implements ReflectableStub {
                 foundStubResponse.getHttpStatusCode(),
                 foundStubResponse.getBody(),
                 foundStubResponse.getRawFile(),
+                foundStubResponse.isLargeFile(),
                 foundStubResponse.getLatency(),
                 foundStubResponse.getHeaders());
     }
@@ -86,6 +115,9 @@ public class StubResponse implements ReflectableStub {
         return StringUtils.toLower(body).startsWith("http");
     }
 
+    /**
+     * @return an unmodifiable view of the stubbed headers
+     */
     public Map<String, String> getHeaders() {
         return headers;
     }
@@ -109,17 +141,74 @@ public class StubResponse implements ReflectableStub {
         return file.getAbsolutePath();
     }
 
+    /**
+     * @return the response body, a large file is read from disk on every call, see {@link #isLargeFile()}
+     */
     public byte[] getResponseBodyAsBytes() {
-
+        if (isLargeFile) {
+            return getFileBytes();
+        }
         if (fileBytes.length == 0) {
             return StringUtils.getBytesUtf8(getBody());
         }
         return fileBytes;
     }
 
+    /**
+     * @return the response body parsed as a {@link ResponseTemplate} when the stub was loaded, or null if the
+     * response body has no template tokens
+     */
+    public ResponseTemplate getBodyTemplate() {
+        return bodyTemplate;
+    }
+
+    /**
+     * @return the stubbed header values that have template tokens, parsed as {@link ResponseTemplate}s when the stub
+     * was loaded and keyed by header name
+     */
+    public Map<String, ResponseTemplate> getHeaderTemplates() {
+        return headerTemplates;
+    }
+
+    /**
+     * @return the response file path parsed as a {@link ResponseTemplate} when the stub was loaded, or null if the
+     * file path has no template tokens
+     */
+    public ResponseTemplate getFilePathTemplate() {
+        return filePathTemplate;
+    }
+
+    /**
+     * @return true if the response file is a binary file larger than the large file threshold, which is not kept in
+     * memory and must be sent from disk
+     */
+    public boolean isLargeFile() {
+        return isLargeFile;
+    }
+
     public boolean isBodyContainsTemplateTokens() {
-        final boolean isFileTemplate = fileBytes.length != 0 && isTemplateFile();
-        return isFileTemplate || StringUtils.isTokenized(getBody());
+        return isNotNull(bodyTemplate);
+    }
+
+    /**
+     * @return the {@link StaticResponse} of this response, serialized on first use and kept from then on, or null if
+     * this response renders differently per request: it has template tokens or is recorded
+     */
+    public StaticResponse getStaticResponse() {
+        StaticResponse currentStaticResponse = staticResponse;
+        if (isNull(currentStaticResponse) && isStatic()) {
+            // A response never changes once built, so threads that race to serialize it build equal static responses
+            currentStaticResponse = new StaticResponse(getHttpStatusCode().getCode(), getHeaders(), getResponseBodyAsBytes());
+            staticResponse = currentStaticResponse;
+        }
+        return currentStaticResponse;
+    }
+
+    private boolean isStatic() {
+        if (isLargeFile || isRecordingRequired() || isBodyContainsTemplateTokens() || isFilePathContainsTemplateTokens()) {
+            return false;
+        }
+        return headerTemplates.isEmpty();
     }
 
     public boolean isFilePathContainsTemplateTokens() {
@@ -130,11 +219,47 @@ public class StubResponse implements ReflectableStub {
         }
     }
 
-    @CoberturaIgnore
-    private boolean isTemplateFile() {
+    /**
+     * Template tokens are looked for in the content that was loaded into memory, i.e.: in the character file content
+     * or in the stubbed body, once per stub rather than on every response
+     */
+    private ResponseTemplate compileBodyTemplate() {
+        if (isLargeFile || (fileBytes.length != 0 && !FileUtils.isCharacterFile(file))) {
+            return null;
+        }
+
+        final String content = fileBytes.length != 0 ? StringUtils.newStringUtf8(fileBytes) : getBody();
+        if (!StringUtils.isTokenized(content)) {
+            return null;
+        }
+        final ResponseTemplate template = ResponseTemplate.compile(content);
+
+        return template.hasTokens() ? template : null;
+    }
+
+    private static Map<String, ResponseTemplate> compileHeaderTemplates(final Map<String, String> headers) {
+        final Map<String, ResponseTemplate> headerTemplates = new HashMap<>();
+        for (final Map.Entry<String, String> header : headers.entrySet()) {
+            if (isNull(header.getValue()) || !StringUtils.isTokenized(header.getValue())) {
+                continue;
+            }
+            final ResponseTemplate template = ResponseTemplate.compile(header.getValue());
+            if (template.hasTokens()) {
+                headerTemplates.put(header.getKey(), template);
+            }
+        }
+
+        return headerTemplates.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(headerTemplates);
+    }
+
+    private static boolean isLargeBinaryFile(final File file, final long largeFileThreshold) {
+        if (isNull(file) || !file.isFile() || file.length() <= largeFileThreshold) {
+            return false;
+        }
         try {
-            return FileUtils.isTemplateFile(file);
+            return !FileUtils.isCharacterFile(file);
         } catch (Exception e) {
+            // A file without an extension, it is not loaded as either a character or a binary file
             return false;
         }
     }
@@ -152,8 +277,15 @@ public class StubResponse implements ReflectableStub {
         return getHeaders().containsKey("location");
     }
 
-    void addResourceIDHeader(final int resourceIndex) {
-        getHeaders().put(STUBBY_RESOURCE_ID_HEADER, String.valueOf(resourceIndex));
+    /**
+     * @return a copy of this response with the given resource ID header. A response is shared between the stub
+     * searches of incoming requests, so it is never changed once built
+     */
+    StubResponse withResourceIDHeader(final int resourceIndex) {
+        final Map<String, String> headers = new LinkedHashMap<>(this.headers);
+        headers.put(STUBBY_RESOURCE_ID_HEADER, String.valueOf(resourceIndex));
+
+        return new StubResponse(this, headers);
     }
 
     String getResourceIDHeader() {
@@ -167,9 +299,11 @@ public class StubResponse implements ReflectableStub {
         private File file;
         private String latency;
         private Map<String, String> headers;
+        private long largeFileThreshold;
 
         public Builder() {
             super();
+            this.largeFileThreshold = DEFAULT_LARGE_FILE_THRESHOLD;
             this.status = null;
             this.body = null;
             this.file = null;
@@ -202,6 +336,17 @@ public class StubResponse implements ReflectableStub {
             return this;
         }
 
+        /**
+         * @param largeFileThreshold size in bytes over which a binary response file is not loaded into memory when
+         *                           the stub is built, but is sent from disk on every response instead. Unlike the
+         *                           stubbed properties, it applies to every stub that this builder builds
+         */
+        public Builder withLargeFileThreshold(final long largeFileThreshold) {
+            this.largeFileThreshold = largeFileThreshold;
+
+            return this;
+        }
+
         @Override
         public StubResponse build() {
             this.status = getStaged(String.class, STATUS, status);
@@ -210,7 +355,7 @@ public class StubResponse implements ReflectableStub {
             this.latency = getStaged(String.class, LATENCY, latency);
             this.headers = asCheckedLinkedHashMap(getStaged(Map.class, HEADERS, headers), String.class, String.class);
 
-            final StubResponse stubResponse = new StubResponse(getHttpStatusCode(), body, file, latency, headers);
+            final StubResponse stubResponse = new StubResponse(getHttpStatusCode(), body, file, isLargeBinaryFile(file, largeFileThreshold), latency, headers);
 
             this.status = null;
             this.body = null;
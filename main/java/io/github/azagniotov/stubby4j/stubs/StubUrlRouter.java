@@ -0,0 +1,266 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import io.github.azagniotov.stubby4j.annotations.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import static io.github.azagniotov.stubby4j.utils.ObjectUtils.isNotNull;
+import static io.github.azagniotov.stubby4j.utils.StringUtils.isNotSet;
+
+/**
+ * A trie over the '/' separated segments of stubbed URLs, which resolves the stubs that can potentially match an
+ * incoming URL in a single walk of its path, regardless of how many stubs there are.
+ * <p>
+ * Every stubbed URL segment is either:
+ * <ul>
+ * <li>a literal segment without regex meta characters, e.g.: users, that is looked up by equality</li>
+ * <li>a pattern segment that can never match across a '/', e.g.: [0-9]+ or (users|items), that is matched as a
+ * regex against the incoming segment at the same depth</li>
+ * <li>any other segment, e.g.: .* or user.json, after which the trie stops. The stub becomes a candidate for every
+ * incoming URL that reaches the segment's parent node, whatever follows in the incoming URL</li>
+ * </ul>
+ * A leading '^' and a trailing '$' are dropped from a regex URL before it is split, since a stubbed URL must match
+ * the whole incoming URL anyway. A regex URL is also a candidate for an incoming URL that is verbatim equal to it.
+ * <p>
+ * The router only ever drops stubs that cannot possibly match, the stub indexes are collected into a {@link BitSet}
+ * so that the caller can keep the order in which stubs were defined.
+ */
+final class StubUrlRouter {
+
+    private static final String SEGMENT_SEPARATOR = "/";
+    private static final String REGEX_QUANTIFIERS = "?*+{";
+
+    private final Node root;
+    private final List<Integer> anyUrlStubs;
+    private final Map<String, List<Integer>> verbatimUrlStubs;
+    private final long regexStepBudget;
+
+    /**
+     * @param regexStepBudget the maximum number of characters a segment regex may read while matching a single segment
+     */
+    StubUrlRouter(final long regexStepBudget) {
+        this.regexStepBudget = regexStepBudget;
+        this.root = new Node();
+        this.anyUrlStubs = new ArrayList<>();
+        this.verbatimUrlStubs = new HashMap<>();
+    }
+
+    void add(final String stubbedUrl, final int stubIndex) {
+        if (isNotSet(stubbedUrl)) {
+            anyUrlStubs.add(stubIndex);
+            return;
+        }
+        if (RegexParser.isLiteral(stubbedUrl)) {
+            addSegments(splitPath(stubbedUrl), stubIndex);
+            return;
+        }
+
+        verbatimUrlStubs.computeIfAbsent(stubbedUrl, url -> new ArrayList<>()).add(stubIndex);
+        if (!isCompilable(stubbedUrl)) {
+            // The URL is matched as a literal string, hence only by its verbatim equal
+            return;
+        }
+        if (hasTopLevelAlternation(stubbedUrl)) {
+            // Any of the alternatives can match the whole incoming URL on its own
+            root.openEndedStubs.add(stubIndex);
+            return;
+        }
+        addSegments(splitPath(stripAnchors(stubbedUrl)), stubIndex);
+    }
+
+    /**
+     * @param assertingUrl          the incoming URL
+     * @param assertingUrlSegments  the incoming URL split by {@link #splitPath(String)}, or null if URL is not set
+     * @param candidateIndexes      collects the indexes of stubs that can potentially match the incoming URL
+     */
+    void collectCandidates(final String assertingUrl, final String[] assertingUrlSegments, final BitSet candidateIndexes) {
+        anyUrlStubs.forEach(candidateIndexes::set);
+        if (isNotSet(assertingUrl)) {
+            return;
+        }
+
+        collectCandidates(root, assertingUrlSegments, 0, candidateIndexes);
+
+        final List<Integer> verbatimMatches = verbatimUrlStubs.get(assertingUrl);
+        if (isNotNull(verbatimMatches)) {
+            verbatimMatches.forEach(candidateIndexes::set);
+        }
+    }
+
+    static String[] splitPath(final String url) {
+        return url.split(SEGMENT_SEPARATOR, -1);
+    }
+
+    private void addSegments(final String[] stubbedUrlSegments, final int stubIndex) {
+        Node node = root;
+        for (final String segment : stubbedUrlSegments) {
+            if (RegexParser.isLiteral(segment)) {
+                node = node.literalChildren.computeIfAbsent(segment, literal -> new Node());
+            } else if (isConfinedToSegment(segment)) {
+                node = node.patternChildren.computeIfAbsent(segment, PatternNode::new);
+            } else {
+                node.openEndedStubs.add(stubIndex);
+                return;
+            }
+        }
+        node.terminalStubs.add(stubIndex);
+    }
+
+    private void collectCandidates(final Node node, final String[] segments, final int depth, final BitSet candidateIndexes) {
+        node.openEndedStubs.forEach(candidateIndexes::set);
+        if (depth == segments.length) {
+            node.terminalStubs.forEach(candidateIndexes::set);
+            return;
+        }
+
+        final String segment = segments[depth];
+        final Node literalChild = node.literalChildren.get(segment);
+        if (isNotNull(literalChild)) {
+            collectCandidates(literalChild, segments, depth + 1, candidateIndexes);
+        }
+        for (final PatternNode patternChild : node.patternChildren.values()) {
+            if (mayMatch(patternChild.pattern, segment)) {
+                collectCandidates(patternChild, segments, depth + 1, candidateIndexes);
+            }
+        }
+    }
+
+    /**
+     * A segment regex is matched within the same step budget as the whole stubbed URL. A segment that runs out of it
+     * may still match, so the stub is kept as a candidate and its whole URL match has the final say.
+     */
+    private boolean mayMatch(final Pattern pattern, final String segment) {
+        try {
+            return pattern.matcher(new BoundedCharSequence(segment, regexStepBudget)).matches();
+        } catch (final BoundedCharSequence.StepBudgetExceededException e) {
+            return true;
+        }
+    }
+
+    private static String stripAnchors(final String stubbedUrl) {
+        // For a whole input match, a leading '^' and a trailing '$' do not change the outcome
+        final int start = stubbedUrl.startsWith("^") ? 1 : 0;
+        final int end = stubbedUrl.endsWith("$") && !stubbedUrl.endsWith("\\$") ? stubbedUrl.length() - 1 : stubbedUrl.length();
+
+        return start < end ? stubbedUrl.substring(start, end) : "";
+    }
+
+    private static boolean hasTopLevelAlternation(final String regex) {
+        int groupDepth = 0;
+        boolean isInCharacterClass = false;
+        for (int idx = 0; idx < regex.length(); idx++) {
+            final char character = regex.charAt(idx);
+            if (character == '\\') {
+                idx++;
+            } else if (isInCharacterClass) {
+                isInCharacterClass = character != ']';
+            } else if (character == '[') {
+                isInCharacterClass = true;
+            } else if (character == '(') {
+                groupDepth++;
+            } else if (character == ')') {
+                groupDepth--;
+            } else if (character == '|' && groupDepth == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A regex URL segment is confined to a single incoming URL segment, when it can not match a '/' and when its
+     * meaning does not depend on the other segments. Anything that is not obviously so, e.g.: '.', escapes, negated
+     * character classes, top level alternation, inline flags or a leading quantifier, is treated as not confined.
+     */
+    @VisibleForTesting
+    static boolean isConfinedToSegment(final String segment) {
+        if (segment.isEmpty() || REGEX_QUANTIFIERS.indexOf(segment.charAt(0)) >= 0) {
+            return false;
+        }
+
+        int groupDepth = 0;
+        boolean isInCharacterClass = false;
+        for (int idx = 0; idx < segment.length(); idx++) {
+            final char character = segment.charAt(idx);
+            if (character == '\\' || character == '.' || character == '^' || character == '$') {
+                return false;
+            }
+
+            if (isInCharacterClass) {
+                if (character == '[') {
+                    return false;
+                } else if (character == ']') {
+                    isInCharacterClass = false;
+                } else if (character == '-' && !isDashLiteralOrAlphanumericRange(segment, idx)) {
+                    return false;
+                }
+                continue;
+            }
+
+            if (character == '[') {
+                isInCharacterClass = true;
+            } else if (character == '(') {
+                if (idx + 1 < segment.length() && segment.charAt(idx + 1) == '?') {
+                    return false;
+                }
+                groupDepth++;
+            } else if (character == ')') {
+                if (--groupDepth < 0) {
+                    return false;
+                }
+            } else if (character == '|' && groupDepth == 0) {
+                return false;
+            }
+        }
+
+        return !isInCharacterClass && groupDepth == 0 && isCompilable(segment);
+    }
+
+    private static boolean isDashLiteralOrAlphanumericRange(final String segment, final int dashIdx) {
+        final char from = segment.charAt(dashIdx - 1);
+        final char to = dashIdx + 1 < segment.length() ? segment.charAt(dashIdx + 1) : ']';
+        if (from == '[' || to == ']') {
+            return true;
+        }
+
+        return (isBetween(from, '0', '9') && isBetween(to, '0', '9')) ||
+                (isBetween(from, 'a', 'z') && isBetween(to, 'a', 'z')) ||
+                (isBetween(from, 'A', 'Z') && isBetween(to, 'A', 'Z'));
+    }
+
+    private static boolean isBetween(final char character, final char from, final char to) {
+        return character >= from && character <= to;
+    }
+
+    private static boolean isCompilable(final String regex) {
+        try {
+            Pattern.compile(regex);
+            return true;
+        } catch (final PatternSyntaxException e) {
+            return false;
+        }
+    }
+
+    private static class Node {
+        private final Map<String, Node> literalChildren = new HashMap<>();
+        private final Map<String, PatternNode> patternChildren = new LinkedHashMap<>();
+        private final List<Integer> terminalStubs = new ArrayList<>();
+        private final List<Integer> openEndedStubs = new ArrayList<>();
+    }
+
+    private static final class PatternNode extends Node {
+        private final Pattern pattern;
+
+        private PatternNode(final String segment) {
+            this.pattern = Pattern.compile(segment);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static io.github.azagniotov.stubby4j.utils.ObjectUtils.isNotNull;
+import static io.github.azagniotov.stubby4j.utils.ObjectUtils.isNull;
+
+/**
+ * Evaluates XPath {@link BodyPredicate predicates} over an XML body with a StAX pull parser, without building a DOM
+ * of it. Only the text of the elements that predicates are addressing is collected.
+ * <p>
+ * An XPath may address several elements, and a predicate is satisfied by any one of them, like an XPath comparison
+ * of a node set is. Reading stops as soon as all the predicates are satisfied.
+ */
+final class XPathScanner {
+
+    // Configured once, creating readers is thread-safe afterwards
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+
+    static {
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private XPathScanner() {
+
+    }
+
+    static boolean allMatch(final String xml, final List<BodyPredicate> predicates) {
+        final List<BodyPredicate> undecidedPredicates = new ArrayList<>(predicates);
+        final List<ElementPosition> elementPath = new ArrayList<>();
+        final List<Map<String, Integer>> siblingCounts = new ArrayList<>();
+        siblingCounts.add(new HashMap<>());
+        final Map<BodyPredicate, StringBuilder> collectedTexts = new HashMap<>();
+
+        XMLStreamReader reader = null;
+        try {
+            reader = XML_INPUT_FACTORY.createXMLStreamReader(new StringReader(xml));
+            while (reader.hasNext() && !undecidedPredicates.isEmpty()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        final String localName = reader.getLocalName();
+                        final int position = siblingCounts.get(siblingCounts.size() - 1).merge(localName, 1, Integer::sum);
+                        elementPath.add(new ElementPosition(localName, position));
+                        siblingCounts.add(new HashMap<>());
+                        evaluateStartElement(reader, elementPath, undecidedPredicates, collectedTexts);
+                        break;
+
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        for (final StringBuilder collectedText : collectedTexts.values()) {
+                            collectedText.append(reader.getText());
+                        }
+                        break;
+
+                    case XMLStreamConstants.END_ELEMENT:
+                        evaluateEndElement(elementPath, undecidedPredicates, collectedTexts);
+                        elementPath.remove(elementPath.size() - 1);
+                        siblingCounts.remove(siblingCounts.size() - 1);
+                        break;
+
+                    default:
+                        break;
+                }
+            }
+        } catch (final XMLStreamException e) {
+            // Not a well-formed XML, none of the predicates can be satisfied
+            return false;
+        } finally {
+            close(reader);
+        }
+
+        return undecidedPredicates.isEmpty();
+    }
+
+    private static void evaluateStartElement(final XMLStreamReader reader,
+                                             final List<ElementPosition> elementPath,
+                                             final List<BodyPredicate> undecidedPredicates,
+                                             final Map<BodyPredicate, StringBuilder> collectedTexts) {
+        for (int idx = undecidedPredicates.size() - 1; idx >= 0; idx--) {
+            final BodyPredicate predicate = undecidedPredicates.get(idx);
+            if (collectedTexts.containsKey(predicate) || !addresses(predicate, elementPath)) {
+                continue;
+            }
+
+            if (isNotNull(predicate.getAttributeName())) {
+                final String attributeValue = attributeValueOf(reader, predicate.getAttributeName());
+                if (isNotNull(attributeValue) && predicate.matchesXmlText(attributeValue)) {
+                    undecidedPredicates.remove(idx);
+                }
+            } else if (!predicate.isValueExpected()) {
+                undecidedPredicates.remove(idx);
+            } else {
+                // The text of the element is decided once the element ends
+                collectedTexts.put(predicate, new StringBuilder());
+            }
+        }
+    }
+
+    private static void evaluateEndElement(final List<ElementPosition> elementPath,
+                                           final List<BodyPredicate> undecidedPredicates,
+                                           final Map<BodyPredicate, StringBuilder> collectedTexts) {
+        if (collectedTexts.isEmpty()) {
+            return;
+        }
+        for (final BodyPredicate predicate : new ArrayList<>(collectedTexts.keySet())) {
+            if (predicate.getSteps().size() == elementPath.size()) {
+                final String collectedText = collectedTexts.remove(predicate).toString();
+                if (predicate.matchesXmlText(collectedText)) {
+                    undecidedPredicates.remove(predicate);
+                }
+            }
+        }
+    }
+
+    private static boolean addresses(final BodyPredicate predicate, final List<ElementPosition> elementPath) {
+        final List<Object> steps = predicate.getSteps();
+        if (steps.size() != elementPath.size()) {
+            return false;
+        }
+        for (int idx = 0; idx < steps.size(); idx++) {
+            final ElementPosition elementPosition = elementPath.get(idx);
+            if (!((BodyPredicate.XPathStep) steps.get(idx)).matches(elementPosition.localName, elementPosition.position)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String attributeValueOf(final XMLStreamReader reader, final String attributeLocalName) {
+        for (int idx = 0; idx < reader.getAttributeCount(); idx++) {
+            if (attributeLocalName.equals(reader.getAttributeLocalName(idx))) {
+                return reader.getAttributeValue(idx);
+            }
+        }
+        return null;
+    }
+
+    private static void close(final XMLStreamReader reader) {
+        if (isNull(reader)) {
+            return;
+        }
+        try {
+            reader.close();
+        } catch (final XMLStreamException e) {
+            // Nothing to release, the reader reads from a string
+        }
+    }
+
+    private static final class ElementPosition {
+        private final String localName;
+        private final int position;
+
+        private ElementPosition(final String localName, final int position) {
+            this.localName = localName;
+            this.position = position;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import org.custommonkey.xmlunit.Diff;
+import org.custommonkey.xmlunit.ElementNameAndAttributeQualifier;
+import org.custommonkey.xmlunit.XMLUnit;
+import org.custommonkey.xmlunit.exceptions.ConfigurationException;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.DocumentType;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.ProcessingInstruction;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+import javax.xml.parsers.DocumentBuilder;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static io.github.azagniotov.stubby4j.utils.ObjectUtils.isNotNull;
+import static io.github.azagniotov.stubby4j.utils.ObjectUtils.isNull;
+import static io.github.azagniotov.stubby4j.utils.StringUtils.isNotSet;
+
+/**
+ * A parsed XML document together with its canonical form. A stubbed XML body is parsed once when stubs get loaded, and
+ * an incoming XML body is parsed once per incoming request, no matter how many candidate stubs it is compared with.
+ * <p>
+ * Two trees with the same canonical form are identical, so the canonical forms are compared first. The XMLUnit
+ * similarity diff, which also tolerates e.g.: a different order of sibling elements, only runs when they differ.
+ * <p>
+ * DOM implementations do not guarantee safe concurrent reads, so a tree hands its document over to one owner only (see
+ * {@link #takeDocument()}). A stubbed tree, which is shared between incoming requests, diffs against a document owned
+ * by the current thread, and the asserting document is owned by the match context of the incoming request.
+ */
+final class XmlTree {
+
+    // Malformed bodies are expected, e.g.: regexes that look like XML, they must not be reported on the standard error
+    private static final ErrorHandler SILENT_ERROR_HANDLER = new ErrorHandler() {
+        @Override
+        public void warning(final SAXParseException exception) {
+        }
+
+        @Override
+        public void error(final SAXParseException exception) {
+        }
+
+        @Override
+        public void fatalError(final SAXParseException exception) throws SAXParseException {
+            throw exception;
+        }
+    };
+
+    private final String xml;
+    private final String canonicalForm;
+    private final int canonicalHash;
+    private final ThreadLocal<Document> threadDocument;
+    private Document parsedDocument;
+
+    private XmlTree(final String xml, final Document document) {
+        this.xml = xml;
+        this.canonicalForm = canonicalize(document);
+        this.canonicalHash = canonicalForm.hashCode();
+        this.threadDocument = ThreadLocal.withInitial(this::takeDocument);
+        this.parsedDocument = document;
+    }
+
+    /**
+     * @return the parsed tree of the given XML document, or null if the given value is not a well-formed XML document
+     */
+    static XmlTree parse(final String xml) {
+        if (isNotSet(xml) || !xml.trim().startsWith("<")) {
+            return null;
+        }
+
+        try {
+            return new XmlTree(xml, parseDocument(xml));
+        } catch (final SAXException | IOException | ConfigurationException e) {
+            // Not a well-formed XML, e.g.: a regex that looks like XML. It is matched as a string instead
+            return null;
+        }
+    }
+
+    /**
+     * @param assertingTree     the tree to compare with
+     * @param assertingDocument a document of the asserting tree that is owned by the calling thread, it is only read
+     *                          when the canonical forms differ
+     */
+    boolean matches(final XmlTree assertingTree, final Supplier<Document> assertingDocument) {
+        if (canonicalHash == assertingTree.canonicalHash && canonicalForm.equals(assertingTree.canonicalForm)) {
+            return true;
+        }
+
+        final Document document = threadDocument.get();
+        final Document otherDocument = assertingDocument.get();
+        if (isNull(document) || isNull(otherDocument)) {
+            return false;
+        }
+        final Diff diff = new Diff(document, otherDocument);
+        diff.overrideElementQualifier(new ElementNameAndAttributeQualifier());
+
+        return diff.similar() || diff.identical();
+    }
+
+    /**
+     * @return the document this tree was parsed from, to the first caller, and a newly parsed document to the
+     * callers after it. Either way, the returned document is owned by the caller and is not read by the tree anymore
+     */
+    synchronized Document takeDocument() {
+        if (isNotNull(parsedDocument)) {
+            final Document document = parsedDocument;
+            parsedDocument = null;
+
+            return document;
+        }
+
+        try {
+            return parseDocument(xml);
+        } catch (final SAXException | IOException | ConfigurationException e) {
+            // The same XML was parsed when the tree was created, so this is not expected to happen
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return canonicalForm;
+    }
+
+    private static Document parseDocument(final String xml) throws SAXException, IOException {
+        // XMLUnit configures its control and test parsers alike, unless told otherwise
+        final DocumentBuilder parser = XMLUnit.newControlParser();
+        parser.setErrorHandler(SILENT_ERROR_HANDLER);
+
+        return parser.parse(new InputSource(new StringReader(xml)));
+    }
+
+    /**
+     * Serializes every node that the diff looks at, with attributes sorted by name, since their order is not
+     * significant. Every value is prefixed with its length, so that no two different trees serialize the same
+     */
+    private static String canonicalize(final Document document) {
+        final StringBuilder canonicalForm = new StringBuilder();
+        appendValue(canonicalForm, 'V', document.getXmlVersion());
+        appendValue(canonicalForm, 'S', String.valueOf(document.getXmlStandalone()));
+        appendChildren(canonicalForm, document);
+
+        return canonicalForm.toString();
+    }
+
+    private static void appendChildren(final StringBuilder canonicalForm, final Node parent) {
+        final NodeList children = parent.getChildNodes();
+        for (int idx = 0; idx < children.getLength(); idx++) {
+            appendNode(canonicalForm, children.item(idx));
+        }
+    }
+
+    private static void appendNode(final StringBuilder canonicalForm, final Node node) {
+        switch (node.getNodeType()) {
+            case Node.ELEMENT_NODE:
+                appendValue(canonicalForm, 'E', node.getNodeName());
+                appendValue(canonicalForm, 'N', node.getNamespaceURI());
+                appendAttributes(canonicalForm, node.getAttributes());
+                appendChildren(canonicalForm, node);
+                canonicalForm.append(')');
+                break;
+            case Node.TEXT_NODE:
+                appendValue(canonicalForm, 'T', node.getNodeValue());
+                break;
+            case Node.CDATA_SECTION_NODE:
+                appendValue(canonicalForm, 'C', node.getNodeValue());
+                break;
+            case Node.COMMENT_NODE:
+                appendValue(canonicalForm, '!', node.getNodeValue());
+                break;
+            case Node.PROCESSING_INSTRUCTION_NODE:
+                appendValue(canonicalForm, '?', ((ProcessingInstruction) node).getTarget());
+                appendValue(canonicalForm, '=', ((ProcessingInstruction) node).getData());
+                break;
+            case Node.DOCUMENT_TYPE_NODE:
+                appendValue(canonicalForm, 'D', ((DocumentType) node).getName());
+                appendValue(canonicalForm, 'P', ((DocumentType) node).getPublicId());
+                appendValue(canonicalForm, 'Y', ((DocumentType) node).getSystemId());
+                appendValue(canonicalForm, 'I', ((DocumentType) node).getInternalSubset());
+                break;
+            default:
+                appendValue(canonicalForm, 'R', node.getNodeName());
+                appendChildren(canonicalForm, node);
+                canonicalForm.append(')');
+        }
+    }
+
+    private static void appendAttributes(final StringBuilder canonicalForm, final NamedNodeMap attributes) {
+        final List<Attr> sortedAttributes = new ArrayList<>(attributes.getLength());
+        for (int idx = 0; idx < attributes.getLength(); idx++) {
+            sortedAttributes.add((Attr) attributes.item(idx));
+        }
+        sortedAttributes.sort(Comparator.comparing(Attr::getName));
+
+        for (final Attr attribute : sortedAttributes) {
+            appendValue(canonicalForm, 'A', attribute.getName());
+            appendValue(canonicalForm, 'N', attribute.getNamespaceURI());
+            appendValue(canonicalForm, '=', attribute.getValue());
+        }
+    }
+
+    private static void appendValue(final StringBuilder canonicalForm, final char marker, final String value) {
+        canonicalForm.append(marker);
+        if (isNull(value)) {
+            canonicalForm.append('-');
+        } else {
+            canonicalForm.append(value.length()).append(':').append(value);
+        }
+    }
+}
@@ -103,10 +103,6 @@ public final class FileUtils {
         return temp;
     }
 
-    public static boolean isTemplateFile(final File file) throws IOException {
-        return isCharacterFile(file) && StringUtils.isTokenized(characterFileToString(file));
-    }
-
     public static boolean isFilePathContainTemplateTokens(final File file) {
         return StringUtils.isTokenized(file.getAbsolutePath());
     }
@@ -174,7 +170,7 @@ public final class FileUtils {
         return StringUtils.getBytesUtf8(loadedContent);
     }
 
-    private static boolean isCharacterFile(final File file) throws IOException {
+    public static boolean isCharacterFile(final File file) {
         return ASCII_TYPES.contains(StringUtils.extractFilenameExtension(file.getName()));
     }
 }
@@ -106,6 +106,52 @@ public final class HandlerUtils {
         }
     }
 
+    /**
+     * Parses the codings of an Accept-Encoding header value together with their quality values, e.g.:
+     * <code>gzip;q=0.8, br</code>. A coding without a quality value has one, a coding with a malformed one is not
+     * accepted. The '*' coding stands for gzip, unless gzip is listed on its own.
+     *
+     * @return true if the given Accept-Encoding header value accepts gzip with a non-zero quality value
+     */
+    public static boolean isGzipAccepted(final String acceptEncoding) {
+        if (StringUtils.isNotSet(acceptEncoding)) {
+            return false;
+        }
+
+        Float gzipQuality = null;
+        Float anyQuality = null;
+        for (final String codingAndParams : acceptEncoding.split(",")) {
+            final String[] parts = codingAndParams.split(";");
+            final String coding = StringUtils.toLower(parts[0].trim());
+            final float quality = parseQuality(parts);
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzipQuality = ObjectUtils.isNull(gzipQuality) ? quality : Math.max(gzipQuality, quality);
+            } else if (coding.equals("*")) {
+                anyQuality = quality;
+            }
+        }
+
+        if (ObjectUtils.isNotNull(gzipQuality)) {
+            return gzipQuality > 0;
+        }
+        return ObjectUtils.isNotNull(anyQuality) && anyQuality > 0;
+    }
+
+    private static float parseQuality(final String[] codingParts) {
+        for (int idx = 1; idx < codingParts.length; idx++) {
+            final String param = codingParts[idx].trim();
+            if (param.length() > 2 && StringUtils.toLower(param.substring(0, 2)).equals("q=")) {
+                try {
+                    final float quality = Float.parseFloat(param.substring(2).trim());
+                    return quality >= 0 && quality <= 1 ? quality : 0;
+                } catch (final NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
     public static String calculateStubbyUpTime(final long timestamp) {
         final long days = MILLISECONDS.toDays(timestamp);
         final long hours = MILLISECONDS.toHours(timestamp) - DAYS.toHours(MILLISECONDS.toDays(timestamp));
@@ -37,7 +37,7 @@ import java.util.Map;
 public final class ReflectionUtils {
 
     private static List<String> skipableProperties =
-            Collections.unmodifiableList(Arrays.asList("STUBBY_RESOURCE_ID_HEADER", "regexGroups", "fileBytes"));
+            Collections.unmodifiableList(Arrays.asList("STUBBY_RESOURCE_ID_HEADER", "regexGroups", "fileBytes", "isLargeFile", "compiledRequest", "requestBody", "bodyTemplate", "headerTemplates", "filePathTemplate", "staticResponse"));
 
     private ReflectionUtils() {
 
@@ -0,0 +1,149 @@
+package io.github.azagniotov.stubby4j.utils;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static io.github.azagniotov.stubby4j.utils.ObjectUtils.isNotNull;
+import static io.github.azagniotov.stubby4j.utils.ObjectUtils.isNull;
+import static io.github.azagniotov.stubby4j.utils.StringUtils.getBytesUtf8;
+import static io.github.azagniotov.stubby4j.utils.StringUtils.newStringUtf8;
+
+/**
+ * A response template, e.g.: a response body or header value with <code>&lt;% url.1 %&gt;</code> tokens, parsed
+ * once into a list of segments: chunks of literal UTF-8 bytes and token slots. Rendering is a single pass over the
+ * segments, which writes each chunk as is and each token slot as the value of its captured regex group.
+ * <p>
+ * A token without a captured value is rendered as it was written in the template. A template is immutable and can
+ * be rendered by several threads at the same time.
+ */
+public final class ResponseTemplate {
+
+    private static final String TOKEN_LEFT = "<%";
+    private static final String TOKEN_RIGHT = "%>";
+
+    private final List<Segment> segments;
+    private final int estimatedLength;
+
+    private ResponseTemplate(final List<Segment> segments) {
+        this.segments = Collections.unmodifiableList(segments);
+
+        int estimatedLength = 0;
+        for (final Segment segment : segments) {
+            estimatedLength += segment.bytes.length;
+        }
+        this.estimatedLength = estimatedLength;
+    }
+
+    public static ResponseTemplate compile(final byte[] templateBytes) {
+        return compile(newStringUtf8(templateBytes));
+    }
+
+    public static ResponseTemplate compile(final String template) {
+        final List<Segment> segments = new ArrayList<>();
+        int literalStart = 0;
+        int tokenStart = template.indexOf(TOKEN_LEFT);
+        while (tokenStart >= 0) {
+            final int tokenEnd = template.indexOf(TOKEN_RIGHT, tokenStart + TOKEN_LEFT.length());
+            if (tokenEnd < 0) {
+                break;
+            }
+            // The innermost token start, e.g.: of '<% <% url.1 %>'
+            tokenStart = template.lastIndexOf(TOKEN_LEFT, tokenEnd - TOKEN_LEFT.length());
+            final String tokenName = template.substring(tokenStart + TOKEN_LEFT.length(), tokenEnd).trim();
+            if (isTokenName(tokenName)) {
+                addLiteral(segments, template.substring(literalStart, tokenStart));
+                segments.add(new Segment(tokenName, getBytesUtf8(template.substring(tokenStart, tokenEnd + TOKEN_RIGHT.length()))));
+                literalStart = tokenEnd + TOKEN_RIGHT.length();
+                tokenStart = template.indexOf(TOKEN_LEFT, literalStart);
+            } else {
+                tokenStart = template.indexOf(TOKEN_LEFT, tokenStart + TOKEN_LEFT.length());
+            }
+        }
+        addLiteral(segments, template.substring(literalStart));
+
+        return new ResponseTemplate(segments);
+    }
+
+    /**
+     * @return true if the template has at least one token slot, i.e.: it renders differently depending on the
+     * captured regex groups
+     */
+    public boolean hasTokens() {
+        for (final Segment segment : segments) {
+            if (segment.isToken()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void render(final OutputStream outputStream, final Map<String, String> tokensAndValues) throws IOException {
+        for (final Segment segment : segments) {
+            outputStream.write(segment.render(tokensAndValues));
+        }
+    }
+
+    public byte[] renderToBytes(final Map<String, String> tokensAndValues) {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(estimatedLength);
+        try {
+            render(outputStream, tokensAndValues);
+        } catch (final IOException e) {
+            // A ByteArrayOutputStream does not throw
+            throw new IllegalStateException(e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    public String renderToString(final Map<String, String> tokensAndValues) {
+        return newStringUtf8(renderToBytes(tokensAndValues));
+    }
+
+    private static void addLiteral(final List<Segment> segments, final String literal) {
+        if (!literal.isEmpty()) {
+            segments.add(new Segment(null, getBytesUtf8(literal)));
+        }
+    }
+
+    private static boolean isTokenName(final String value) {
+        if (value.isEmpty()) {
+            return false;
+        }
+        for (int idx = 0; idx < value.length(); idx++) {
+            if (Character.isWhitespace(value.charAt(idx))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Either a chunk of literal bytes, or a token slot that keeps the bytes of the token as it was written
+     */
+    private static final class Segment {
+        private final String tokenName;
+        private final byte[] bytes;
+
+        private Segment(final String tokenName, final byte[] bytes) {
+            this.tokenName = tokenName;
+            this.bytes = bytes;
+        }
+
+        private boolean isToken() {
+            return isNotNull(tokenName);
+        }
+
+        private byte[] render(final Map<String, String> tokensAndValues) {
+            if (!isToken()) {
+                return bytes;
+            }
+            final String value = tokensAndValues.get(tokenName);
+            return isNull(value) ? bytes : getBytesUtf8(value);
+        }
+    }
+}
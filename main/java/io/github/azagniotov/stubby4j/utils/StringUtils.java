@@ -47,9 +47,11 @@ public final class StringUtils {
     private static final CharsetEncoder US_ASCII_ENCODER = Charset.forName("US-ASCII").newEncoder();
 
     private static final String TEMPLATE_TOKEN_LEFT = "<%";
-    private static final String TEMPLATE_TOKEN_RIGHT = "%>";
     private static final Base64.Encoder BASE_64_ENCODER = Base64.getEncoder();
 
+    private static final long FNV_64_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_64_PRIME = 0x100000001b3L;
+
     private StringUtils() {
 
     }
@@ -113,12 +115,8 @@ public final class StringUtils {
         return replaceTokensInString(StringUtils.newStringUtf8(stringBytes), tokensAndValues);
     }
 
-    public static String replaceTokensInString(String template, final Map<String, String> tokensAndValues) {
-        for (final Map.Entry<String, String> entry : tokensAndValues.entrySet()) {
-            final String regexifiedKey = String.format("%s\\s{0,}%s\\s{0,}%s", TEMPLATE_TOKEN_LEFT, entry.getKey(), TEMPLATE_TOKEN_RIGHT);
-            template = template.replaceAll(regexifiedKey, entry.getValue());
-        }
-        return template;
+    public static String replaceTokensInString(final String template, final Map<String, String> tokensAndValues) {
+        return ResponseTemplate.compile(template).renderToString(tokensAndValues);
     }
 
     public static boolean isTokenized(final String target) {
@@ -156,6 +154,16 @@ public final class StringUtils {
         return 0;
     }
 
+    // 64-bit FNV-1a hash over the UTF-16 code units, equal strings always have the same fingerprint
+    public static long calculateFingerprint(final String toFingerprint) {
+        long fingerprint = FNV_64_OFFSET_BASIS;
+        for (int idx = 0; idx < toFingerprint.length(); idx++) {
+            fingerprint ^= toFingerprint.charAt(idx);
+            fingerprint *= FNV_64_PRIME;
+        }
+        return fingerprint;
+    }
+
     public static String objectToString(final Object fieldObject) {
         if (ObjectUtils.isNull(fieldObject)) {
             return NOT_PROVIDED;
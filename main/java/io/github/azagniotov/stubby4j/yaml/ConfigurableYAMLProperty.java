@@ -16,6 +16,8 @@ public enum ConfigurableYAMLProperty {
     LATENCY,
     METHOD,
     POST,
+    POST_MATCHES,
+    POST_REGEX,
     QUERY,
     REQUEST,
     RESPONSE,
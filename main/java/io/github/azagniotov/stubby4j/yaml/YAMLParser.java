@@ -68,8 +68,21 @@ public class YAMLParser {
     static final String FAILED_TO_LOAD_FILE_ERR = "Failed to retrieveLoadedStubs response content using relative path specified in 'file'. Check that response content exists in relative path specified in 'file'";
     private final static Yaml SNAKE_YAML = SnakeYaml.INSTANCE.getSnakeYaml();
     private final AtomicInteger parsedStubCounter = new AtomicInteger();
+    private final long largeFileThreshold;
     private String dataConfigHomeDirectory;
 
+    public YAMLParser() {
+        this(StubResponse.DEFAULT_LARGE_FILE_THRESHOLD);
+    }
+
+    /**
+     * @param largeFileThreshold size in bytes over which a binary response file is not loaded into memory, but is
+     *                           sent from disk on every response (see {@link StubResponse#isLargeFile()})
+     */
+    public YAMLParser(final long largeFileThreshold) {
+        this.largeFileThreshold = largeFileThreshold;
+    }
+
     @CoberturaIgnore
     public List<StubHttpLifecycle> parse(final String dataConfigHomeDirectory, final String configContent) throws IOException {
         return parse(dataConfigHomeDirectory, constructInputStream(configContent));
@@ -128,14 +141,14 @@ public class YAMLParser {
 
     private void parseStubbedRequestConfig(final StubHttpLifecycle.Builder stubBuilder, final Map<String, Object> requestProperties) {
         final StubRequest requestStub = buildReflectableStub(requestProperties, new StubRequest.Builder());
-        requestStub.compileRegexPatternsAndCache();
+        requestStub.compile();
         stubBuilder.withRequest(requestStub);
 
         logUnmarshalledStubRequest(requestStub.getMethod(), requestStub.getUrl());
     }
 
     private void parseStubbedResponseConfig(final StubHttpLifecycle.Builder stubBuilder, final Map<String, Object> responseProperties) {
-        final StubResponse responseStub = buildReflectableStub(responseProperties, new StubResponse.Builder());
+        final StubResponse responseStub = buildReflectableStub(responseProperties, new StubResponse.Builder().withLargeFileThreshold(largeFileThreshold));
         stubBuilder.withResponse(responseStub);
     }
 
@@ -180,7 +193,7 @@ public class YAMLParser {
     private void parseStubbedResponseListConfig(final StubHttpLifecycle.Builder stubBuilder, final Map.Entry<String, Object> httpTypeConfig) {
         final List<Map> responseProperties = asCheckedArrayList(httpTypeConfig.getValue(), Map.class);
 
-        stubBuilder.withResponse(buildStubResponseList(responseProperties, new StubResponse.Builder()));
+        stubBuilder.withResponse(buildStubResponseList(responseProperties, new StubResponse.Builder().withLargeFileThreshold(largeFileThreshold)));
     }
 
     private List<StubResponse> buildStubResponseList(final List<Map> responseProperties, final StubResponse.Builder stubResponseBuilder) {
@@ -27,6 +27,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
 
+import static com.google.common.truth.Truth.assertThat;
 import static io.github.azagniotov.stubby4j.handlers.strategy.stubs.UnauthorizedResponseHandlingStrategy.NO_AUTHORIZATION_HEADER;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -129,10 +130,11 @@ public class StubsPortalHandlerTest {
         final InputStream inputStream = new ByteArrayInputStream("".getBytes());
         when(mockHttpServletRequest.getInputStream()).thenReturn(getServletInputStream(inputStream));
 
-        setUpStubSearchMockExpectations(requestPathInfo);
+        final StubRequest assertionStubRequest = setUpStubSearchMockExpectations(requestPathInfo);
 
         verify(mockHttpServletResponse, never()).setStatus(HttpStatus.BAD_REQUEST_400);
         verify(mockHttpServletResponse, times(1)).setStatus(HttpStatus.OK_200);
+        assertThat(assertionStubRequest.getPostBody()).isEmpty();
     }
 
     @Test
@@ -210,9 +212,10 @@ public class StubsPortalHandlerTest {
         final InputStream inputStream = new ByteArrayInputStream(postData.getBytes());
         when(mockHttpServletRequest.getInputStream()).thenReturn(getServletInputStream(inputStream));
 
-        setUpStubSearchMockExpectations(requestPathInfo);
+        final StubRequest assertionStubRequest = setUpStubSearchMockExpectations(requestPathInfo);
 
         verify(mockHttpServletResponse, times(1)).setStatus(HttpStatus.OK_200);
+        assertThat(assertionStubRequest.getPostBody()).isEqualTo(postData);
     }
 
     @Test
@@ -249,7 +252,7 @@ public class StubsPortalHandlerTest {
         verify(mockPrintWriter, never()).println(SOME_RESULTS_MESSAGE);
     }
 
-    private void setUpStubSearchMockExpectations(final String requestPathInfo) throws Exception {
+    private StubRequest setUpStubSearchMockExpectations(final String requestPathInfo) throws Exception {
         when(mockStubRepository.toStubRequest(mockHttpServletRequest)).thenCallRealMethod();
         final StubRequest assertionStubRequest = mockStubRepository.toStubRequest(mockHttpServletRequest);
 
@@ -259,6 +262,8 @@ public class StubsPortalHandlerTest {
 
         final StubsPortalHandler stubsPortalHandler = new StubsPortalHandler(mockStubRepository);
         stubsPortalHandler.handle(requestPathInfo, mockRequest, mockHttpServletRequest, mockHttpServletResponse);
+
+        return assertionStubRequest;
     }
 
     private ServletInputStream getServletInputStream(final InputStream inputStream) {
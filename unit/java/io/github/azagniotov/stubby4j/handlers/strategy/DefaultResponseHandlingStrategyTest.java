@@ -1,17 +1,19 @@
 package io.github.azagniotov.stubby4j.handlers.strategy;
 
 import io.github.azagniotov.stubby4j.handlers.strategy.stubs.DefaultResponseHandlingStrategy;
+import io.github.azagniotov.stubby4j.stubs.ResponseFileCache;
 import io.github.azagniotov.stubby4j.stubs.StubRequest;
 import io.github.azagniotov.stubby4j.stubs.StubResponse;
 import io.github.azagniotov.stubby4j.utils.HandlerUtils;
+import io.github.azagniotov.stubby4j.utils.ResponseTemplate;
 import io.github.azagniotov.stubby4j.utils.StringUtils;
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpStatus;
 import org.eclipse.jetty.http.HttpStatus.Code;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
@@ -19,8 +21,11 @@ import org.mockito.junit.MockitoJUnitRunner;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.file.Files;
 import java.util.HashMap;
 import java.util.TreeMap;
 import java.util.UUID;
@@ -28,6 +33,9 @@ import java.util.UUID;
 import static com.google.common.truth.Truth.assertThat;
 import static io.github.azagniotov.stubby4j.utils.StringUtils.getBytesUtf8;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -71,9 +79,13 @@ public class DefaultResponseHandlingStrategyTest {
     @Mock
     private HttpServletResponse mockHttpServletResponse;
 
-    @InjectMocks
     private DefaultResponseHandlingStrategy defaultResponseHandlingStrategy;
 
+    @Before
+    public void setUp() throws Exception {
+        defaultResponseHandlingStrategy = new DefaultResponseHandlingStrategy(mockStubResponse, new ResponseFileCache(10240, 1024, 0));
+    }
+
     @Test
     public void shouldVerifyBehaviourWhenHandlingDefaultResponseWithoutLatency() throws Exception {
         when(mockStubResponse.getHttpStatusCode()).thenReturn(Code.OK);
@@ -129,6 +141,9 @@ public class DefaultResponseHandlingStrategyTest {
         when(mockStubResponse.getHeaders()).thenReturn(new HashMap<String, String>() {{
             put("Location", headerValuePrefix + "<%post.1%>");
         }});
+        when(mockStubResponse.getHeaderTemplates()).thenReturn(new HashMap<String, ResponseTemplate>() {{
+            put("Location", ResponseTemplate.compile(headerValuePrefix + "<%post.1%>"));
+        }});
         when(mockStubResponse.getResponseBodyAsBytes()).thenReturn(getBytesUtf8(SOME_RESULTS_MESSAGE));
 
         defaultResponseHandlingStrategy.handle(mockHttpServletResponse, mockAssertionRequest);
@@ -148,21 +163,49 @@ public class DefaultResponseHandlingStrategyTest {
         }});
 
         when(mockStubResponse.isFilePathContainsTemplateTokens()).thenReturn(true);
-        when(mockStubResponse.getRawFileAbsolutePath()).thenReturn("./resources/json-test-file.json");
+        when(mockStubResponse.getFilePathTemplate()).thenReturn(ResponseTemplate.compile("./resources/json-test-file.json"));
 
         defaultResponseHandlingStrategy.handle(mockHttpServletResponse, mockAssertionRequest);
 
         ArgumentCaptor<byte[]> responseCaptor = ArgumentCaptor.forClass(byte[].class);
 
         verify(mockHttpServletResponse, times(1)).getOutputStream();
-        verify(mockOutputStream, times(1)).write(responseCaptor.capture());
+        verify(mockOutputStream, atLeastOnce()).write(responseCaptor.capture());
 
-        String response = new String(responseCaptor.getValue(), StringUtils.charsetUTF8());
+        final ByteArrayOutputStream renderedResponse = new ByteArrayOutputStream();
+        for (final byte[] renderedChunk : responseCaptor.getAllValues()) {
+            renderedResponse.write(renderedChunk);
+        }
+        String response = new String(renderedResponse.toByteArray(), StringUtils.charsetUTF8());
 
         assertTrue("Response's tokens have been parsed", response.contains(nonce));
 
     }
 
+    @Test
+    public void shouldSendFileFromDisk_WhenResponseFileIsLarge() throws Exception {
+        final File largeFile = File.createTempFile("tmp", ".pdf");
+        largeFile.deleteOnExit();
+        Files.write(largeFile.toPath(), getBytesUtf8(SOME_RESULTS_MESSAGE));
+
+        when(mockStubResponse.getHttpStatusCode()).thenReturn(Code.OK);
+        when(mockHttpServletResponse.getOutputStream()).thenReturn(mockOutputStream);
+        when(mockStubResponse.isLargeFile()).thenReturn(true);
+        when(mockStubResponse.getRawFile()).thenReturn(largeFile);
+
+        defaultResponseHandlingStrategy.handle(mockHttpServletResponse, mockAssertionRequest);
+
+        final ArgumentCaptor<byte[]> responseCaptor = ArgumentCaptor.forClass(byte[].class);
+        final ArgumentCaptor<Integer> lengthCaptor = ArgumentCaptor.forClass(Integer.class);
+
+        verify(mockHttpServletResponse, times(1)).setContentLengthLong(SOME_RESULTS_MESSAGE.length());
+        verify(mockStubResponse, never()).getResponseBodyAsBytes();
+        verify(mockOutputStream, atLeastOnce()).write(responseCaptor.capture(), eq(0), lengthCaptor.capture());
+
+        final String response = new String(responseCaptor.getValue(), 0, lengthCaptor.getValue(), StringUtils.charsetUTF8());
+        assertThat(response).isEqualTo(SOME_RESULTS_MESSAGE);
+    }
+
     private void verifyMainHeaders(final HttpServletResponse mockHttpServletResponse) throws Exception {
         verify(mockHttpServletResponse, times(1)).setHeader(HttpHeader.SERVER.asString(), HandlerUtils.constructHeaderServerName());
         verify(mockHttpServletResponse, times(1)).setHeader(HttpHeader.CONTENT_TYPE.asString(), "text/html;charset=UTF-8");
@@ -6,6 +6,7 @@ import io.github.azagniotov.stubby4j.handlers.strategy.stubs.RedirectResponseHan
 import io.github.azagniotov.stubby4j.handlers.strategy.stubs.StubResponseHandlingStrategy;
 import io.github.azagniotov.stubby4j.handlers.strategy.stubs.StubsResponseHandlingStrategyFactory;
 import io.github.azagniotov.stubby4j.handlers.strategy.stubs.UnauthorizedResponseHandlingStrategy;
+import io.github.azagniotov.stubby4j.stubs.ResponseFileCache;
 import io.github.azagniotov.stubby4j.stubs.StubResponse;
 import org.eclipse.jetty.http.HttpStatus.Code;
 import org.junit.Test;
@@ -17,11 +18,13 @@ import static com.google.common.truth.Truth.assertThat;
 
 public class HandlingStrategyFactoryTest {
 
+    private static final ResponseFileCache RESPONSE_FILE_CACHE = new ResponseFileCache(10240, 1024, 0);
+
     @Test
     public void shouldIdentifyResponseStrategyForDefaultResponse() throws Exception {
         final StubResponse stubResponse = StubResponse.okResponse();
 
-        final StubResponseHandlingStrategy stubResponseHandlingStrategy = StubsResponseHandlingStrategyFactory.getStrategy(stubResponse);
+        final StubResponseHandlingStrategy stubResponseHandlingStrategy = StubsResponseHandlingStrategyFactory.getStrategy(stubResponse, RESPONSE_FILE_CACHE);
         assertThat(stubResponseHandlingStrategy).isInstanceOf(DefaultResponseHandlingStrategy.class);
     }
 
@@ -29,7 +32,7 @@ public class HandlingStrategyFactoryTest {
     public void shouldIdentifyResponseStrategyForNotFoundResponse() throws Exception {
         final StubResponse stubResponse = StubResponse.notFoundResponse();
 
-        final StubResponseHandlingStrategy stubResponseHandlingStrategy = StubsResponseHandlingStrategyFactory.getStrategy(stubResponse);
+        final StubResponseHandlingStrategy stubResponseHandlingStrategy = StubsResponseHandlingStrategyFactory.getStrategy(stubResponse, RESPONSE_FILE_CACHE);
         assertThat(stubResponseHandlingStrategy).isInstanceOf(NotFoundResponseHandlingStrategy.class);
     }
 
@@ -37,7 +40,7 @@ public class HandlingStrategyFactoryTest {
     public void shouldIdentifyResponseStrategyForUnauthorizedResponse() throws Exception {
         final StubResponse stubResponse = StubResponse.unauthorizedResponse();
 
-        final StubResponseHandlingStrategy stubResponseHandlingStrategy = StubsResponseHandlingStrategyFactory.getStrategy(stubResponse);
+        final StubResponseHandlingStrategy stubResponseHandlingStrategy = StubsResponseHandlingStrategyFactory.getStrategy(stubResponse, RESPONSE_FILE_CACHE);
         assertThat(stubResponseHandlingStrategy).isInstanceOf(UnauthorizedResponseHandlingStrategy.class);
     }
 
@@ -45,7 +48,7 @@ public class HandlingStrategyFactoryTest {
     public void shouldIdentifyResponseStrategyForRedirectResponseWhenFoundStubResponseNull() throws Exception {
         final StubResponse stubResponse = StubResponse.redirectResponse(Optional.empty());
 
-        final StubResponseHandlingStrategy stubResponseHandlingStrategy = StubsResponseHandlingStrategyFactory.getStrategy(stubResponse);
+        final StubResponseHandlingStrategy stubResponseHandlingStrategy = StubsResponseHandlingStrategyFactory.getStrategy(stubResponse, RESPONSE_FILE_CACHE);
         assertThat(stubResponseHandlingStrategy).isInstanceOf(RedirectResponseHandlingStrategy.class);
     }
 
@@ -57,7 +60,7 @@ public class HandlingStrategyFactoryTest {
                         .build());
         final StubResponse stubResponse = StubResponse.redirectResponse(stubResponseOptional);
 
-        final StubResponseHandlingStrategy stubResponseHandlingStrategy = StubsResponseHandlingStrategyFactory.getStrategy(stubResponse);
+        final StubResponseHandlingStrategy stubResponseHandlingStrategy = StubsResponseHandlingStrategyFactory.getStrategy(stubResponse, RESPONSE_FILE_CACHE);
         assertThat(stubResponseHandlingStrategy).isInstanceOf(RedirectResponseHandlingStrategy.class);
     }
 
@@ -69,7 +72,7 @@ public class HandlingStrategyFactoryTest {
                         .build());
         final StubResponse stubResponse = StubResponse.redirectResponse(stubResponseOptional);
 
-        final StubResponseHandlingStrategy stubResponseHandlingStrategy = StubsResponseHandlingStrategyFactory.getStrategy(stubResponse);
+        final StubResponseHandlingStrategy stubResponseHandlingStrategy = StubsResponseHandlingStrategyFactory.getStrategy(stubResponse, RESPONSE_FILE_CACHE);
         assertThat(stubResponseHandlingStrategy).isInstanceOf(RedirectResponseHandlingStrategy.class);
     }
 
@@ -81,7 +84,7 @@ public class HandlingStrategyFactoryTest {
                         .build());
         final StubResponse stubResponse = StubResponse.redirectResponse(stubResponseOptional);
 
-        final StubResponseHandlingStrategy stubResponseHandlingStrategy = StubsResponseHandlingStrategyFactory.getStrategy(stubResponse);
+        final StubResponseHandlingStrategy stubResponseHandlingStrategy = StubsResponseHandlingStrategyFactory.getStrategy(stubResponse, RESPONSE_FILE_CACHE);
         assertThat(stubResponseHandlingStrategy).isInstanceOf(RedirectResponseHandlingStrategy.class);
     }
 
@@ -93,7 +96,7 @@ public class HandlingStrategyFactoryTest {
                         .build());
         final StubResponse stubResponse = StubResponse.redirectResponse(stubResponseOptional);
 
-        final StubResponseHandlingStrategy stubResponseHandlingStrategy = StubsResponseHandlingStrategyFactory.getStrategy(stubResponse);
+        final StubResponseHandlingStrategy stubResponseHandlingStrategy = StubsResponseHandlingStrategyFactory.getStrategy(stubResponse, RESPONSE_FILE_CACHE);
         assertThat(stubResponseHandlingStrategy).isInstanceOf(RedirectResponseHandlingStrategy.class);
     }
 
@@ -105,7 +108,7 @@ public class HandlingStrategyFactoryTest {
                         .build());
         final StubResponse stubResponse = StubResponse.redirectResponse(stubResponseOptional);
 
-        final StubResponseHandlingStrategy stubResponseHandlingStrategy = StubsResponseHandlingStrategyFactory.getStrategy(stubResponse);
+        final StubResponseHandlingStrategy stubResponseHandlingStrategy = StubsResponseHandlingStrategyFactory.getStrategy(stubResponse, RESPONSE_FILE_CACHE);
         assertThat(stubResponseHandlingStrategy).isInstanceOf(RedirectResponseHandlingStrategy.class);
     }
 
@@ -117,7 +120,7 @@ public class HandlingStrategyFactoryTest {
                         .build());
         final StubResponse stubResponse = StubResponse.redirectResponse(stubResponseOptional);
 
-        final StubResponseHandlingStrategy stubResponseHandlingStrategy = StubsResponseHandlingStrategyFactory.getStrategy(stubResponse);
+        final StubResponseHandlingStrategy stubResponseHandlingStrategy = StubsResponseHandlingStrategyFactory.getStrategy(stubResponse, RESPONSE_FILE_CACHE);
         assertThat(stubResponseHandlingStrategy).isInstanceOf(RedirectResponseHandlingStrategy.class);
     }
 }
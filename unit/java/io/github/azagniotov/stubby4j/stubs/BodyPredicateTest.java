@@ -0,0 +1,122 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class BodyPredicateTest {
+
+    private static final String JSON_ORDER =
+            "{\"order\": {\"id\": 42, \"status\": \"NEW\", \"paid\": false, \"note\": null," +
+                    " \"items\": [{\"sku\": \"A-1\", \"qty\": 2}, {\"sku\": \"B \\\"2\\\"\", \"qty\": 1.5}]," +
+                    " \"tags\": [\"x\", \"y\"]}}";
+
+    private static final String XML_ORDER =
+            "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>" +
+                    "<order id=\"42\" status=\"NEW\"><item sku=\"A-1\">2</item><item sku=\"B-2\"><![CDATA[1]]></item>" +
+                    "<note>  fragile </note></order></soap:Body></soap:Envelope>";
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Test
+    public void allMatch_ShouldMatchJsonPathPredicates() throws Exception {
+        assertThat(allMatch(JSON_ORDER, "$.order.id == 42")).isTrue();
+        assertThat(allMatch(JSON_ORDER, "$.order.id == 42.0", "$['order']['status'] == \"NEW\"")).isTrue();
+        assertThat(allMatch(JSON_ORDER, "$.order.status == NEW", "$.order.paid == false", "$.order.note == null")).isTrue();
+        assertThat(allMatch(JSON_ORDER, "$.order.items[1].sku == 'B \"2\"'", "$.order.items[1].qty == 1.5")).isTrue();
+        assertThat(allMatch(JSON_ORDER, "$.order.items", "$.order.tags[1] == 'y'", "$")).isTrue();
+    }
+
+    @Test
+    public void allMatch_ShouldNotMatchJsonPathPredicates_WhenValueDiffersOrIsMissing() throws Exception {
+        assertThat(allMatch(JSON_ORDER, "$.order.id == 43")).isFalse();
+        assertThat(allMatch(JSON_ORDER, "$.order.id == '42'")).isFalse();
+        assertThat(allMatch(JSON_ORDER, "$.order.paid == 'false'")).isFalse();
+        assertThat(allMatch(JSON_ORDER, "$.order.items == 2")).isFalse();
+        assertThat(allMatch(JSON_ORDER, "$.order.items[2].sku")).isFalse();
+        assertThat(allMatch(JSON_ORDER, "$.order.id == 42", "$.order.customer")).isFalse();
+    }
+
+    @Test
+    public void allMatch_ShouldStopScanning_WhenAllJsonPathPredicatesAreDecided() throws Exception {
+        final String truncatedJson = "{\"order\": {\"id\": 42, \"items\": [{\"sku\": ";
+
+        assertThat(allMatch(truncatedJson, "$.order.id == 42")).isTrue();
+        assertThat(allMatch(truncatedJson, "$.order.id == 41", "$.order.items[0].sku")).isFalse();
+        assertThat(allMatch(truncatedJson, "$.order.items[0].sku")).isFalse();
+    }
+
+    @Test
+    public void allMatch_ShouldNotMatchJsonPathPredicates_WhenBodyIsNotJson() throws Exception {
+        assertThat(allMatch(XML_ORDER, "$.order.id")).isFalse();
+        assertThat(allMatch(null, "$.order.id")).isFalse();
+        assertThat(allMatch("{\"order\" 42}", "$.order")).isFalse();
+    }
+
+    @Test
+    public void allMatch_ShouldMatchXPathPredicates() throws Exception {
+        assertThat(allMatch(XML_ORDER, "/Envelope/Body/order/@id == 42")).isTrue();
+        assertThat(allMatch(XML_ORDER, "/soap:Envelope/soap:Body/order/@status == 'NEW'")).isTrue();
+        assertThat(allMatch(XML_ORDER, "/Envelope/Body/order/item == 1", "/Envelope/Body/order/item[1]/@sku == A-1")).isTrue();
+        assertThat(allMatch(XML_ORDER, "/Envelope/Body/order/item[2] == 1", "/Envelope/Body/order/note/text() == '  fragile '")).isTrue();
+        assertThat(allMatch(XML_ORDER, "/Envelope/Body/order/note", "/Envelope/Body/order")).isTrue();
+    }
+
+    @Test
+    public void allMatch_ShouldNotMatchXPathPredicates_WhenValueDiffersOrIsMissing() throws Exception {
+        assertThat(allMatch(XML_ORDER, "/Envelope/Body/order/@id == 43")).isFalse();
+        assertThat(allMatch(XML_ORDER, "/Envelope/Body/order/item[2] == 2")).isFalse();
+        assertThat(allMatch(XML_ORDER, "/Envelope/Body/order/note == 'fragile'")).isFalse();
+        assertThat(allMatch(XML_ORDER, "/Envelope/Body/order/@customer")).isFalse();
+        assertThat(allMatch(XML_ORDER, "/Body/order")).isFalse();
+        assertThat(allMatch(JSON_ORDER, "/order")).isFalse();
+    }
+
+    @Test
+    public void allMatch_ShouldEvaluateJsonPathAndXPathPredicatesSeparately() throws Exception {
+        assertThat(allMatch(JSON_ORDER, "$.order.id == 42", "/order/@id == 42")).isFalse();
+    }
+
+    @Test
+    public void allMatch_ShouldMatchAnyBody_WhenNoPredicates() throws Exception {
+        assertThat(allMatch(null)).isTrue();
+        assertThat(allMatch("anything")).isTrue();
+    }
+
+    @Test
+    public void compile_ShouldThrow_WhenJsonPathSubscriptIsInvalid() throws Exception {
+        expectedException.expect(IllegalStateException.class);
+        expectedException.expectMessage("Invalid post_matches predicate [$.items[*].sku]: the subscript must be either a quoted member name or an array index");
+
+        BodyPredicate.compile(Arrays.asList("$.items[*].sku"));
+    }
+
+    @Test
+    public void compile_ShouldThrow_WhenXPathStepIsUnsupported() throws Exception {
+        expectedException.expect(IllegalStateException.class);
+        expectedException.expectMessage("Invalid post_matches predicate [//order/@id]: unsupported step ''");
+
+        BodyPredicate.compile(Arrays.asList("//order/@id"));
+    }
+
+    @Test
+    public void compile_ShouldThrow_WhenXPathStepPositionIsNotClosed() throws Exception {
+        expectedException.expect(IllegalStateException.class);
+        expectedException.expectMessage("Invalid post_matches predicate [/a[]: the position of step 'a[' must be a number from 1");
+
+        BodyPredicate.compile(Arrays.asList("/a["));
+    }
+
+    private static boolean allMatch(final String body, final String... expressions) {
+        final List<BodyPredicate> predicates = BodyPredicate.compile(Arrays.asList(expressions));
+
+        return BodyPredicate.allMatch(predicates, body);
+    }
+}
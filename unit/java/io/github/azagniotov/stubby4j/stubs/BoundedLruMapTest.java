@@ -0,0 +1,68 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class BoundedLruMapTest {
+
+    @Test
+    public void put_ShouldEvictLeastRecentlyAccessedEntries_WhenOverCapacity() throws Exception {
+        final BoundedLruMap<String, Value> boundedLruMap = new BoundedLruMap<>(3);
+        boundedLruMap.put("first", new Value(1));
+        boundedLruMap.put("second", new Value(1));
+        boundedLruMap.put("third", new Value(1));
+        boundedLruMap.get("first");
+
+        boundedLruMap.put("fourth", new Value(1));
+
+        assertThat(boundedLruMap.size()).isAtMost(3);
+        assertThat(boundedLruMap.containsKey("first")).isTrue();
+        assertThat(boundedLruMap.containsKey("second")).isFalse();
+        assertThat(boundedLruMap.containsKey("fourth")).isTrue();
+    }
+
+    @Test
+    public void put_ShouldEvictByWeight_WhenValuesWeighMoreThanOne() throws Exception {
+        final BoundedLruMap<String, Value> boundedLruMap = new BoundedLruMap<>(100);
+        boundedLruMap.put("light", new Value(10));
+        boundedLruMap.put("heavy", new Value(60));
+        boundedLruMap.get("light");
+
+        boundedLruMap.put("heavier", new Value(40));
+
+        assertThat(boundedLruMap.weight()).isEqualTo(50L);
+        assertThat(boundedLruMap.containsKey("heavy")).isFalse();
+        assertThat(boundedLruMap.containsKey("light")).isTrue();
+    }
+
+    @Test
+    public void weight_ShouldTrackReplacedAndRemovedValues() throws Exception {
+        final BoundedLruMap<String, Value> boundedLruMap = new BoundedLruMap<>(100);
+        boundedLruMap.put("key", new Value(10));
+        boundedLruMap.put("key", new Value(30));
+        boundedLruMap.put("other", new Value(5));
+        assertThat(boundedLruMap.weight()).isEqualTo(35L);
+
+        boundedLruMap.remove("key");
+        assertThat(boundedLruMap.weight()).isEqualTo(5L);
+
+        boundedLruMap.removeIf(value -> value.weight == 5);
+        assertThat(boundedLruMap.size()).isEqualTo(0);
+        assertThat(boundedLruMap.weight()).isEqualTo(0L);
+    }
+
+    private static final class Value extends BoundedLruMap.Entry {
+        private final long weight;
+
+        private Value(final long weight) {
+            this.weight = weight;
+        }
+
+        @Override
+        long weight() {
+            return weight;
+        }
+    }
+}
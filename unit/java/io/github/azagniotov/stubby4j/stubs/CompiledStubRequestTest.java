@@ -0,0 +1,153 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class CompiledStubRequestTest {
+
+    private StubRequest.Builder requestBuilder;
+    private StubMatchContext matchContext;
+
+    @Before
+    public void setUp() throws Exception {
+        requestBuilder = new StubRequest.Builder();
+        matchContext = new StubMatchContext(RegexParser.DEFAULT_STEP_BUDGET);
+    }
+
+    @Test
+    public void methodsMatch_ShouldMatchStandardAndCustomMethods() throws Exception {
+        final StubRequest stubbedRequest = requestBuilder
+                .withMethod("get")
+                .withMethod("PURGE")
+                .build();
+        final CompiledStubRequest compiledRequest = new CompiledStubRequest(stubbedRequest);
+
+        assertThat(compiledRequest.getMethod()).containsExactly("GET", "PURGE");
+        assertThat(compiledRequest.methodsMatch(Arrays.asList("GET"))).isTrue();
+        assertThat(compiledRequest.methodsMatch(Arrays.asList("PURGE"))).isTrue();
+        assertThat(compiledRequest.methodsMatch(Arrays.asList("POST"))).isFalse();
+        assertThat(compiledRequest.methodsMatch(new ArrayList<>())).isFalse();
+    }
+
+    @Test
+    public void methodsMatch_ShouldMatchAnyMethod_WhenNoMethodStubbed() throws Exception {
+        final CompiledStubRequest compiledRequest = new CompiledStubRequest(requestBuilder.build());
+
+        assertThat(compiledRequest.methodsMatch(Arrays.asList("DELETE"))).isTrue();
+    }
+
+    @Test
+    public void headersMatch_ShouldIgnoreStubbedAuthorizationHeaders() throws Exception {
+        final StubRequest stubbedRequest = requestBuilder
+                .withHeader("X-Api-Key", "secret")
+                .withHeader(StubbableAuthorizationType.BEARER.asYAMLProp(), "token")
+                .build();
+        final CompiledStubRequest compiledRequest = new CompiledStubRequest(stubbedRequest);
+
+        final Map<String, String> assertingHeaders = new HashMap<>();
+        assertingHeaders.put("x-api-key", "secret");
+
+        assertThat(compiledRequest.getHeaders().toString()).isEqualTo("{x-api-key=secret}");
+        assertThat(compiledRequest.getHeaders().matches(assertingHeaders, matchContext)).isTrue();
+    }
+
+    @Test
+    public void compiledValue_ShouldCaptureWholeValueAsFirstGroup_WhenLiteralValueMatched() throws Exception {
+        final CompiledStubRequest.CompiledValue compiledValue = new CompiledStubRequest.CompiledValue("url", "/api/users");
+
+        assertThat(compiledValue.matches("/api/users", matchContext)).isTrue();
+        assertThat(matchContext.captureRegexGroups()).containsExactly("url.0", "/api/users");
+    }
+
+    @Test
+    public void compiledValue_ShouldCaptureRegexGroups_WhenRegexValueMatched() throws Exception {
+        final CompiledStubRequest.CompiledValue compiledValue = new CompiledStubRequest.CompiledValue("url", "/api/users/([0-9]+)");
+
+        assertThat(compiledValue.matches("/api/users/abc", matchContext)).isFalse();
+        assertThat(compiledValue.matches("/api/users/123", matchContext)).isTrue();
+        assertThat(matchContext.captureRegexGroups()).containsExactly("url.0", "/api/users/123", "url.1", "123");
+    }
+
+    @Test
+    public void compiledValue_ShouldClassifyValueOnce_WhenCompiled() throws Exception {
+        assertThat(new CompiledStubRequest.CompiledValue("url", "/api/users").getKind()).isEqualTo(CompiledStubRequest.ValueKind.LITERAL);
+        assertThat(new CompiledStubRequest.CompiledValue("url", "^/api/.*$").getKind()).isEqualTo(CompiledStubRequest.ValueKind.PREFIX);
+        assertThat(new CompiledStubRequest.CompiledValue("url", "/api/.*").getKind()).isEqualTo(CompiledStubRequest.ValueKind.PREFIX);
+        assertThat(new CompiledStubRequest.CompiledValue("url", "^/api/(.*)$").getKind()).isEqualTo(CompiledStubRequest.ValueKind.REGEX);
+        assertThat(new CompiledStubRequest.CompiledValue("url", "^/api.v1/.*$").getKind()).isEqualTo(CompiledStubRequest.ValueKind.REGEX);
+    }
+
+    @Test
+    public void compiledValue_ShouldMatchLikeRegex_WhenPrefixValueMatched() throws Exception {
+        final CompiledStubRequest.CompiledValue compiledValue = new CompiledStubRequest.CompiledValue("url", "^/api/.*$");
+
+        assertThat(compiledValue.matches("/api", matchContext)).isFalse();
+        assertThat(compiledValue.matches("/api/users\nid", matchContext)).isFalse();
+        assertThat(compiledValue.matches("/api/", matchContext)).isTrue();
+        assertThat(compiledValue.matches("/api/users/1", matchContext)).isTrue();
+        assertThat(matchContext.captureRegexGroups()).containsExactly("url.0", "/api/users/1");
+    }
+
+    @Test
+    public void compiledValue_ShouldMatchValueAsLiteral_WhenRegexExceedsStepBudgetOnIt() throws Exception {
+        final String catastrophicRegex = "^(a+)+$";
+        final String catastrophicValue = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa!";
+
+        final long stepBudget = 100_000;
+        final StubMatchContext budgetedMatchContext = new StubMatchContext(stepBudget);
+        final CompiledStubRequest.CompiledValue compiledValue = new CompiledStubRequest.CompiledValue("post", catastrophicRegex);
+
+        assertThat(compiledValue.matches("aaaa", budgetedMatchContext)).isTrue();
+        assertThat(compiledValue.matches(catastrophicValue, budgetedMatchContext)).isFalse();
+        assertThat(compiledValue.matches(catastrophicValue, stepBudget)).isFalse();
+        assertThat(compiledValue.matches(catastrophicRegex, budgetedMatchContext)).isTrue();
+
+        // An overrun does not affect the values matched after it
+        assertThat(compiledValue.matches("aaaa", budgetedMatchContext)).isTrue();
+        assertThat(compiledValue.matches("aaaa", stepBudget)).isTrue();
+    }
+
+    @Test
+    public void compiledValue_ShouldMatchByEquality_WhenValueIsNotValidRegex() throws Exception {
+        final CompiledStubRequest.CompiledValue compiledValue = new CompiledStubRequest.CompiledValue("post", "{\"names\": [\"a\"");
+
+        assertThat(compiledValue.matches("{\"names\": [\"a\"", matchContext)).isTrue();
+    }
+
+    @Test
+    public void compiledValue_ShouldMatchOnlyLiterally_WhenRegexNotAllowed() throws Exception {
+        final CompiledStubRequest.CompiledValue compiledValue = new CompiledStubRequest.CompiledValue("post", "amount=$10.00?", false);
+
+        assertThat(compiledValue.getKind()).isEqualTo(CompiledStubRequest.ValueKind.LITERAL);
+        assertThat(compiledValue.matches("amount=$10.00?", matchContext)).isTrue();
+        assertThat(compiledValue.matches("amount=", matchContext)).isFalse();
+    }
+
+    @Test
+    public void getEscapedPost_ShouldReturnPost_WhenPostOptedOutOfRegex() throws Exception {
+        final StubRequest stubbedRequest = requestBuilder
+                .withPost("{\"amount\": \"$10.00\"}")
+                .withPostRegex(false)
+                .build();
+        final CompiledStubRequest compiledRequest = new CompiledStubRequest(stubbedRequest);
+
+        assertThat(compiledRequest.getPost().getKind()).isEqualTo(CompiledStubRequest.ValueKind.LITERAL);
+        assertThat(compiledRequest.getEscapedPost()).isSameAs(compiledRequest.getPost());
+    }
+
+    @Test
+    public void compiledValue_ShouldMatchAnything_WhenValueNotStubbed() throws Exception {
+        final CompiledStubRequest.CompiledValue compiledValue = new CompiledStubRequest.CompiledValue("url", null);
+
+        assertThat(compiledValue.matches(null, matchContext)).isTrue();
+        assertThat(compiledValue.matches("/api/users", matchContext)).isTrue();
+    }
+}
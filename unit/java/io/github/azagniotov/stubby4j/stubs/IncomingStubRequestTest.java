@@ -0,0 +1,114 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayInputStream;
+import java.util.Collections;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class IncomingStubRequestTest {
+
+    @Mock
+    private HttpServletRequest mockHttpServletRequest;
+
+    @Test
+    public void shouldNotReadHeadersQueryOrBody_WhenOnlyUrlAndMethodRequested() throws Exception {
+        when(mockHttpServletRequest.getPathInfo()).thenReturn("/api/users");
+        when(mockHttpServletRequest.getMethod()).thenReturn("POST");
+
+        final StubRequest incomingRequest = new IncomingStubRequest(mockHttpServletRequest);
+
+        assertThat(incomingRequest.getUri()).isEqualTo("/api/users");
+        assertThat(incomingRequest.getMethod()).containsExactly("POST");
+        verify(mockHttpServletRequest, never()).getHeaderNames();
+        verify(mockHttpServletRequest, never()).getQueryString();
+        verify(mockHttpServletRequest, never()).getInputStream();
+    }
+
+    @Test
+    public void shouldNotReadHeadersQueryOrBody_WhenSearchedWithUrlAndMethodOnlyStub() throws Exception {
+        when(mockHttpServletRequest.getPathInfo()).thenReturn("/api/users");
+        when(mockHttpServletRequest.getMethod()).thenReturn("POST");
+
+        final StubRequest stubbedRequest = new StubRequest.Builder().withUrl("/api/users").withMethodPost().build();
+        final StubRequest incomingRequest = new IncomingStubRequest(mockHttpServletRequest);
+
+        assertThat(new StubMatcher(true, RegexParser.DEFAULT_STEP_BUDGET).matches(stubbedRequest, incomingRequest)).isTrue();
+        new StubMatchCache(1, 1).put(new StubIndex(Collections.singletonList(new StubHttpLifecycle.Builder()
+                .withRequest(stubbedRequest).withResponse(StubResponse.okResponse()).build()), RegexParser.DEFAULT_STEP_BUDGET), incomingRequest, null);
+        verify(mockHttpServletRequest, never()).getHeaderNames();
+        verify(mockHttpServletRequest, never()).getQueryString();
+        verify(mockHttpServletRequest, never()).getInputStream();
+    }
+
+    @Test
+    public void shouldReadHeadersQueryAndBodyOnce_WhenRequestedRepeatedly() throws Exception {
+        when(mockHttpServletRequest.getPathInfo()).thenReturn("/api/users");
+        when(mockHttpServletRequest.getMethod()).thenReturn("POST");
+        when(mockHttpServletRequest.getHeaderNames()).thenReturn(Collections.enumeration(Collections.singletonList("Content-Type")));
+        when(mockHttpServletRequest.getHeader("Content-Type")).thenReturn("application/json");
+        when(mockHttpServletRequest.getQueryString()).thenReturn("page=1");
+        when(mockHttpServletRequest.getInputStream()).thenReturn(toServletInputStream("{\"name\": \"stubby4j\"}"));
+
+        final StubRequest incomingRequest = new IncomingStubRequest(mockHttpServletRequest);
+
+        for (int idx = 0; idx < 2; idx++) {
+            assertThat(incomingRequest.getHeaders()).containsExactly("content-type", "application/json");
+            assertThat(incomingRequest.getQuery()).containsExactly("page", "1");
+            assertThat(incomingRequest.getPostBody()).isEqualTo("{\"name\": \"stubby4j\"}");
+        }
+        assertThat(incomingRequest.getUrl()).isEqualTo("/api/users?page=1");
+
+        verify(mockHttpServletRequest, times(1)).getHeaderNames();
+        verify(mockHttpServletRequest, times(1)).getQueryString();
+        verify(mockHttpServletRequest, times(1)).getInputStream();
+    }
+
+    @Test
+    public void shouldNotReadBody_WhenRequestMethodIsNotPosting() throws Exception {
+        when(mockHttpServletRequest.getMethod()).thenReturn("GET");
+
+        final StubRequest incomingRequest = new IncomingStubRequest(mockHttpServletRequest);
+
+        assertThat(incomingRequest.getPost()).isNull();
+        verify(mockHttpServletRequest, never()).getInputStream();
+    }
+
+    private ServletInputStream toServletInputStream(final String content) {
+        final ByteArrayInputStream inputStream = new ByteArrayInputStream(content.getBytes());
+        return new ServletInputStream() {
+            @Override
+            public int read() {
+                return inputStream.read();
+            }
+
+            @Override
+            public boolean isFinished() {
+                return inputStream.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(final ReadListener readListener) {
+
+            }
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class JsonTreeTest {
+
+    @Test
+    public void parse_ShouldReturnNull_WhenValueIsNotJsonObjectOrArray() throws Exception {
+        assertThat(JsonTree.parse(null)).isNull();
+        assertThat(JsonTree.parse("")).isNull();
+        assertThat(JsonTree.parse("name=John")).isNull();
+        assertThat(JsonTree.parse("\"just a string\"")).isNull();
+        assertThat(JsonTree.parse("{\"names\": [\"a\"")).isNull();
+        assertThat(JsonTree.parse("{\"id\": (.*)}")).isNull();
+    }
+
+    @Test
+    public void matches_ShouldMatchObjects_WhenMembersAreInDifferentOrder() throws Exception {
+        final JsonTree stubbedJson = JsonTree.parse("{\"a\": \"b\", \"c\": {\"d\": [1, 2], \"e\": null}}");
+
+        assertThat(stubbedJson.matches(JsonTree.parse("  {\"c\": {\"e\": null, \"d\": [1, 2]}, \"a\": \"b\"}"))).isTrue();
+    }
+
+    @Test
+    public void matches_ShouldNotMatchObjects_WhenKeysDiffer() throws Exception {
+        final JsonTree stubbedJson = JsonTree.parse("{\"a\": \"b\"}");
+
+        assertThat(stubbedJson.matches(JsonTree.parse("{\"a\": \"b\", \"c\": \"d\"}"))).isFalse();
+        assertThat(stubbedJson.matches(JsonTree.parse("{\"c\": \"b\"}"))).isFalse();
+        assertThat(stubbedJson.matches(JsonTree.parse("{}"))).isFalse();
+    }
+
+    @Test
+    public void matches_ShouldMatchArrays_WhenElementsAreInDifferentOrder() throws Exception {
+        final JsonTree stubbedJson = JsonTree.parse("[{\"id\": 1}, {\"id\": 2}, \"x\", \"x\", true]");
+
+        assertThat(stubbedJson.matches(JsonTree.parse("[true, \"x\", {\"id\": 2}, \"x\", {\"id\": 1}]"))).isTrue();
+        assertThat(stubbedJson.matches(JsonTree.parse("[true, \"x\", {\"id\": 2}, {\"id\": 2}, {\"id\": 1}]"))).isFalse();
+        assertThat(stubbedJson.matches(JsonTree.parse("[true, \"x\", {\"id\": 2}, \"x\"]"))).isFalse();
+    }
+
+    @Test
+    public void matches_ShouldCompareNumbersByValue() throws Exception {
+        final JsonTree stubbedJson = JsonTree.parse("{\"amount\": 10, \"rate\": 0.5}");
+
+        assertThat(stubbedJson.matches(JsonTree.parse("{\"amount\": 10.0, \"rate\": 0.50}"))).isTrue();
+        assertThat(stubbedJson.matches(JsonTree.parse("{\"amount\": \"10\", \"rate\": 0.5}"))).isFalse();
+    }
+
+    @Test
+    public void matches_ShouldNotMatchObjectWithArray() throws Exception {
+        assertThat(JsonTree.parse("{}").matches(JsonTree.parse("[]"))).isFalse();
+        assertThat(JsonTree.parse("[null]").matches(JsonTree.parse("[\"null\"]"))).isFalse();
+    }
+}
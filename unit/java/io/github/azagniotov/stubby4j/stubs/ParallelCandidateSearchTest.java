@@ -0,0 +1,66 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class ParallelCandidateSearchTest {
+
+    private StubRequest.Builder requestBuilder;
+
+    @Before
+    public void setUp() throws Exception {
+        requestBuilder = new StubRequest.Builder();
+    }
+
+    @Test
+    public void findLowestMatchIndex_ShouldReturnLowestMatchingIndex_WhenSeveralCandidatesMatch() throws Exception {
+        final List<StubHttpLifecycle> candidates = buildCandidates(1000, 313, 517, 998);
+        final StubRequest assertingRequest = requestBuilder.withUrl("/api/users/5000").withMethodGet().build();
+
+        final int matchIndex = ParallelCandidateSearch.findLowestMatchIndex(candidates, assertingRequest, new StubMatcher());
+
+        assertThat(matchIndex).isEqualTo(313);
+    }
+
+    @Test
+    public void findLowestMatchIndex_ShouldReturnNoMatch_WhenNoCandidateMatches() throws Exception {
+        final List<StubHttpLifecycle> candidates = buildCandidates(1000);
+        final StubRequest assertingRequest = requestBuilder.withUrl("/api/users/5000").withMethodGet().build();
+
+        final int matchIndex = ParallelCandidateSearch.findLowestMatchIndex(candidates, assertingRequest, new StubMatcher());
+
+        assertThat(matchIndex).isEqualTo(ParallelCandidateSearch.NO_MATCH);
+    }
+
+    @Test
+    public void findLowestMatchIndex_ShouldNotAlterGivenMatcher_WhenCandidatesEvaluated() throws Exception {
+        final List<StubHttpLifecycle> candidates = buildCandidates(200, 150);
+        final StubRequest assertingRequest = requestBuilder.withUrl("/api/users/5000").withMethodGet().build();
+        final StubMatcher stubMatcher = new StubMatcher();
+
+        ParallelCandidateSearch.findLowestMatchIndex(candidates, assertingRequest, stubMatcher);
+
+        assertThat(stubMatcher.captureRegexGroups()).isEmpty();
+    }
+
+    private List<StubHttpLifecycle> buildCandidates(final int count, final int... matchingIndexes) {
+        final List<StubHttpLifecycle> candidates = new ArrayList<>();
+        for (int idx = 0; idx < count; idx++) {
+            candidates.add(new StubHttpLifecycle.Builder()
+                    .withRequest(requestBuilder.withUrl(String.format("^/api/users/%s/orders$", idx)).withMethodGet().build())
+                    .build());
+        }
+        for (final int matchingIndex : matchingIndexes) {
+            candidates.set(matchingIndex, new StubHttpLifecycle.Builder()
+                    .withRequest(requestBuilder.withUrl("^/api/users/([0-9]+)$").withMethodGet().build())
+                    .build());
+        }
+        return candidates;
+    }
+}
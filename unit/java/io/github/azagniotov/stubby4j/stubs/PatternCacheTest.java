@@ -0,0 +1,73 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.regex.Pattern;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class PatternCacheTest {
+
+    private PatternCache patternCache;
+
+    @Before
+    public void setUp() throws Exception {
+        patternCache = new PatternCache(10);
+    }
+
+    @Test
+    public void shouldNotShareCachedPattern_WhenPatternStringsHaveSameHashCode() throws Exception {
+        assertThat("Aa[0-9]".hashCode()).isEqualTo("BB[0-9]".hashCode());
+
+        patternCache.put("Aa[0-9]", Pattern.MULTILINE, Pattern.compile("Aa[0-9]", Pattern.MULTILINE));
+
+        assertThat(patternCache.get("BB[0-9]", Pattern.MULTILINE)).isNull();
+        assertThat(patternCache.get("Aa[0-9]", Pattern.MULTILINE).pattern()).isEqualTo("Aa[0-9]");
+    }
+
+    @Test
+    public void shouldNotShareCachedPattern_WhenPatternFlagsDiffer() throws Exception {
+        patternCache.put("^/api/.*$", Pattern.MULTILINE, Pattern.compile("^/api/.*$", Pattern.MULTILINE));
+
+        assertThat(patternCache.get("^/api/.*$", Pattern.LITERAL | Pattern.MULTILINE)).isNull();
+        assertThat(patternCache.get("^/api/.*$", Pattern.MULTILINE)).isNotNull();
+    }
+
+    @Test
+    public void shouldDropPatternsNotLookedUpByLatestGeneration_WhenGenerationAdvanced() throws Exception {
+        patternCache.put("^/api/users$", Pattern.MULTILINE, Pattern.compile("^/api/users$"));
+        patternCache.put("^/api/items$", Pattern.MULTILINE, Pattern.compile("^/api/items$"));
+        patternCache.advanceGeneration();
+
+        patternCache.get("^/api/users$", Pattern.MULTILINE);
+        patternCache.advanceGeneration();
+
+        assertThat(patternCache.contains("^/api/users$", Pattern.MULTILINE)).isTrue();
+        assertThat(patternCache.contains("^/api/items$", Pattern.MULTILINE)).isFalse();
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyAccessedPatterns_WhenCapacityExceeded() throws Exception {
+        patternCache.put("^/api/users$", Pattern.MULTILINE, Pattern.compile("^/api/users$"));
+
+        for (int idx = 0; idx < 20; idx++) {
+            patternCache.put("^/api/items/" + idx + "$", Pattern.MULTILINE, Pattern.compile("^/api/items/" + idx + "$"));
+            assertThat(patternCache.get("^/api/users$", Pattern.MULTILINE)).isNotNull();
+        }
+
+        assertThat(patternCache.size()).isAtMost(10);
+        assertThat(patternCache.contains("^/api/items/0$", Pattern.MULTILINE)).isFalse();
+    }
+
+    @Test
+    public void shouldReportHitRatio() throws Exception {
+        patternCache.put("^/api/users$", Pattern.MULTILINE, Pattern.compile("^/api/users$"));
+        patternCache.get("^/api/users$", Pattern.MULTILINE);
+        patternCache.get("^/api/items$", Pattern.MULTILINE);
+
+        assertThat(patternCache.getHitRatio()).isEqualTo(0.5);
+        assertThat(patternCache.toString()).isEqualTo("size=1/10, hits=1, compilations=1, hit ratio=50.00%");
+    }
+}
@@ -2,8 +2,6 @@ package io.github.azagniotov.stubby4j.stubs;
 
 import org.junit.Test;
 
-import java.util.regex.Pattern;
-
 import static com.google.common.truth.Truth.assertThat;
 
 
@@ -11,15 +9,42 @@ public class RegexParserTest {
 
     @Test
     public void shouldDetermineStringAsPotentialRegexPatterns() throws Exception {
-        final Pattern pattern = RegexParser.SPECIAL_REGEX_CHARS;
-
-        assertThat(pattern.matcher("Hello^").matches()).isTrue();
-        assertThat(pattern.matcher("[Array]").matches()).isTrue();
-        assertThat(pattern.matcher("{JsonObject}").matches()).isTrue();
-        assertThat(pattern.matcher("{JsonObject: [Array]}").matches()).isTrue();
-        assertThat(pattern.matcher("This|That").matches()).isTrue();
-        assertThat(pattern.matcher("I have a lot of $, how about you?").matches()).isTrue();
-        assertThat(pattern.matcher("I have a lot of, how about you?").matches()).isTrue();
-        assertThat(pattern.matcher("^[a-zA-Z]$").matches()).isTrue();
+        assertThat(RegexParser.isLiteral("Hello^")).isFalse();
+        assertThat(RegexParser.isLiteral("[Array]")).isFalse();
+        assertThat(RegexParser.isLiteral("{JsonObject}")).isFalse();
+        assertThat(RegexParser.isLiteral("{JsonObject: [Array]}")).isFalse();
+        assertThat(RegexParser.isLiteral("This|That")).isFalse();
+        assertThat(RegexParser.isLiteral("I have a lot of $, how about you?")).isFalse();
+        assertThat(RegexParser.isLiteral("I have a lot of, how about you?")).isFalse();
+        assertThat(RegexParser.isLiteral("^[a-zA-Z]$")).isFalse();
+    }
+
+    @Test
+    public void shouldDetermineStringAsLiteral_WhenItHasNoRegexMetaCharacters() throws Exception {
+        assertThat(RegexParser.isLiteral("")).isTrue();
+        assertThat(RegexParser.isLiteral("Hello, World")).isTrue();
+        assertThat(RegexParser.isLiteral("/api/users/123")).isTrue();
+        assertThat(RegexParser.isLiteral("name=\u00e9l\u00e8ve&id=42")).isTrue();
+        assertThat(RegexParser.isLiteral("\u4e2d\u6587")).isTrue();
+    }
+
+    @Test
+    public void hasNestedQuantifier_ShouldReturnTrue_WhenQuantifiedGroupContainsUnboundedQuantifier() throws Exception {
+        assertThat(RegexParser.hasNestedQuantifier("^(a+)+$")).isTrue();
+        assertThat(RegexParser.hasNestedQuantifier("(.*)*")).isTrue();
+        assertThat(RegexParser.hasNestedQuantifier("(\\w+\\s?)*$")).isTrue();
+        assertThat(RegexParser.hasNestedQuantifier("((ab)*c)+")).isTrue();
+        assertThat(RegexParser.hasNestedQuantifier("(?:x[0-9]{1,})+")).isTrue();
+        assertThat(RegexParser.hasNestedQuantifier("(a+){2,}")).isTrue();
+    }
+
+    @Test
+    public void hasNestedQuantifier_ShouldReturnFalse_WhenNoQuantifiedGroupContainsUnboundedQuantifier() throws Exception {
+        assertThat(RegexParser.hasNestedQuantifier("^/api/users/([0-9]+)$")).isFalse();
+        assertThat(RegexParser.hasNestedQuantifier("(ab)+(c*)")).isFalse();
+        assertThat(RegexParser.hasNestedQuantifier("(a{1,3})+")).isFalse();
+        assertThat(RegexParser.hasNestedQuantifier("(a[+*])+")).isFalse();
+        assertThat(RegexParser.hasNestedQuantifier("(a\\+)+")).isFalse();
+        assertThat(RegexParser.hasNestedQuantifier("(a+)?")).isFalse();
     }
 }
\ No newline at end of file
@@ -0,0 +1,75 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static io.github.azagniotov.stubby4j.utils.StringUtils.calculateFingerprint;
+
+public class RequestBodyTest {
+
+    @Test
+    public void classify_ShouldClassifyMediaTypeOfContentType() throws Exception {
+        assertThat(RequestBody.classify("application/json")).isEqualTo(RequestBody.MediaType.JSON);
+        assertThat(RequestBody.classify("application/vnd.api+json; charset=UTF-8")).isEqualTo(RequestBody.MediaType.JSON);
+        assertThat(RequestBody.classify("text/xml")).isEqualTo(RequestBody.MediaType.XML);
+        assertThat(RequestBody.classify("application/soap+xml;charset=UTF-8")).isEqualTo(RequestBody.MediaType.XML);
+        assertThat(RequestBody.classify("application/x-www-form-urlencoded")).isEqualTo(RequestBody.MediaType.FORM);
+        assertThat(RequestBody.classify("multipart/form-data; boundary=xyz")).isEqualTo(RequestBody.MediaType.FORM);
+        assertThat(RequestBody.classify("text/plain")).isEqualTo(RequestBody.MediaType.OTHER);
+        assertThat(RequestBody.classify(null)).isEqualTo(RequestBody.MediaType.OTHER);
+    }
+
+    @Test
+    public void asJson_ShouldParseBodyOnce_WhenMediaTypeIsJson() throws Exception {
+        final RequestBody requestBody = new RequestBody("{\"name\": \"John\"}", "application/json");
+
+        assertThat(requestBody.isStructured()).isTrue();
+        assertThat(requestBody.asJson()).isNotNull();
+        assertThat(requestBody.asJson()).isSameAs(requestBody.asJson());
+        assertThat(requestBody.asXml()).isNull();
+    }
+
+    @Test
+    public void asXml_ShouldParseBodyOnce_WhenMediaTypeIsXml() throws Exception {
+        final RequestBody requestBody = new RequestBody("<name>John</name>", "application/xml");
+
+        assertThat(requestBody.asXml()).isNotNull();
+        assertThat(requestBody.asXml()).isSameAs(requestBody.asXml());
+        assertThat(requestBody.asJson()).isNull();
+    }
+
+    @Test
+    public void asJson_ShouldNotParseBody_WhenMediaTypeIsNotJson() throws Exception {
+        final RequestBody requestBody = new RequestBody("{\"name\": \"John\"}", "text/plain");
+
+        assertThat(requestBody.isStructured()).isFalse();
+        assertThat(requestBody.asJson()).isNull();
+        assertThat(requestBody.getFingerprint()).isEqualTo(calculateFingerprint("{\"name\": \"John\"}"));
+    }
+
+    @Test
+    public void getDigest_ShouldDigestBodyOnce() throws Exception {
+        final RequestBody requestBody = new RequestBody("name=John", "application/x-www-form-urlencoded");
+
+        assertThat(requestBody.getDigest()).hasLength(32);
+        assertThat(requestBody.getDigest()).isSameAs(requestBody.getDigest());
+        assertThat(requestBody.getDigest()).isNotEqualTo(new RequestBody("name=Joan", "text/plain").getDigest());
+        assertThat(requestBody.getDigest()).isEqualTo(new RequestBody("name=John", "text/plain").getDigest());
+    }
+
+    @Test
+    public void getRequestBody_ShouldBeClassifiedOncePerRequest() throws Exception {
+        final StubRequest assertingRequest = new StubRequest.Builder()
+                .withMethodPost()
+                .withPost("name=John")
+                .withHeaderContentType("application/x-www-form-urlencoded")
+                .build();
+
+        final RequestBody requestBody = assertingRequest.getRequestBody();
+
+        assertThat(requestBody).isSameAs(assertingRequest.getRequestBody());
+        assertThat(requestBody.getMediaType()).isEqualTo(RequestBody.MediaType.FORM);
+        assertThat(requestBody.getText()).isEqualTo("name=John");
+    }
+}
@@ -0,0 +1,129 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import io.github.azagniotov.stubby4j.utils.ResponseTemplate;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.google.common.truth.Truth.assertThat;
+import static io.github.azagniotov.stubby4j.utils.FileUtils.fileFromString;
+import static io.github.azagniotov.stubby4j.utils.StringUtils.getBytesUtf8;
+
+public class ResponseFileCacheTest {
+
+    private static final Map<String, String> REGEX_GROUPS = new HashMap<String, String>() {{
+        put("url.1", "ALEX");
+    }};
+
+    @Test
+    public void get_ShouldReturnCachedTemplate_WhenFileIsUnchanged() throws Exception {
+        final ResponseFileCache responseFileCache = new ResponseFileCache(10240, 1024, 0);
+        final File file = fileFromString("Hello <% url.1 %>");
+
+        final ResponseTemplate template = responseFileCache.get(file.getAbsolutePath());
+
+        assertThat(template.renderToString(REGEX_GROUPS)).isEqualTo("Hello ALEX");
+        assertThat(responseFileCache.get(file.getAbsolutePath())).isSameAs(template);
+        assertThat(responseFileCache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void get_ShouldReloadTemplate_WhenFileIsModified() throws Exception {
+        final ResponseFileCache responseFileCache = new ResponseFileCache(10240, 1024, 0);
+        final File file = fileFromString("Hello <% url.1 %>");
+        final ResponseTemplate template = responseFileCache.get(file.getAbsolutePath());
+
+        writeString(file, "Bye <% url.1 %>!");
+
+        final ResponseTemplate reloadedTemplate = responseFileCache.get(file.getAbsolutePath());
+        assertThat(reloadedTemplate).isNotSameAs(template);
+        assertThat(reloadedTemplate.renderToString(REGEX_GROUPS)).isEqualTo("Bye ALEX!");
+    }
+
+    @Test
+    public void get_ShouldNotStatFile_WithinStatInterval() throws Exception {
+        final ResponseFileCache responseFileCache = new ResponseFileCache(10240, 1024, 60000);
+        final File file = fileFromString("Hello <% url.1 %>");
+        final ResponseTemplate template = responseFileCache.get(file.getAbsolutePath());
+
+        assertThat(file.delete()).isTrue();
+
+        assertThat(responseFileCache.get(file.getAbsolutePath())).isSameAs(template);
+    }
+
+    @Test
+    public void get_ShouldReturnNullAndEvict_WhenFileDoesNotExist() throws Exception {
+        final ResponseFileCache responseFileCache = new ResponseFileCache(10240, 1024, 0);
+        final File file = fileFromString("Hello <% url.1 %>");
+        responseFileCache.get(file.getAbsolutePath());
+
+        assertThat(file.delete()).isTrue();
+
+        assertThat(responseFileCache.get(file.getAbsolutePath())).isNull();
+        assertThat(responseFileCache.size()).isEqualTo(0);
+        assertThat(responseFileCache.cachedBytes()).isEqualTo(0L);
+    }
+
+    @Test
+    public void get_ShouldNotCacheFile_WhenFileIsLargerThanMaxCachedLength() throws Exception {
+        final ResponseFileCache responseFileCache = new ResponseFileCache(10240, 4, 0);
+        final File file = fileFromString("Hello <% url.1 %>");
+
+        assertThat(responseFileCache.get(file.getAbsolutePath()).renderToString(REGEX_GROUPS)).isEqualTo("Hello ALEX");
+        assertThat(responseFileCache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void get_ShouldEvictLeastRecentlyAccessedFiles_WhenOverMaxCachedBytes() throws Exception {
+        final ResponseFileCache responseFileCache = new ResponseFileCache(20, 1024, 60000);
+        final File first = fileFromString("first");
+        final File second = fileFromString("second");
+        final File third = fileFromString("third");
+        final File fourth = fileFromString("fourth");
+
+        responseFileCache.get(first.getAbsolutePath());
+        responseFileCache.get(second.getAbsolutePath());
+        responseFileCache.get(third.getAbsolutePath());
+        responseFileCache.get(first.getAbsolutePath());
+        responseFileCache.get(fourth.getAbsolutePath());
+
+        assertThat(responseFileCache.cachedBytes()).isAtMost(20L);
+        assertThat(first.delete()).isTrue();
+        assertThat(second.delete()).isTrue();
+        assertThat(responseFileCache.get(first.getAbsolutePath())).isNotNull();
+        assertThat(responseFileCache.get(second.getAbsolutePath())).isNull();
+    }
+
+    @Test
+    public void get_ShouldAccountForReloadedFileLength_WhenFileIsModified() throws Exception {
+        final ResponseFileCache responseFileCache = new ResponseFileCache(10240, 1024, 0);
+        final File file = fileFromString("Hello");
+        responseFileCache.get(file.getAbsolutePath());
+        assertThat(responseFileCache.cachedBytes()).isEqualTo(5L);
+
+        writeString(file, "Hello, world");
+        responseFileCache.get(file.getAbsolutePath());
+
+        assertThat(responseFileCache.size()).isEqualTo(1);
+        assertThat(responseFileCache.cachedBytes()).isEqualTo(12L);
+    }
+
+    @Test
+    public void get_ShouldNotCacheFile_WhenFileIsLargerThanMaxCachedBytes() throws Exception {
+        final ResponseFileCache responseFileCache = new ResponseFileCache(4, 1024, 0);
+        final File file = fileFromString("Hello <% url.1 %>");
+
+        assertThat(responseFileCache.get(file.getAbsolutePath()).renderToString(REGEX_GROUPS)).isEqualTo("Hello ALEX");
+        assertThat(responseFileCache.size()).isEqualTo(0);
+    }
+
+    private static void writeString(final File file, final String content) throws Exception {
+        Files.write(file.toPath(), getBytesUtf8(content));
+        // Makes sure the change is visible, even on file systems with a coarse last modified time
+        assertThat(file.setLastModified(file.lastModified() + 2000)).isTrue();
+    }
+}
@@ -0,0 +1,91 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static io.github.azagniotov.stubby4j.utils.StringUtils.getBytesUtf8;
+
+public class StaticResponseTest {
+
+    private static final byte[] LARGE_BODY = getBytesUtf8(String.join(",", Collections.nCopies(StaticResponse.GZIP_MIN_LENGTH, "{\"name\": \"John\"}")));
+
+    @Test
+    public void shouldGzipBodyOnce_WhenBodyIsLargeAndCompressible() throws Exception {
+        final StaticResponse staticResponse = new StaticResponse(200, headers("Content-Type", "application/json"), LARGE_BODY);
+
+        assertThat(staticResponse.getStatus()).isEqualTo(200);
+        assertThat(staticResponse.getBody()).isSameAs(LARGE_BODY);
+        assertThat(staticResponse.hasGzippedBody()).isTrue();
+        assertThat(staticResponse.getGzippedBody().length).isLessThan(LARGE_BODY.length);
+        assertThat(gunzip(staticResponse.getGzippedBody())).isEqualTo(LARGE_BODY);
+    }
+
+    @Test
+    public void shouldNotGzipBody_WhenBodyIsShort() throws Exception {
+        final StaticResponse staticResponse = new StaticResponse(200, headers("content-type", "text/plain"), getBytesUtf8("OK"));
+
+        assertThat(staticResponse.hasGzippedBody()).isFalse();
+    }
+
+    @Test
+    public void shouldNotGzipBody_WhenContentTypeIsNotCompressible() throws Exception {
+        final StaticResponse staticResponse = new StaticResponse(200, headers("content-type", "image/png"), LARGE_BODY);
+
+        assertThat(staticResponse.hasGzippedBody()).isFalse();
+    }
+
+    @Test
+    public void shouldNotGzipBody_WhenContentEncodingIsStubbed() throws Exception {
+        final StaticResponse staticResponse = new StaticResponse(200, headers("content-encoding", "br"), LARGE_BODY);
+
+        assertThat(staticResponse.hasGzippedBody()).isFalse();
+    }
+
+    @Test
+    public void shouldGzipBody_WhenContentTypeIsNotStubbed() throws Exception {
+        final StaticResponse staticResponse = new StaticResponse(200, new LinkedHashMap<>(), LARGE_BODY);
+
+        assertThat(staticResponse.hasGzippedBody()).isTrue();
+        assertThat(staticResponse.isContentLengthStubbed()).isFalse();
+    }
+
+    @Test
+    public void shouldKeepStubbedHeadersInOrder() throws Exception {
+        final Map<String, String> headers = headers("X-First", "1");
+        headers.put("Content-Length", "2");
+        final StaticResponse staticResponse = new StaticResponse(200, headers, getBytesUtf8("OK"));
+
+        headers.put("X-Second", "3");
+
+        assertThat(staticResponse.getHeaders()).hasSize(2);
+        assertThat(staticResponse.getHeaders().get(0).getKey()).isEqualTo("X-First");
+        assertThat(staticResponse.getHeaders().get(1).getValue()).isEqualTo("2");
+        assertThat(staticResponse.isContentLengthStubbed()).isTrue();
+    }
+
+    private static Map<String, String> headers(final String name, final String value) {
+        final Map<String, String> headers = new LinkedHashMap<>();
+        headers.put(name, value);
+        return headers;
+    }
+
+    private static byte[] gunzip(final byte[] gzipped) throws Exception {
+        final ByteArrayOutputStream gunzipped = new ByteArrayOutputStream();
+        try (final GZIPInputStream gzipInputStream = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            final byte[] buffer = new byte[4096];
+            int read;
+            while ((read = gzipInputStream.read(buffer)) != -1) {
+                gunzipped.write(buffer, 0, read);
+            }
+        }
+        return gunzipped.toByteArray();
+    }
+}
@@ -0,0 +1,94 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class StubIndexTest {
+
+    private StubRequest.Builder requestBuilder;
+
+    @Before
+    public void setUp() throws Exception {
+        requestBuilder = new StubRequest.Builder();
+    }
+
+    @Test
+    public void findCandidates_ShouldReturnOnlyStubsWithMatchingMethodAndLiteralUrl() throws Exception {
+        final List<StubHttpLifecycle> stubs = new LinkedList<>();
+        stubs.add(buildStub(requestBuilder.withUrl("/api/users").withMethodGet().build()));
+        stubs.add(buildStub(requestBuilder.withUrl("/api/users").withMethodPost().build()));
+        stubs.add(buildStub(requestBuilder.withUrl("/api/items").withMethodGet().build()));
+
+        final StubIndex stubIndex = new StubIndex(stubs, RegexParser.DEFAULT_STEP_BUDGET);
+        final List<StubHttpLifecycle> candidates = stubIndex.findCandidates(
+                requestBuilder.withUrl("/api/users").withMethodGet().build());
+
+        assertThat(candidates).containsExactly(stubs.get(0));
+    }
+
+    @Test
+    public void findCandidates_ShouldReturnStubsInDefinitionOrder_WhenLiteralPrefixAndFallbackBucketsMatch() throws Exception {
+        final List<StubHttpLifecycle> stubs = new LinkedList<>();
+        stubs.add(buildStub(requestBuilder.withUrl("^/api/.*$").withMethodGet().build()));
+        stubs.add(buildStub(requestBuilder.withUrl("/api/users/[0-9]+").withMethodGet().build()));
+        stubs.add(buildStub(requestBuilder.withUrl("/api/users/123").build()));
+        stubs.add(buildStub(requestBuilder.withUrl("/api/items/[0-9]+").withMethodGet().build()));
+        stubs.add(buildStub(requestBuilder.withMethodGet().build()));
+
+        final StubIndex stubIndex = new StubIndex(stubs, RegexParser.DEFAULT_STEP_BUDGET);
+        final List<StubHttpLifecycle> candidates = stubIndex.findCandidates(
+                requestBuilder.withUrl("/api/users/123").withMethodGet().build());
+
+        assertThat(candidates).containsExactly(stubs.get(0), stubs.get(1), stubs.get(2), stubs.get(4)).inOrder();
+    }
+
+    @Test
+    public void findCandidates_ShouldNotReturnDuplicates_WhenStubHasSeveralMatchingMethods() throws Exception {
+        final List<StubHttpLifecycle> stubs = new LinkedList<>();
+        stubs.add(buildStub(requestBuilder.withUrl("/api/users").withMethodGet().withMethodHead().build()));
+
+        final StubIndex stubIndex = new StubIndex(stubs, RegexParser.DEFAULT_STEP_BUDGET);
+        final List<StubHttpLifecycle> candidates = stubIndex.findCandidates(
+                requestBuilder.withUrl("/api/users").withMethodGet().withMethodHead().build());
+
+        assertThat(candidates).containsExactly(stubs.get(0));
+    }
+
+    @Test
+    public void findCandidates_ShouldReturnNoCandidates_WhenNothingIndexedUnderRequestMethodAndUrl() throws Exception {
+        final List<StubHttpLifecycle> stubs = new LinkedList<>();
+        stubs.add(buildStub(requestBuilder.withUrl("/api/users").withMethodGet().build()));
+        stubs.add(buildStub(requestBuilder.withUrl("/api/users/[0-9]+").withMethodGet().build()));
+
+        final StubIndex stubIndex = new StubIndex(stubs, RegexParser.DEFAULT_STEP_BUDGET);
+
+        assertThat(stubIndex.findCandidates(requestBuilder.withUrl("/api/users").withMethodPut().build())).isEmpty();
+        assertThat(stubIndex.findCandidates(requestBuilder.withUrl("/api/items").withMethodGet().build())).isEmpty();
+    }
+
+    @Test
+    public void findCandidates_ShouldDropRegexUrlStubs_WhenTheirUrlDoesNotMatchIncomingUrl() throws Exception {
+        final List<StubHttpLifecycle> stubs = new LinkedList<>();
+        stubs.add(buildStub(requestBuilder.withUrl("/api/.*/orders").withMethodGet().build()));
+        stubs.add(buildStub(requestBuilder.withUrl("^/api/users/([0-9]+)$").withMethodGet().withHeader("x-api-key", "one").build()));
+        stubs.add(buildStub(requestBuilder.withUrl("^/api/users/([0-9]+)$").withMethodGet().withHeader("x-api-key", "two").build()));
+        stubs.add(buildStub(requestBuilder.withUrl("^/api/users/([a-z]+)$").withMethodGet().build()));
+
+        final StubIndex stubIndex = new StubIndex(stubs, RegexParser.DEFAULT_STEP_BUDGET);
+
+        assertThat(stubIndex.findCandidates(requestBuilder.withUrl("/api/users/123").withMethodGet().build()))
+                .containsExactly(stubs.get(1), stubs.get(2)).inOrder();
+        assertThat(stubIndex.findCandidates(requestBuilder.withUrl("/api/users/orders").withMethodGet().build()))
+                .containsExactly(stubs.get(0), stubs.get(3)).inOrder();
+    }
+
+    private StubHttpLifecycle buildStub(final StubRequest stubRequest) {
+        return new StubHttpLifecycle.Builder().withRequest(stubRequest).withResponse(StubResponse.okResponse()).build();
+    }
+}
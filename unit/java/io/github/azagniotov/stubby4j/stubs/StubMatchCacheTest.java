@@ -0,0 +1,176 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class StubMatchCacheTest {
+
+    private StubRequest.Builder requestBuilder;
+    private StubHttpLifecycle stub;
+    private StubIndex snapshot;
+
+    @Before
+    public void setUp() throws Exception {
+        requestBuilder = new StubRequest.Builder();
+        stub = new StubHttpLifecycle.Builder()
+                .withRequest(requestBuilder.withUrl("/api/users").withMethodGet().withHeader("x-api-key", "secret").build())
+                .withResponse(StubResponse.okResponse())
+                .build();
+
+        final List<StubHttpLifecycle> stubs = new LinkedList<>();
+        stubs.add(stub);
+        snapshot = new StubIndex(stubs, RegexParser.DEFAULT_STEP_BUDGET);
+    }
+
+    @Test
+    public void shouldReturnCachedMatch_WhenSameRequestFingerprintLookedUp() throws Exception {
+        final StubMatchCache matchCache = new StubMatchCache(10, 10);
+        matchCache.put(snapshot, buildIncomingRequest("/api/users", "secret"), stub);
+
+        final StubMatchCache.CachedMatch cachedMatch = matchCache.get(snapshot, buildIncomingRequest("/api/users", "secret"));
+
+        assertThat(cachedMatch).isNotNull();
+        assertThat(cachedMatch.isMiss()).isFalse();
+        assertThat(cachedMatch.getMatch()).isSameAs(stub);
+        assertThat(matchCache.getHits()).isEqualTo(1);
+        assertThat(matchCache.getMisses()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldReturnCachedMiss_WhenMissWasCached() throws Exception {
+        final StubMatchCache matchCache = new StubMatchCache(10, 10);
+        matchCache.put(snapshot, buildIncomingRequest("/api/items", "secret"), null);
+
+        final StubMatchCache.CachedMatch cachedMatch = matchCache.get(snapshot, buildIncomingRequest("/api/items", "secret"));
+
+        assertThat(cachedMatch).isNotNull();
+        assertThat(cachedMatch.isMiss()).isTrue();
+    }
+
+    @Test
+    public void shouldNotReturnCachedMatch_WhenMatchableHeaderValueDiffers() throws Exception {
+        final StubMatchCache matchCache = new StubMatchCache(10, 10);
+        matchCache.put(snapshot, buildIncomingRequest("/api/users", "secret"), stub);
+
+        assertThat(matchCache.get(snapshot, buildIncomingRequest("/api/users", "another"))).isNull();
+        assertThat(matchCache.getHits()).isEqualTo(0);
+        assertThat(matchCache.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldReturnCachedMatch_WhenOnlyNonMatchableHeaderValueDiffers() throws Exception {
+        final StubMatchCache matchCache = new StubMatchCache(10, 10);
+        matchCache.put(snapshot, requestBuilder.withUrl("/api/users").withMethodGet()
+                .withHeader("x-api-key", "secret").withHeader("x-request-id", "1").build(), stub);
+
+        final StubMatchCache.CachedMatch cachedMatch = matchCache.get(snapshot, requestBuilder.withUrl("/api/users").withMethodGet()
+                .withHeader("x-api-key", "secret").withHeader("x-request-id", "2").build());
+
+        assertThat(cachedMatch).isNotNull();
+    }
+
+    @Test
+    public void shouldNotReturnCachedMatch_WhenRequestBodyDiffers() throws Exception {
+        final List<StubHttpLifecycle> stubs = new LinkedList<>();
+        stubs.add(new StubHttpLifecycle.Builder()
+                .withRequest(requestBuilder.withUrl("/api/users").withMethodPost().withPost("one").build())
+                .withResponse(StubResponse.okResponse())
+                .build());
+        final StubIndex postSnapshot = new StubIndex(stubs, RegexParser.DEFAULT_STEP_BUDGET);
+
+        final StubMatchCache matchCache = new StubMatchCache(10, 10);
+        matchCache.put(postSnapshot, requestBuilder.withUrl("/api/users").withMethodPost().withPost("one").build(), stubs.get(0));
+
+        assertThat(matchCache.get(postSnapshot, requestBuilder.withUrl("/api/users").withMethodPost().withPost("two").build())).isNull();
+    }
+
+    @Test
+    public void shouldNotReturnCachedMiss_WhenRequestBodyOfSameLengthDiffers() throws Exception {
+        final List<StubHttpLifecycle> stubs = new LinkedList<>();
+        stubs.add(new StubHttpLifecycle.Builder()
+                .withRequest(requestBuilder.withUrl("/api/users").withMethodPost().withPost("one").build())
+                .withResponse(StubResponse.okResponse())
+                .build());
+        final StubIndex postSnapshot = new StubIndex(stubs, RegexParser.DEFAULT_STEP_BUDGET);
+
+        final StubMatchCache matchCache = new StubMatchCache(10, 10);
+        matchCache.put(postSnapshot, requestBuilder.withUrl("/api/users").withMethodPost().withPost("abc").build(), null);
+
+        assertThat(matchCache.get(postSnapshot, requestBuilder.withUrl("/api/users").withMethodPost().withPost("abc").build())).isNotNull();
+        assertThat(matchCache.get(postSnapshot, requestBuilder.withUrl("/api/users").withMethodPost().withPost("abd").build())).isNull();
+    }
+
+    @Test
+    public void shouldReturnCachedMatch_WhenRequestBodyDiffersButNoStubMatchesOnBody() throws Exception {
+        final StubMatchCache matchCache = new StubMatchCache(10, 10);
+        matchCache.put(snapshot, requestBuilder.withUrl("/api/users").withMethodGet()
+                .withHeader("x-api-key", "secret").withPost("one").build(), stub);
+
+        final StubMatchCache.CachedMatch cachedMatch = matchCache.get(snapshot, requestBuilder.withUrl("/api/users").withMethodGet()
+                .withHeader("x-api-key", "secret").withPost("two").build());
+
+        assertThat(cachedMatch).isNotNull();
+    }
+
+    @Test
+    public void shouldNotReturnCachedMatch_WhenMatchWasCachedForAnotherSnapshot() throws Exception {
+        final StubMatchCache matchCache = new StubMatchCache(10, 10);
+        matchCache.put(snapshot, buildIncomingRequest("/api/users", "secret"), stub);
+
+        final StubIndex newSnapshot = new StubIndex(snapshot.getStubs(), RegexParser.DEFAULT_STEP_BUDGET);
+
+        assertThat(matchCache.get(newSnapshot, buildIncomingRequest("/api/users", "secret"))).isNull();
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyAccessedEntries_WhenCapacityExceeded() throws Exception {
+        final StubMatchCache matchCache = new StubMatchCache(10, 10);
+        matchCache.put(snapshot, buildIncomingRequest("/api/users/0", "secret"), stub);
+
+        for (int idx = 1; idx < 20; idx++) {
+            matchCache.put(snapshot, buildIncomingRequest("/api/users/" + idx, "secret"), stub);
+            assertThat(matchCache.get(snapshot, buildIncomingRequest("/api/users/0", "secret"))).isNotNull();
+        }
+
+        assertThat(matchCache.size()).isAtMost(10);
+        assertThat(matchCache.get(snapshot, buildIncomingRequest("/api/users/1", "secret"))).isNull();
+    }
+
+    @Test
+    public void shouldKeepCachedMatches_WhenCachedMissesExceedTheirCapacity() throws Exception {
+        final StubMatchCache matchCache = new StubMatchCache(10, 10);
+        matchCache.put(snapshot, buildIncomingRequest("/api/users", "secret"), stub);
+
+        for (int idx = 0; idx < 100; idx++) {
+            matchCache.put(snapshot, buildIncomingRequest("/api/items/" + idx, "secret"), null);
+        }
+
+        assertThat(matchCache.size()).isAtMost(11);
+        assertThat(matchCache.get(snapshot, buildIncomingRequest("/api/users", "secret"))).isNotNull();
+        assertThat(matchCache.get(snapshot, buildIncomingRequest("/api/items/99", "secret")).isMiss()).isTrue();
+        assertThat(matchCache.get(snapshot, buildIncomingRequest("/api/items/0", "secret"))).isNull();
+    }
+
+    @Test
+    public void shouldReportHitRatio() throws Exception {
+        final StubMatchCache matchCache = new StubMatchCache(10, 10);
+        assertThat(matchCache.getHitRatio()).isEqualTo(0.0);
+
+        matchCache.put(snapshot, buildIncomingRequest("/api/users", "secret"), stub);
+        matchCache.get(snapshot, buildIncomingRequest("/api/users", "secret"));
+        matchCache.get(snapshot, buildIncomingRequest("/api/items", "secret"));
+
+        assertThat(matchCache.getHitRatio()).isEqualTo(0.5);
+        assertThat(matchCache.toString()).isEqualTo("matches=1/10, misses=0/10, hits=1, lookup misses=1, hit ratio=50.00%");
+    }
+
+    private StubRequest buildIncomingRequest(final String url, final String apiKey) {
+        return requestBuilder.withUrl(url).withMethodGet().withHeader("x-api-key", apiKey).build();
+    }
+}
@@ -4,10 +4,6 @@ package io.github.azagniotov.stubby4j.stubs;
 import org.junit.Before;
 import org.junit.Test;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
-
 import static com.google.common.truth.Truth.assertThat;
 
 public class StubMatcherTest {
@@ -16,325 +12,339 @@ public class StubMatcherTest {
 
     @Before
     public void setUp() throws Exception {
-        stubMatcher = new StubMatcher(new HashMap<>());
+        stubMatcher = new StubMatcher();
     }
 
     @Test
-    public void arraysIntersect_ShouldReturnTrue_WhenDataStoreArrayEmpty() throws Exception {
-        final boolean isArraysIntersect = stubMatcher.listsIntersect(new ArrayList<>(), new ArrayList<String>() {{
-            add("apple");
-        }});
+    public void matches_ShouldStillCaptureUrlRegexGroups_WhenUrlIsKnownToMatch() throws Exception {
+        final StubRequest stubbedRequest = new StubRequest.Builder()
+                .withUrl("^/api/users/([0-9]+)$")
+                .withMethodGet()
+                .withHeader("x-api-key", "secret")
+                .build();
+        final StubRequest assertingRequest = new StubRequest.Builder()
+                .withUrl("/api/users/123")
+                .withMethodGet()
+                .withHeader("x-api-key", "secret")
+                .build();
+        final StubMatcher urlMatchedStubMatcher = new StubMatcher(true, RegexParser.DEFAULT_STEP_BUDGET);
 
-        assertThat(isArraysIntersect).isTrue();
+        assertThat(urlMatchedStubMatcher.matches(stubbedRequest, assertingRequest)).isTrue();
+        assertThat(urlMatchedStubMatcher.captureRegexGroups()).containsExactly(
+                "headers.x-api-key.0", "secret", "url.0", "/api/users/123", "url.1", "123");
     }
 
     @Test
-    public void arraysIntersect_ShouldReturnFalse_WhenAssertingArrayEmpty() throws Exception {
-        final boolean isArraysIntersect = stubMatcher.listsIntersect(new ArrayList<String>() {{
-            add("apple");
-        }}, new ArrayList<>());
+    public void matches_ShouldReturnTrue_WhenNoMethodStubbed() throws Exception {
+        final StubRequest stubbedRequest = new StubRequest.Builder().build();
 
-        assertThat(isArraysIntersect).isFalse();
+        assertThat(stubMatcher.matches(stubbedRequest, new StubRequest.Builder().withMethodGet().build())).isTrue();
     }
 
     @Test
-    public void arraysIntersect_ShouldReturnTrue_WhenTwoArraysHaveTheSameElements() throws Exception {
-        final boolean isArraysIntersect = stubMatcher.listsIntersect(
-                new ArrayList<String>() {{
-                    add("apple");
-                }}, new ArrayList<String>() {{
-                    add("apple");
-                }}
-        );
+    public void matches_ShouldReturnFalse_WhenMethodStubbedAndAssertingMethodEmpty() throws Exception {
+        final StubRequest stubbedRequest = new StubRequest.Builder().withMethodGet().build();
 
-        assertThat(isArraysIntersect).isTrue();
+        assertThat(stubMatcher.matches(stubbedRequest, new StubRequest.Builder().build())).isFalse();
     }
 
     @Test
-    public void arraysIntersect_ShouldReturnFalse_WhenTwoArraysDontHaveTheSameElements() throws Exception {
-        final boolean isArraysIntersect = stubMatcher.listsIntersect(
-                new ArrayList<String>() {{
-                    add("apple");
-                }}, new ArrayList<String>() {{
-                    add("orange");
-                }}
-        );
+    public void matches_ShouldReturnTrue_WhenAssertingMethodIsOneOfStubbedMethods() throws Exception {
+        final StubRequest stubbedRequest = new StubRequest.Builder().withMethodGet().withMethodHead().build();
 
-        assertThat(isArraysIntersect).isFalse();
+        assertThat(stubMatcher.matches(stubbedRequest, new StubRequest.Builder().withMethodHead().build())).isTrue();
     }
 
     @Test
-    public void stringsMatch_ShouldReturnTrue_WhenDataStoreValueNull() throws Exception {
-        final String dataStoreVlaue = null;
-        final String assertingValue = "blah";
-        final boolean isStringsMatch = stubMatcher.stringsMatch(dataStoreVlaue, assertingValue, "arbitrary template token name");
+    public void matches_ShouldReturnFalse_WhenAssertingMethodIsNotStubbed() throws Exception {
+        final StubRequest stubbedRequest = new StubRequest.Builder().withMethodGet().build();
 
-        assertThat(isStringsMatch).isTrue();
+        assertThat(stubMatcher.matches(stubbedRequest, new StubRequest.Builder().withMethodPost().build())).isFalse();
     }
 
     @Test
-    public void stringsMatch_ShouldReturnTrue_WhenDataStoreValueEmpty() throws Exception {
-        final String dataStoreVlaue = "";
-        final String assertingValue = "blah";
-        final boolean isStringsMatch = stubMatcher.stringsMatch(dataStoreVlaue, assertingValue, "arbitrary template token name");
+    public void matches_ShouldReturnTrue_WhenStubbedUrlNull() throws Exception {
+        final StubRequest stubbedRequest = new StubRequest.Builder().withMethodGet().build();
 
-        assertThat(isStringsMatch).isTrue();
+        assertThat(stubMatcher.matches(stubbedRequest, new StubRequest.Builder().withMethodGet().withUrl("/blah").build())).isTrue();
     }
 
     @Test
-    public void stringsMatch_ShouldReturnFalse_WhenAssertingValueNull() throws Exception {
-        final String dataStoreVlaue = "stubbedValue";
-        final String assertingValue = null;
-        final boolean isStringsMatch = stubMatcher.stringsMatch(dataStoreVlaue, assertingValue, "arbitrary template token name");
+    public void matches_ShouldReturnTrue_WhenStubbedUrlEmpty() throws Exception {
+        final StubRequest stubbedRequest = new StubRequest.Builder().withMethodGet().withUrl("").build();
 
-        assertThat(isStringsMatch).isFalse();
+        assertThat(stubMatcher.matches(stubbedRequest, new StubRequest.Builder().withMethodGet().withUrl("/blah").build())).isTrue();
     }
 
     @Test
-    public void stringsMatch_ShouldReturnFalse_WhenAssertingValueEmpty() throws Exception {
-        final String dataStoreVlaue = "stubbedValue";
-        final String assertingValue = "";
-        final boolean isStringsMatch = stubMatcher.stringsMatch(dataStoreVlaue, assertingValue, "arbitrary template token name");
+    public void matches_ShouldReturnFalse_WhenAssertingUrlNull() throws Exception {
+        final StubRequest stubbedRequest = new StubRequest.Builder().withMethodGet().withUrl("/stubbed").build();
 
-        assertThat(isStringsMatch).isFalse();
+        assertThat(stubMatcher.matches(stubbedRequest, new StubRequest.Builder().withMethodGet().build())).isFalse();
     }
 
     @Test
-    public void mapsMatch_ShouldReturnTrue_WhenDataStoreMapEmptyAndAssertingMapEmpty() throws Exception {
-        final Map<String, String> dataStoreMap = new HashMap<>();
-        final Map<String, String> assertingMap = new HashMap<>();
-        final boolean isMapsMatch = stubMatcher.mapsMatch(dataStoreMap, assertingMap, "arbitrary template token name");
+    public void matches_ShouldReturnFalse_WhenAssertingUrlEmpty() throws Exception {
+        final StubRequest stubbedRequest = new StubRequest.Builder().withMethodGet().withUrl("/stubbed").build();
 
-        assertThat(isMapsMatch).isTrue();
+        assertThat(stubMatcher.matches(stubbedRequest, new StubRequest.Builder().withMethodGet().withUrl("").build())).isFalse();
     }
 
     @Test
-    public void mapsMatch_ShouldReturnTrue_WhenDataStoreMapEmpty() throws Exception {
-        final Map<String, String> dataStoreMap = new HashMap<>();
-        final Map<String, String> assertingMap = new HashMap<String, String>() {{
-            put("key", "value");
-        }};
-        final boolean isMapsMatch = stubMatcher.mapsMatch(dataStoreMap, assertingMap, "arbitrary template token name");
+    public void matches_ShouldReturnTrue_WhenNoQueryStubbedAndAssertingQueryEmpty() throws Exception {
+        final StubRequest stubbedRequest = new StubRequest.Builder().withUrl("/api").build();
 
-        assertThat(isMapsMatch).isTrue();
+        assertThat(stubMatcher.matches(stubbedRequest, new StubRequest.Builder().withUrl("/api").build())).isTrue();
     }
 
     @Test
-    public void mapsMatch_ShouldReturnFalse_WhenDataStoreMapNotEmptyAndAssertingMapEmpty() throws Exception {
-        final Map<String, String> dataStoreMap = new HashMap<String, String>() {{
-            put("key", "value");
-        }};
-        final Map<String, String> assertingMap = new HashMap<>();
-        final boolean isMapsMatch = stubMatcher.mapsMatch(dataStoreMap, assertingMap, "arbitrary template token name");
+    public void matches_ShouldReturnTrue_WhenNoQueryStubbed() throws Exception {
+        final StubRequest stubbedRequest = new StubRequest.Builder().withUrl("/api").build();
+        final StubRequest assertingRequest = new StubRequest.Builder().withUrl("/api").withQuery("key", "value").build();
 
-        assertThat(isMapsMatch).isFalse();
+        assertThat(stubMatcher.matches(stubbedRequest, assertingRequest)).isTrue();
     }
 
     @Test
-    public void mapsMatch_ShouldReturnFalse_WhenAssertingMapDoesNotContainDataStoreKey() throws Exception {
-        final Map<String, String> dataStoreMap = new HashMap<String, String>() {{
-            put("requiredKey", "requiredValue");
-        }};
-        final Map<String, String> assertingMap = new HashMap<String, String>() {{
-            put("someKey", "someValue");
-        }};
-        final boolean isMapsMatch = stubMatcher.mapsMatch(dataStoreMap, assertingMap, "arbitrary template token name");
+    public void matches_ShouldReturnFalse_WhenQueryStubbedAndAssertingQueryEmpty() throws Exception {
+        final StubRequest stubbedRequest = new StubRequest.Builder().withUrl("/api").withQuery("key", "value").build();
 
-        assertThat(isMapsMatch).isFalse();
+        assertThat(stubMatcher.matches(stubbedRequest, new StubRequest.Builder().withUrl("/api").build())).isFalse();
     }
 
     @Test
-    public void mapsMatch_ShouldReturnFalse_WhenAssertingMapDoesNotContainDataStoreValue() throws Exception {
-        final Map<String, String> dataStoreMap = new HashMap<String, String>() {{
-            put("requiredKey", "requiredValue");
-        }};
-        final Map<String, String> assertingMap = new HashMap<String, String>() {{
-            put("requiredKey", "someValue");
-        }};
-        final boolean isMapsMatch = stubMatcher.mapsMatch(dataStoreMap, assertingMap, "arbitrary template token name");
+    public void matches_ShouldReturnFalse_WhenAssertingQueryDoesNotContainStubbedKey() throws Exception {
+        final StubRequest stubbedRequest = new StubRequest.Builder().withUrl("/api").withQuery("requiredKey", "requiredValue").build();
+        final StubRequest assertingRequest = new StubRequest.Builder().withUrl("/api").withQuery("someKey", "someValue").build();
 
-        assertThat(isMapsMatch).isFalse();
+        assertThat(stubMatcher.matches(stubbedRequest, assertingRequest)).isFalse();
     }
 
     @Test
-    public void mapsMatch_ShouldReturnTrue_WhenAssertingMapMatchesDataStoreMap() throws Exception {
-        final Map<String, String> dataStoreMap = new HashMap<String, String>() {{
-            put("requiredKey", "requiredValue");
-        }};
-        final Map<String, String> assertingMap = new HashMap<String, String>() {{
-            put("requiredKey", "requiredValue");
-        }};
-        final boolean isMapsMatch = stubMatcher.mapsMatch(dataStoreMap, assertingMap, "arbitrary template token name");
+    public void matches_ShouldReturnFalse_WhenAssertingQueryDoesNotContainStubbedValue() throws Exception {
+        final StubRequest stubbedRequest = new StubRequest.Builder().withUrl("/api").withQuery("requiredKey", "requiredValue").build();
+        final StubRequest assertingRequest = new StubRequest.Builder().withUrl("/api").withQuery("requiredKey", "someValue").build();
 
-        assertThat(isMapsMatch).isTrue();
+        assertThat(stubMatcher.matches(stubbedRequest, assertingRequest)).isFalse();
     }
 
     @Test
-    public void postBodiesMatch_ShouldReturnTrue_WhenIsPostStubbedFalse() {
-        final boolean isBodiesMatch = stubMatcher.postBodiesMatch(false, null, null);
+    public void matches_ShouldReturnTrue_WhenAssertingQueryMatchesStubbedQuery() throws Exception {
+        final StubRequest stubbedRequest = new StubRequest.Builder().withUrl("/api").withQuery("requiredKey", "requiredValue").build();
+        final StubRequest assertingRequest = new StubRequest.Builder().withUrl("/api").withQuery("requiredKey", "requiredValue").build();
 
-        assertThat(isBodiesMatch).isTrue();
+        assertThat(stubMatcher.matches(stubbedRequest, assertingRequest)).isTrue();
     }
 
     @Test
-    public void postBodiesMatch_ShouldReturnFalse_WhenAssertingPostBodyNull() {
-        StubRequest request = new StubRequest.Builder().build();
+    public void matches_ShouldReturnFalse_WhenHeaderStubbedAndAssertingHeadersDoNotContainIt() throws Exception {
+        final StubRequest stubbedRequest = new StubRequest.Builder().withUrl("/api").withHeader("x-api-key", "secret").build();
+        final StubRequest assertingRequest = new StubRequest.Builder().withUrl("/api").withHeader("x-request-id", "1").build();
 
-        final boolean isBodiesMatch = stubMatcher.postBodiesMatch(true, null, request);
-
-        assertThat(isBodiesMatch).isFalse();
+        assertThat(stubMatcher.matches(stubbedRequest, assertingRequest)).isFalse();
     }
 
     @Test
-    public void postBodiesMatch_ShouldReturnFalse_WhenAssertingBodyWhitespace() {
-        StubRequest request = new StubRequest.Builder()
-                .withPost("  ")
-                .build();
-
-        final boolean isBodiesMatch = stubMatcher.postBodiesMatch(true, null, request);
+    public void matches_ShouldReturnTrue_WhenPostNotStubbed() throws Exception {
+        final StubRequest stubbedRequest = new StubRequest.Builder().withUrl("/api/orders").withMethodPost().build();
 
-        assertThat(isBodiesMatch).isFalse();
+        assertThat(stubMatcher.matches(stubbedRequest, assertingPost(null, null))).isTrue();
     }
 
     @Test
-    public void postBodiesMatch_ShouldReturnFalse_WhenDifferentJson() {
-        StubRequest request = new StubRequest.Builder()
-                .withPost("{\"name\":\"bob\"}")
-                .withHeaderContentType("application/json")
-                .build();
+    public void matches_ShouldReturnFalse_WhenAssertingPostBodyNull() throws Exception {
+        assertThat(stubMatcher.matches(stubbedPost("wibble"), assertingPost(null, null))).isFalse();
+    }
 
-        final boolean isBodiesMatch = stubMatcher.postBodiesMatch(true, "{\"name\":\"tod\"}", request);
+    @Test
+    public void matches_ShouldReturnFalse_WhenAssertingPostBodyWhitespace() throws Exception {
+        assertThat(stubMatcher.matches(stubbedPost("wibble"), assertingPost(null, "  "))).isFalse();
+    }
 
-        assertThat(isBodiesMatch).isFalse();
+    @Test
+    public void matches_ShouldReturnFalse_WhenDifferentJson() throws Exception {
+        assertThat(stubMatcher.matches(stubbedPost("{\"name\":\"tod\"}"), assertingPost("application/json", "{\"name\":\"bob\"}"))).isFalse();
     }
 
     @Test
-    public void postBodiesMatch_ShouldReturnTrue_WhenEquivalentJson() {
-        StubRequest request = new StubRequest.Builder()
-                .withPost("{\"a\":\"b\",\"c\":\"d\"}")
-                .withHeaderContentType("application/json")
+    public void matches_ShouldCompareLiteralPostBodiesByFingerprintFirst() throws Exception {
+        final StubRequest stubbedRequest = new StubRequest.Builder()
+                .withUrl("/api/orders")
+                .withMethodPost()
+                .withPost("name=John&amount=10")
                 .build();
 
-        final boolean isBodiesMatch = stubMatcher.postBodiesMatch(true, "{\"c\":\"d\",\"a\":\"b\"}", request);
-
-        assertThat(isBodiesMatch).isTrue();
+        assertThat(stubbedRequest.getCompiledRequest().isPostFingerprinted()).isTrue();
+        assertThat(stubMatcher.matches(stubbedRequest, assertingPost("text/plain", "name=John&amount=10"))).isTrue();
+        assertThat(new StubMatcher().matches(stubbedRequest, assertingPost("text/plain", "name=John&amount=99"))).isFalse();
     }
 
     @Test
-    public void postBodiesMatch_ShouldReturnTrue_WhenEquivalentCustomJson() {
-        StubRequest request = new StubRequest.Builder()
-                .withPost("{\"a\":\"b\",\"c\":\"d\"}")
-                .withHeaderContentType("something/vnd.com+json")
+    public void matches_ShouldCompareLiteralJsonPostBodiesStructurally_WhenFingerprintsDiffer() throws Exception {
+        final StubRequest stubbedRequest = new StubRequest.Builder()
+                .withUrl("/api/orders")
+                .withMethodPost()
+                .withPost("{\"name\": \"John\", \"amount\": 10}")
                 .build();
 
-        final boolean isBodiesMatch = stubMatcher.postBodiesMatch(true, "{\"c\":\"d\",\"a\":\"b\"}", request);
-
-        assertThat(isBodiesMatch).isTrue();
+        assertThat(stubMatcher.matches(stubbedRequest, assertingPost("application/json", "{\"amount\": 10, \"name\": \"John\"}"))).isTrue();
     }
 
     @Test
-    public void postBodiesMatch_ShouldReturnTrue_WhenEquivalentCustomJsonCharset() {
-        StubRequest request = new StubRequest.Builder()
-                .withPost("{\"a\":\"b\",\"c\":\"d\"}")
-                .withHeaderContentType("something/vnd.com+json;charset=stuff")
+    public void matches_ShouldNotFingerprintRegexPostBodies() throws Exception {
+        final StubRequest stubbedRequest = new StubRequest.Builder()
+                .withUrl("/api/orders")
+                .withMethodPost()
+                .withPost("name=John&amount=[0-9]+")
                 .build();
 
-        final boolean isBodiesMatch = stubMatcher.postBodiesMatch(true, "{\"c\":\"d\",\"a\":\"b\"}", request);
-
-        assertThat(isBodiesMatch).isTrue();
+        assertThat(stubbedRequest.getCompiledRequest().isPostFingerprinted()).isFalse();
+        assertThat(stubMatcher.matches(stubbedRequest, assertingPost("text/plain", "name=John&amount=99"))).isTrue();
     }
 
     @Test
-    public void postBodiesMatch_ShouldReturnFalse_WhenDifferentXml() {
-        StubRequest request = new StubRequest.Builder()
-                .withPost("<xml>one</xml>")
-                .withHeaderContentType("application/xml")
+    public void matches_ShouldMatchOnPostMatchesPredicates() throws Exception {
+        final StubRequest stubbedRequest = new StubRequest.Builder()
+                .withUrl("/api/orders")
+                .withMethodPost()
+                .withPostMatch("$.order.id == 42")
                 .build();
 
-        final boolean isBodiesMatch = stubMatcher.postBodiesMatch(true, "<xml>two</xml>", request);
-
-        assertThat(isBodiesMatch).isFalse();
+        assertThat(stubMatcher.matches(stubbedRequest, assertingPost("application/json", "{\"order\": {\"id\": 42, \"qty\": 1}}"))).isTrue();
+        assertThat(new StubMatcher().matches(stubbedRequest, assertingPost("application/json", "{\"order\": {\"id\": 43}}"))).isFalse();
+        assertThat(new StubMatcher().matches(stubbedRequest, assertingPost("application/json", ""))).isFalse();
     }
 
     @Test
-    public void postBodiesMatch_ShouldReturnTrue_WhenEquivalentXml() {
-        StubRequest request = new StubRequest.Builder()
-                .withPost("<xml><a>a</a><b>b</b></xml>")
-                .withHeaderContentType("application/xml")
-                .build();
+    public void matches_ShouldReturnTrue_WhenEquivalentJson() throws Exception {
+        assertThat(stubMatcher.matches(stubbedPost("{\"c\":\"d\",\"a\":\"b\"}"), assertingPost("application/json", "{\"a\":\"b\",\"c\":\"d\"}"))).isTrue();
+    }
 
-        final boolean isBodiesMatch = stubMatcher.postBodiesMatch(true, "<xml><b>b</b><a>a</a></xml>", request);
+    @Test
+    public void matches_ShouldReturnTrue_WhenEquivalentCustomJson() throws Exception {
+        assertThat(stubMatcher.matches(stubbedPost("{\"c\":\"d\",\"a\":\"b\"}"), assertingPost("something/vnd.com+json", "{\"a\":\"b\",\"c\":\"d\"}"))).isTrue();
+    }
 
-        assertThat(isBodiesMatch).isTrue();
+    @Test
+    public void matches_ShouldReturnTrue_WhenEquivalentCustomJsonCharset() throws Exception {
+        assertThat(stubMatcher.matches(stubbedPost("{\"c\":\"d\",\"a\":\"b\"}"), assertingPost("something/vnd.com+json;charset=stuff", "{\"a\":\"b\",\"c\":\"d\"}"))).isTrue();
     }
 
     @Test
-    public void postBodiesMatch_ShouldReturnTrue_WhenEquivalentCustomXml() {
-        StubRequest request = new StubRequest.Builder()
-                .withPost("<xml><a>a</a><b>b</b></xml>")
-                .withHeaderContentType("something/vnd.com+xml")
-                .build();
+    public void matches_ShouldReturnFalse_WhenDifferentXml() throws Exception {
+        assertThat(stubMatcher.matches(stubbedPost("<xml>two</xml>"), assertingPost("application/xml", "<xml>one</xml>"))).isFalse();
+    }
 
-        final boolean isBodiesMatch = stubMatcher.postBodiesMatch(true, "<xml><b>b</b><a>a</a></xml>", request);
+    @Test
+    public void matches_ShouldReturnTrue_WhenEquivalentXml() throws Exception {
+        assertThat(stubMatcher.matches(stubbedPost("<xml><b>b</b><a>a</a></xml>"), assertingPost("application/xml", "<xml><a>a</a><b>b</b></xml>"))).isTrue();
+    }
 
-        assertThat(isBodiesMatch).isTrue();
+    @Test
+    public void matches_ShouldReturnTrue_WhenEquivalentCustomXml() throws Exception {
+        assertThat(stubMatcher.matches(stubbedPost("<xml><b>b</b><a>a</a></xml>"), assertingPost("something/vnd.com+xml", "<xml><a>a</a><b>b</b></xml>"))).isTrue();
     }
 
     @Test
-    public void postBodiesMatch_ShouldReturnTrue_WhenEquivalentCustomXmlCharset() {
-        StubRequest request = new StubRequest.Builder()
-                .withPost("<xml><a>a</a><b>b</b></xml>")
-                .withHeaderContentType("something/vnd.com+xml;charset=something")
-                .build();
+    public void matches_ShouldReturnTrue_WhenEquivalentCustomXmlCharset() throws Exception {
+        assertThat(stubMatcher.matches(stubbedPost("<xml><b>b</b><a>a</a></xml>"), assertingPost("something/vnd.com+xml;charset=something", "<xml><a>a</a><b>b</b></xml>"))).isTrue();
+    }
 
-        final boolean isBodiesMatch = stubMatcher.postBodiesMatch(true, "<xml><b>b</b><a>a</a></xml>", request);
+    @Test
+    public void matches_ShouldReturnTrue_WhenStringMatch() throws Exception {
+        assertThat(stubMatcher.matches(stubbedPost("wibble"), assertingPost(null, "wibble"))).isTrue();
+    }
 
-        assertThat(isBodiesMatch).isTrue();
+    @Test
+    public void matches_ShouldReturnFalse_WhenStringNotMatch() throws Exception {
+        assertThat(stubMatcher.matches(stubbedPost("wobble"), assertingPost(null, "wibble"))).isFalse();
     }
 
     @Test
-    public void postBodiesMatch_ShouldReturnTrue_WhenStringMatch() {
-        StubRequest request = new StubRequest.Builder()
-                .withPost("wibble")
-                .build();
+    public void matches_ShouldReturnTrue_WhenStringMatchWeirdContentType() throws Exception {
+        assertThat(stubMatcher.matches(stubbedPost("wibble"), assertingPost("whut", "wibble"))).isTrue();
+    }
 
-        final boolean isBodiesMatch = stubMatcher.postBodiesMatch(true, "wibble", request);
+    @Test
+    public void matches_ShouldReturnFalse_WhenStringMatchWeirdContentType() throws Exception {
+        assertThat(stubMatcher.matches(stubbedPost("wibble"), assertingPost("whut", "wobble"))).isFalse();
+    }
 
-        assertThat(isBodiesMatch).isTrue();
+    @Test
+    public void orderByEstimatedCost_ShouldKeepDeclarationOrder_WhenNothingStubbed() throws Exception {
+        final StubRequest stubbedRequest = new StubRequest.Builder().build();
+
+        assertThat(StubMatcher.orderByEstimatedCost(stubbedRequest)).containsExactly(
+                StubMatcher.Criterion.METHOD,
+                StubMatcher.Criterion.URL,
+                StubMatcher.Criterion.HEADERS,
+                StubMatcher.Criterion.QUERY,
+                StubMatcher.Criterion.POST).inOrder();
     }
 
     @Test
-    public void postBodiesMatch_ShouldReturnFalse_WhenStringNotMatch() {
-        StubRequest request = new StubRequest.Builder()
-                .withPost("wibble")
+    public void orderByEstimatedCost_ShouldOrderCheapestCriteriaFirst() throws Exception {
+        final StubRequest stubbedRequest = new StubRequest.Builder()
+                .withUrl("/api/users/[0-9]+")
+                .withMethodPost()
+                .withHeader("x-api-key", "secret")
+                .withPost("{\"name\": \"stubby4j\"}")
                 .build();
 
-        final boolean isBodiesMatch = stubMatcher.postBodiesMatch(true, "wobble", request);
-
-        assertThat(isBodiesMatch).isFalse();
+        assertThat(StubMatcher.orderByEstimatedCost(stubbedRequest)).containsExactly(
+                StubMatcher.Criterion.QUERY,
+                StubMatcher.Criterion.METHOD,
+                StubMatcher.Criterion.HEADERS,
+                StubMatcher.Criterion.URL,
+                StubMatcher.Criterion.POST).inOrder();
     }
 
     @Test
-    public void postBodiesMatch_ShouldReturnTrue_WhenStringMatchWeirdContentType() {
-        StubRequest request = new StubRequest.Builder()
-                .withPost("wibble")
-                .withHeaderContentType("whut")
+    public void orderByEstimatedCost_ShouldNotCountAuthorizationHeaders() throws Exception {
+        final StubRequest stubbedRequest = new StubRequest.Builder()
+                .withUrl("/api/users")
+                .withHeader(StubbableAuthorizationType.BEARER.asYAMLProp(), "^Bearer .*$")
                 .build();
 
-        final boolean isBodiesMatch = stubMatcher.postBodiesMatch(true, "wibble", request);
-
-        assertThat(isBodiesMatch).isTrue();
+        assertThat(StubMatcher.orderByEstimatedCost(stubbedRequest)).containsExactly(
+                StubMatcher.Criterion.METHOD,
+                StubMatcher.Criterion.HEADERS,
+                StubMatcher.Criterion.QUERY,
+                StubMatcher.Criterion.POST,
+                StubMatcher.Criterion.URL).inOrder();
     }
 
     @Test
-    public void postBodiesMatch_ShouldReturnFalse_WhenStringMatchWeirdContentType() {
-        StubRequest request = new StubRequest.Builder()
-                .withPost("wobble")
-                .withHeaderContentType("whut")
+    public void matches_ShouldReturnFalse_WhenCheapCriterionFailsAfterRegexUrlMatched() throws Exception {
+        final StubRequest stubbedRequest = new StubRequest.Builder()
+                .withUrl("/api/users/([0-9]+)")
+                .withMethodPost()
                 .build();
+        final StubRequest assertingRequest = new StubRequest.Builder()
+                .withUrl("/api/users/123")
+                .withMethodGet()
+                .build();
+
+        assertThat(stubMatcher.matches(stubbedRequest, assertingRequest)).isFalse();
+        assertThat(stubMatcher.captureRegexGroups()).isEmpty();
+    }
 
-        final boolean isBodiesMatch = stubMatcher.postBodiesMatch(true, "wibble", request);
+    private static StubRequest stubbedPost(final String post) {
+        return new StubRequest.Builder()
+                .withUrl("/api/orders")
+                .withMethodPost()
+                .withPost(post)
+                .build();
+    }
 
-        assertThat(isBodiesMatch).isFalse();
+    private static StubRequest assertingPost(final String contentType, final String post) {
+        final StubRequest.Builder builder = new StubRequest.Builder()
+                .withUrl("/api/orders")
+                .withMethodPost()
+                .withPost(post);
+        if (contentType != null) {
+            builder.withHeaderContentType(contentType);
+        }
+        return builder.build();
     }
 }
@@ -5,6 +5,7 @@ import io.github.azagniotov.stubby4j.client.StubbyResponse;
 import io.github.azagniotov.stubby4j.common.Common;
 import io.github.azagniotov.stubby4j.http.StubbyHttpTransport;
 import io.github.azagniotov.stubby4j.yaml.YAMLParser;
+import org.eclipse.jetty.http.HttpStatus.Code;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -174,6 +175,21 @@ public class StubRepositoryTest {
         assertThat(fileCaptor.getValue()).isEqualTo(CONFIG_FILE);
     }
 
+    @Test
+    public void shouldMatchReloadedStub_WhenMissWasCachedBeforeReload() throws Exception {
+        spyStubRepository.resetStubsCache(buildHttpLifeCyclesWithDefaultResponse("/resource/item/1"));
+
+        final StubRequest incomingRequest = requestBuilder.withUrl("/resource/item/1").withMethodGet().build();
+        doReturn(incomingRequest).when(spyStubRepository).toStubRequest(any(HttpServletRequest.class));
+        assertThat(spyStubRepository.search(mockHttpServletRequest).getMatch().getHttpStatusCode()).isEqualTo(Code.NOT_FOUND);
+
+        final StubRequest reloadedStubRequest = requestBuilder.withUrl("/resource/item/1").withMethodGet().build();
+        when(mockYAMLParser.parse(anyString(), any(File.class))).thenReturn(buildHttpLifeCyclesWithCustomResponse(reloadedStubRequest, StubResponse.okResponse()));
+        spyStubRepository.refreshStubsFromYAMLConfig(mockYAMLParser);
+
+        assertThat(spyStubRepository.search(mockHttpServletRequest).getMatch().getHttpStatusCode()).isEqualTo(Code.OK);
+    }
+
     @Test
     public void shouldGetMarshalledYamlByIndex_WhenValidHttpCycleListIndexGiven() throws Exception {
         final List<StubHttpLifecycle> stubs = buildHttpLifeCyclesWithDefaultResponse("/resource/item/1");
@@ -212,6 +228,21 @@ public class StubRepositoryTest {
         assertThat(stubbedNewRequest.getUrl()).isEqualTo(expectedNewUrl);
     }
 
+    @Test
+    public void shouldMatchUpdatedStubHttpLifecycle_WhenStubUpdatedByIndexAfterPreviousMatch() throws Exception {
+        final String expectedOriginalUrl = "/resource/item/1";
+        final List<StubHttpLifecycle> stubs = buildHttpLifeCyclesWithCustomResponse(expectedOriginalUrl, responseBuilder.emptyWithBody("original").build());
+        spyStubRepository.resetStubsCache(stubs);
+
+        doReturn(stubs.get(0).getRequest()).when(spyStubRepository).toStubRequest(any(HttpServletRequest.class));
+        assertThat(spyStubRepository.search(mockHttpServletRequest).getMatch().getBody()).isEqualTo("original");
+
+        final List<StubHttpLifecycle> newHttpLifecycles = buildHttpLifeCyclesWithCustomResponse(expectedOriginalUrl, responseBuilder.emptyWithBody("updated").build());
+        spyStubRepository.updateStubByIndex(0, newHttpLifecycles.get(0));
+
+        assertThat(spyStubRepository.search(mockHttpServletRequest).getMatch().getBody()).isEqualTo("updated");
+    }
+
     @Test
     public void shouldUpdateStubHttpLifecycleByIndex_WhenInvalidHttpCycleListIndexGiven() throws Exception {
         expectedException.expect(IndexOutOfBoundsException.class);
@@ -334,6 +365,45 @@ public class StubRepositoryTest {
         assertThat(actualResponse.getBody()).isEqualTo(recordingSource);
     }
 
+    @Test
+    public void shouldRetainRegexGroupsOfMatchedStubOnly_WhenPreviousCandidateMatchedRegexUrlButFailedOnMethod() throws Exception {
+        final StubRequest regexUrlPostRequest = requestBuilder.withUrl("^/resource/(item)/([0-9]+)$").withMethodPost().build();
+        final StubRequest literalUrlGetRequest = requestBuilder.withUrl("/resource/item/1").withMethodGet().build();
+
+        final List<StubHttpLifecycle> stubs = new LinkedList<>();
+        stubs.addAll(buildHttpLifeCyclesWithCustomResponse(regexUrlPostRequest, responseBuilder.emptyWithBody("post").build()));
+        stubs.addAll(buildHttpLifeCyclesWithCustomResponse(literalUrlGetRequest, responseBuilder.emptyWithBody("get").build()));
+        spyStubRepository.resetStubsCache(stubs);
+
+        final StubRequest incomingRequest = requestBuilder.withUrl("/resource/item/1").withMethodGet().build();
+        doReturn(incomingRequest).when(spyStubRepository).toStubRequest(any(HttpServletRequest.class));
+        final StubSearchResult stubSearchResult = spyStubRepository.search(mockHttpServletRequest);
+
+        assertThat(stubSearchResult.getMatch().getBody()).isEqualTo("get");
+        assertThat(stubSearchResult.getInvariant().getRegexGroups().toString()).isEqualTo("{url.0=/resource/item/1}");
+    }
+
+    @Test
+    public void shouldMatchFirstDefinedStubAndRetainItsRegexGroups_WhenCandidatesEvaluatedInParallel() throws Exception {
+        final StubRepository parallelStubRepository = spy(new StubRepository(CONFIG_FILE, COMPLETED_FUTURE, 1, StubRepository.DEFAULT_REGEX_STEP_BUDGET, StubRepository.DEFAULT_RESPONSE_FILE_CACHE_BYTES, StubResponse.DEFAULT_LARGE_FILE_THRESHOLD));
+
+        final List<StubHttpLifecycle> stubs = new LinkedList<>();
+        for (int idx = 0; idx < 500; idx++) {
+            final String url = idx % 100 == 99 ? "^/resource/(item)/([0-9]+)$" : String.format("^/resource/(item)/%s$", idx);
+            final StubRequest stubRequest = requestBuilder.withUrl(url).withMethodGet().build();
+            stubs.addAll(buildHttpLifeCyclesWithCustomResponse(stubRequest, responseBuilder.emptyWithBody(String.valueOf(idx)).build()));
+        }
+        parallelStubRepository.resetStubsCache(stubs);
+
+        final StubRequest incomingRequest = requestBuilder.withUrl("/resource/item/1000").withMethodGet().build();
+        doReturn(incomingRequest).when(parallelStubRepository).toStubRequest(any(HttpServletRequest.class));
+        final StubSearchResult stubSearchResult = parallelStubRepository.search(mockHttpServletRequest);
+
+        assertThat(stubSearchResult.getMatch().getBody()).isEqualTo("99");
+        assertThat(stubSearchResult.getInvariant().getRegexGroups().toString())
+                .isEqualTo("{url.0=/resource/item/1000, url.1=item, url.2=1000}");
+    }
+
     @Test
     public void stubbedRequestEqualsAssertingRequest_WhenQueryParamArrayHasElementsWithinUrlEncodedQuotes() throws Exception {
 
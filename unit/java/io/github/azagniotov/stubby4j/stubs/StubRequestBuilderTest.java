@@ -20,6 +20,7 @@ import static io.github.azagniotov.stubby4j.stubs.StubbableAuthorizationType.BEA
 import static io.github.azagniotov.stubby4j.stubs.StubbableAuthorizationType.CUSTOM;
 import static io.github.azagniotov.stubby4j.utils.FileUtils.BR;
 import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.BODY;
+import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.POST_REGEX;
 
 
 @RunWith(MockitoJUnitRunner.class)
@@ -78,6 +79,19 @@ public class StubRequestBuilderTest {
         assertThat(builder.getStaged(String.class, BODY, orElse)).isEqualTo(orElse);
     }
 
+    @Test
+    public void shouldLowerCaseHeaderNamesOnce_WhenRequestIsBuilt() throws Exception {
+        final StubRequest stubRequest = builder.withUrl("/").withHeader("Content-Type", "application/json").build();
+
+        assertThat(stubRequest.getHeaders()).containsExactly("content-type", "application/json");
+        assertThat(stubRequest.getHeaders()).isSameAs(stubRequest.getHeaders());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void shouldNotAllowStubbedHeadersToChange_WhenRequestIsBuilt() throws Exception {
+        builder.withUrl("/").withHeader("content-type", "application/json").build().getHeaders().clear();
+    }
+
     @Test
     public void stubbedRequestEqualsAssertingRequest_WhenNullUrlStubbed_AndNullUrlSubmitted() throws Exception {
 
@@ -1320,7 +1334,7 @@ public class StubRequestBuilderTest {
 
         RegexParser.PATTERN_CACHE.clear();
 
-        final String url = "^/resources/asn/.*$";
+        final String url = "^/resources/asn/([0-9]+)$";
         final String post = "{\"objects\": [{\"key\": \"value\"}, {\"key\": \"value\"}, {\"key\": {\"key\": \"(.*)\"}}]}";
 
         final StubRequest stubRequest =
@@ -1328,11 +1342,35 @@ public class StubRequestBuilderTest {
                         .withMethodPost()
                         .withApplicationJsonContentType()
                         .withPost(post).build();
-        stubRequest.compileRegexPatternsAndCache();
+        stubRequest.compile();
 
         assertThat(RegexParser.PATTERN_CACHE.size()).isEqualTo(2);
-        assertThat(RegexParser.PATTERN_CACHE.get(url.hashCode())).isInstanceOf(Pattern.class);
-        assertThat(RegexParser.PATTERN_CACHE.get(post.hashCode())).isInstanceOf(Pattern.class);
+        assertThat(RegexParser.PATTERN_CACHE.contains(url, Pattern.MULTILINE)).isTrue();
+        assertThat(RegexParser.PATTERN_CACHE.contains(post, Pattern.MULTILINE)).isTrue();
+    }
+
+    @Test
+    public void shouldNotComputeRegexPattern_WhenRegexIsLiteralPrefix() throws Exception {
+
+        RegexParser.PATTERN_CACHE.clear();
+
+        final StubRequest stubRequest = builder.withUrl("^/resources/asn/.*$").withMethodGet().build();
+        stubRequest.compile();
+
+        assertThat(RegexParser.PATTERN_CACHE.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldNotComputeRegexPattern_WhenPostOptedOutOfRegex() throws Exception {
+
+        RegexParser.PATTERN_CACHE.clear();
+
+        builder.stage(Optional.of(POST_REGEX), Optional.of("false"));
+        final StubRequest stubRequest = builder.withPost("name=John?&amount=$10.00").withMethodPost().build();
+        stubRequest.compile();
+
+        assertThat(stubRequest.isPostRegex()).isFalse();
+        assertThat(RegexParser.PATTERN_CACHE.size()).isEqualTo(0);
     }
 
     @Test
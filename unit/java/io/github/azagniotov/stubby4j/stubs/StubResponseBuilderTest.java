@@ -8,11 +8,15 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.File;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 
 import static com.google.common.truth.Truth.assertThat;
 import static io.github.azagniotov.stubby4j.utils.FileUtils.fileFromString;
 import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.BODY;
+import static io.github.azagniotov.stubby4j.yaml.ConfigurableYAMLProperty.HEADERS;
 
 public class StubResponseBuilderTest {
 
@@ -238,4 +242,143 @@ public class StubResponseBuilderTest {
 
         assertThat(stubResponse.isBodyContainsTemplateTokens()).isFalse();
     }
+
+    @Test
+    public void shouldDetectTemplateOnce_WhenTemplateFileChangesOnDiskAfterLoad() throws Exception {
+
+        final File templateFile = fileFromString("file content with a <% token %>");
+        final StubResponse stubResponse = builder
+                .withHttpStatusCode(Code.OK)
+                .withFile(templateFile)
+                .build();
+
+        assertThat(templateFile.delete()).isTrue();
+
+        assertThat(stubResponse.isBodyContainsTemplateTokens()).isTrue();
+        assertThat(stubResponse.getBodyTemplate().hasTokens()).isTrue();
+    }
+
+    @Test
+    public void shouldServeStaticResponse_WhenResponseHasNoTemplateTokens() throws Exception {
+
+        final StubResponse stubResponse = builder
+                .withHttpStatusCode(Code.CREATED)
+                .withBody("some body")
+                .build();
+
+        final StaticResponse staticResponse = stubResponse.getStaticResponse();
+
+        assertThat(staticResponse).isNotNull();
+        assertThat(staticResponse.getStatus()).isEqualTo(Code.CREATED.getCode());
+        assertThat(StringUtils.newStringUtf8(staticResponse.getBody())).isEqualTo("some body");
+        assertThat(stubResponse.getStaticResponse()).isSameAs(staticResponse);
+    }
+
+    @Test
+    public void shouldServeStaticResponseOfCopy_WhenResourceIdHeaderChanges() throws Exception {
+
+        final StubResponse stubResponse = builder.withBody("some body").build().withResourceIDHeader(1);
+        final StaticResponse staticResponse = stubResponse.getStaticResponse();
+
+        final StubResponse copiedStubResponse = stubResponse.withResourceIDHeader(0);
+
+        assertThat(copiedStubResponse.getStaticResponse()).isNotSameAs(staticResponse);
+        assertThat(copiedStubResponse.getStaticResponse().getHeaders().get(0).getValue()).isEqualTo("0");
+        assertThat(copiedStubResponse.getBody()).isEqualTo("some body");
+        assertThat(stubResponse.getStaticResponse()).isSameAs(staticResponse);
+        assertThat(stubResponse.getResourceIDHeader()).isEqualTo("1");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void shouldNotAllowStubbedHeadersToChange_WhenResponseIsBuilt() throws Exception {
+
+        final Map<String, String> headers = new HashMap<>();
+        headers.put("content-type", "text/plain");
+        builder.stage(Optional.of(HEADERS), Optional.of(headers));
+
+        builder.withBody("some body").build().getHeaders().put("content-type", "text/html");
+    }
+
+    @Test
+    public void shouldNotServeStaticResponse_WhenResponseRendersPerRequest() throws Exception {
+
+        assertThat(builder.withBody("some body with a <% token %>").build().getStaticResponse()).isNull();
+        assertThat(builder.withBody("http://google.com").build().getStaticResponse()).isNull();
+
+        final Map<String, String> tokenizedHeaders = new HashMap<>();
+        tokenizedHeaders.put("location", "/item/<% url.1 %>");
+        builder.stage(Optional.of(HEADERS), Optional.of(tokenizedHeaders));
+        assertThat(builder.withBody("some body").build().getStaticResponse()).isNull();
+    }
+
+    @Test
+    public void shouldCompileTokenizedHeaderValuesOnce_WhenStubIsBuilt() throws Exception {
+
+        final Map<String, String> headers = new HashMap<>();
+        headers.put("location", "/item/<% url.1 %>");
+        headers.put("content-type", "application/json");
+        builder.stage(Optional.of(HEADERS), Optional.of(headers));
+        final StubResponse stubResponse = builder.withBody("some body").build();
+
+        final Map<String, String> regexGroups = new HashMap<>();
+        regexGroups.put("url.1", "42");
+
+        assertThat(stubResponse.getHeaderTemplates().keySet()).containsExactly("location");
+        assertThat(stubResponse.getHeaderTemplates().get("location").renderToString(regexGroups)).isEqualTo("/item/42");
+        assertThat(stubResponse.getFilePathTemplate()).isNull();
+    }
+
+    @Test
+    public void shouldNotLoadFileIntoMemory_WhenBinaryFileIsLargerThanThreshold() throws Exception {
+
+        final File binaryFile = File.createTempFile("tmp", ".pdf");
+        binaryFile.deleteOnExit();
+        Files.write(binaryFile.toPath(), StringUtils.getBytesUtf8("%PDF large content"));
+
+        final StubResponse stubResponse = builder
+                .withLargeFileThreshold(4)
+                .withHttpStatusCode(Code.OK)
+                .withBody("some body")
+                .withFile(binaryFile)
+                .build();
+
+        assertThat(stubResponse.isLargeFile()).isTrue();
+        assertThat(stubResponse.getFile()).isEmpty();
+        assertThat(stubResponse.getStaticResponse()).isNull();
+        assertThat(stubResponse.isBodyContainsTemplateTokens()).isFalse();
+        assertThat(StringUtils.newStringUtf8(stubResponse.getResponseBodyAsBytes())).isEqualTo("%PDF large content");
+
+        assertThat(StubResponse.redirectResponse(Optional.of(stubResponse)).isLargeFile()).isTrue();
+        assertThat(builder.withFile(binaryFile).build().isLargeFile()).isTrue();
+        assertThat(new StubResponse.Builder().withFile(binaryFile).build().isLargeFile()).isFalse();
+    }
+
+    @Test
+    public void shouldLoadFileIntoMemory_WhenCharacterFileIsLargerThanThreshold() throws Exception {
+
+        final StubResponse stubResponse = builder
+                .withLargeFileThreshold(4)
+                .withHttpStatusCode(Code.OK)
+                .withFile(fileFromString("file content"))
+                .build();
+
+        assertThat(stubResponse.isLargeFile()).isFalse();
+        assertThat(StringUtils.newStringUtf8(stubResponse.getFile())).isEqualTo("file content");
+    }
+
+    @Test
+    public void shouldFindBodyNotTokenized_WhenRawFileIsBinaryFile() throws Exception {
+
+        final File binaryFile = File.createTempFile("tmp", ".pdf");
+        binaryFile.deleteOnExit();
+        Files.write(binaryFile.toPath(), StringUtils.getBytesUtf8("%PDF <% token %>"));
+
+        final StubResponse stubResponse = builder
+                .withHttpStatusCode(Code.OK)
+                .withFile(binaryFile)
+                .build();
+
+        assertThat(stubResponse.isBodyContainsTemplateTokens()).isFalse();
+        assertThat(stubResponse.getBodyTemplate()).isNull();
+    }
 }
@@ -0,0 +1,116 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.BitSet;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class StubUrlRouterTest {
+
+    private StubUrlRouter stubUrlRouter;
+
+    @Before
+    public void setUp() throws Exception {
+        stubUrlRouter = new StubUrlRouter(RegexParser.DEFAULT_STEP_BUDGET);
+    }
+
+    @Test
+    public void isConfinedToSegment_ShouldReturnTrue_WhenSegmentCanNotMatchSlash() throws Exception {
+        assertThat(StubUrlRouter.isConfinedToSegment("[0-9]+")).isTrue();
+        assertThat(StubUrlRouter.isConfinedToSegment("([a-zA-Z_-]+)")).isTrue();
+        assertThat(StubUrlRouter.isConfinedToSegment("(users|items)")).isTrue();
+        assertThat(StubUrlRouter.isConfinedToSegment("user-[0-9]{2,3}?")).isTrue();
+        assertThat(StubUrlRouter.isConfinedToSegment("([a-z]+)+")).isTrue();
+    }
+
+    @Test
+    public void isConfinedToSegment_ShouldReturnFalse_WhenSegmentCanMatchSlashOrDependsOnOtherSegments() throws Exception {
+        assertThat(StubUrlRouter.isConfinedToSegment(".*")).isFalse();
+        assertThat(StubUrlRouter.isConfinedToSegment("user.json")).isFalse();
+        assertThat(StubUrlRouter.isConfinedToSegment("[^a]+")).isFalse();
+        assertThat(StubUrlRouter.isConfinedToSegment("[!-z]+")).isFalse();
+        assertThat(StubUrlRouter.isConfinedToSegment("\\S+")).isFalse();
+        assertThat(StubUrlRouter.isConfinedToSegment("users|items")).isFalse();
+        assertThat(StubUrlRouter.isConfinedToSegment("(?i)users")).isFalse();
+        assertThat(StubUrlRouter.isConfinedToSegment("?")).isFalse();
+        assertThat(StubUrlRouter.isConfinedToSegment("(v1")).isFalse();
+        assertThat(StubUrlRouter.isConfinedToSegment("[a")).isFalse();
+    }
+
+    @Test
+    public void collectCandidates_ShouldRouteLiteralAndPatternSegments() throws Exception {
+        stubUrlRouter.add("/api/users", 0);
+        stubUrlRouter.add("/api/users/[0-9]+", 1);
+        stubUrlRouter.add("^/api/users/([0-9]+)/orders$", 2);
+        stubUrlRouter.add("/api/(users|items)/[0-9]+", 3);
+        stubUrlRouter.add("/api/items", 4);
+
+        assertThat(collectCandidates("/api/users")).isEqualTo(bitSetOf(0));
+        assertThat(collectCandidates("/api/users/123")).isEqualTo(bitSetOf(1, 3));
+        assertThat(collectCandidates("/api/users/123/orders")).isEqualTo(bitSetOf(2));
+        assertThat(collectCandidates("/api/items/123")).isEqualTo(bitSetOf(3));
+        assertThat(collectCandidates("/api/users/abc")).isEqualTo(bitSetOf());
+        assertThat(collectCandidates("/api/users/")).isEqualTo(bitSetOf());
+    }
+
+    @Test
+    public void collectCandidates_ShouldReturnOpenEndedStubs_WhenIncomingUrlReachesTheirLastConfinedSegment() throws Exception {
+        stubUrlRouter.add("/api/.*", 0);
+        stubUrlRouter.add("/api/v1/user.json", 1);
+        stubUrlRouter.add("/api/users/?", 2);
+        stubUrlRouter.add("/api/(v1/)?users", 3);
+
+        assertThat(collectCandidates("/api/users")).isEqualTo(bitSetOf(0, 2, 3));
+        assertThat(collectCandidates("/api/v1/user.json")).isEqualTo(bitSetOf(0, 1, 3));
+        assertThat(collectCandidates("/other")).isEqualTo(bitSetOf());
+    }
+
+    @Test
+    public void collectCandidates_ShouldReturnStubsMatchingAnyUrl() throws Exception {
+        stubUrlRouter.add(null, 0);
+        stubUrlRouter.add("/api/users|/api/items", 1);
+        stubUrlRouter.add("^.*$", 2);
+
+        assertThat(collectCandidates("/api/items")).isEqualTo(bitSetOf(0, 1, 2));
+        assertThat(collectCandidates(null)).isEqualTo(bitSetOf(0));
+    }
+
+    @Test
+    public void collectCandidates_ShouldReturnRegexStub_WhenIncomingUrlIsVerbatimEqual() throws Exception {
+        stubUrlRouter.add("/api/a+b", 0);
+        stubUrlRouter.add("/api/[unclosed", 1);
+
+        assertThat(collectCandidates("/api/a+b")).isEqualTo(bitSetOf(0));
+        assertThat(collectCandidates("/api/aab")).isEqualTo(bitSetOf(0));
+        assertThat(collectCandidates("/api/[unclosed")).isEqualTo(bitSetOf(1));
+        assertThat(collectCandidates("/api/u")).isEqualTo(bitSetOf());
+    }
+
+    @Test
+    public void collectCandidates_ShouldKeepPatternSegmentStub_WhenSegmentExceedsStepBudget() throws Exception {
+        stubUrlRouter = new StubUrlRouter(100_000);
+        stubUrlRouter.add("/api/([a-z]+)+/orders", 0);
+
+        assertThat(collectCandidates("/api/abc/orders")).isEqualTo(bitSetOf(0));
+        assertThat(collectCandidates("/api/123/orders")).isEqualTo(bitSetOf());
+        assertThat(collectCandidates("/api/aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa!/orders")).isEqualTo(bitSetOf(0));
+    }
+
+    private BitSet collectCandidates(final String url) {
+        final BitSet candidateIndexes = new BitSet();
+        stubUrlRouter.collectCandidates(url, url == null ? null : StubUrlRouter.splitPath(url), candidateIndexes);
+
+        return candidateIndexes;
+    }
+
+    private static BitSet bitSetOf(final int... indexes) {
+        final BitSet bitSet = new BitSet();
+        for (final int index : indexes) {
+            bitSet.set(index);
+        }
+        return bitSet;
+    }
+}
@@ -0,0 +1,106 @@
+package io.github.azagniotov.stubby4j.stubs;
+
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class XmlTreeTest {
+
+    @Test
+    public void parse_ShouldReturnNull_WhenValueIsNotXmlDocument() throws Exception {
+        assertThat(XmlTree.parse(null)).isNull();
+        assertThat(XmlTree.parse("")).isNull();
+        assertThat(XmlTree.parse("{\"name\": \"John\"}")).isNull();
+        assertThat(XmlTree.parse("<unclosed>")).isNull();
+    }
+
+    @Test
+    public void toString_ShouldBeSame_WhenOnlyAttributeOrderDiffers() throws Exception {
+        final XmlTree stubbedXml = XmlTree.parse("<user id=\"1\" name=\"John\"><role>admin</role></user>");
+        final XmlTree assertingXml = XmlTree.parse("<user name=\"John\" id=\"1\"><role>admin</role></user>");
+
+        assertThat(stubbedXml.toString()).isEqualTo(assertingXml.toString());
+        assertThat(matches(stubbedXml, assertingXml)).isTrue();
+    }
+
+    @Test
+    public void toString_ShouldDiffer_WhenTextAndMarkupCouldBeConfused() throws Exception {
+        final XmlTree stubbedXml = XmlTree.parse("<a>T1:b</a>");
+        final XmlTree assertingXml = XmlTree.parse("<a><![CDATA[b]]></a>");
+
+        assertThat(stubbedXml.toString()).isNotEqualTo(assertingXml.toString());
+    }
+
+    @Test
+    public void matches_ShouldMatch_WhenSiblingElementsAreInDifferentOrder() throws Exception {
+        final XmlTree stubbedXml = XmlTree.parse("<users><user id=\"1\"/><user id=\"2\"/></users>");
+        final XmlTree assertingXml = XmlTree.parse("<users><user id=\"2\"/><user id=\"1\"/></users>");
+
+        assertThat(stubbedXml.toString()).isNotEqualTo(assertingXml.toString());
+        assertThat(matches(stubbedXml, assertingXml)).isTrue();
+    }
+
+    @Test
+    public void matches_ShouldNotMatch_WhenContentDiffers() throws Exception {
+        final XmlTree stubbedXml = XmlTree.parse("<user id=\"1\"><role>admin</role></user>");
+
+        assertThat(matches(stubbedXml, XmlTree.parse("<user id=\"1\"><role>guest</role></user>"))).isFalse();
+        assertThat(matches(stubbedXml, XmlTree.parse("<user id=\"2\"><role>admin</role></user>"))).isFalse();
+        assertThat(matches(stubbedXml, XmlTree.parse("<user id=\"1\"/>"))).isFalse();
+    }
+
+    @Test
+    public void matches_ShouldDiffSharedTreesOnSeveralThreadsAtOnce() throws Exception {
+        final XmlTree stubbedXml = XmlTree.parse("<users><user id=\"1\"><role>admin</role></user><user id=\"2\"/></users>");
+        final XmlTree assertingXml = XmlTree.parse("<users><user id=\"2\"/><user id=\"1\"><role>admin</role></user></users>");
+        final XmlTree otherXml = XmlTree.parse("<users><user id=\"2\"/><user id=\"1\"><role>guest</role></user></users>");
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<Boolean>> outcomes = new ArrayList<>();
+            for (int idx = 0; idx < 200; idx++) {
+                final XmlTree candidateXml = idx % 2 == 0 ? assertingXml : otherXml;
+                outcomes.add(executorService.submit(() -> matches(stubbedXml, candidateXml)));
+            }
+            for (int idx = 0; idx < outcomes.size(); idx++) {
+                assertThat(outcomes.get(idx).get()).isEqualTo(idx % 2 == 0);
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void takeDocument_ShouldHandOverParsedDocumentOnce() throws Exception {
+        final XmlTree xmlTree = XmlTree.parse("<user id=\"1\"><role>admin</role></user>");
+
+        final Document parsedDocument = xmlTree.takeDocument();
+        final Document otherDocument = xmlTree.takeDocument();
+
+        assertThat(otherDocument).isNotSameAs(parsedDocument);
+        assertThat(otherDocument.getDocumentElement().getAttribute("id")).isEqualTo("1");
+    }
+
+    @Test
+    public void getXmlBodyDocument_ShouldTakeDocumentOncePerIncomingBody() throws Exception {
+        final XmlTree assertingXml = XmlTree.parse("<user id=\"1\"><role>admin</role></user>");
+        final StubMatchContext matchContext = new StubMatchContext(RegexParser.DEFAULT_STEP_BUDGET);
+
+        final Document document = matchContext.getXmlBodyDocument(assertingXml);
+
+        assertThat(matchContext.getXmlBodyDocument(assertingXml)).isSameAs(document);
+        assertThat(new StubMatchContext(RegexParser.DEFAULT_STEP_BUDGET).getXmlBodyDocument(assertingXml)).isNotSameAs(document);
+    }
+
+    private static boolean matches(final XmlTree stubbedXml, final XmlTree assertingXml) {
+        return stubbedXml.matches(assertingXml, assertingXml::takeDocument);
+    }
+}
@@ -69,6 +69,28 @@ public class HandlerUtilsTest {
         assertThat(actualUpTime).isEqualTo("1 day, 23 hours, 59 mins, 59 secs");
     }
 
+    @Test
+    public void isGzipAccepted_ShouldReturnTrue_WhenGzipHasNonZeroQuality() throws Exception {
+        assertThat(HandlerUtils.isGzipAccepted("gzip")).isTrue();
+        assertThat(HandlerUtils.isGzipAccepted("deflate, GZIP")).isTrue();
+        assertThat(HandlerUtils.isGzipAccepted("gzip;q=0.5, br")).isTrue();
+        assertThat(HandlerUtils.isGzipAccepted("x-gzip ; Q=1.0")).isTrue();
+        assertThat(HandlerUtils.isGzipAccepted("br, *;q=0.1")).isTrue();
+    }
+
+    @Test
+    public void isGzipAccepted_ShouldReturnFalse_WhenGzipIsRefusedOrNotListed() throws Exception {
+        assertThat(HandlerUtils.isGzipAccepted(null)).isFalse();
+        assertThat(HandlerUtils.isGzipAccepted("")).isFalse();
+        assertThat(HandlerUtils.isGzipAccepted("identity")).isFalse();
+        assertThat(HandlerUtils.isGzipAccepted("gzip;q=0")).isFalse();
+        assertThat(HandlerUtils.isGzipAccepted("gzip;q=0.000, deflate")).isFalse();
+        assertThat(HandlerUtils.isGzipAccepted("gzip;q=0, *")).isFalse();
+        assertThat(HandlerUtils.isGzipAccepted("*;q=0")).isFalse();
+        assertThat(HandlerUtils.isGzipAccepted("gzip;q=abc")).isFalse();
+        assertThat(HandlerUtils.isGzipAccepted("gzipped")).isFalse();
+    }
+
     @Test
     public void shouldGenerateUpTime_TwoDaysZeroHoursZeroMinutes1Second() throws Exception {
 
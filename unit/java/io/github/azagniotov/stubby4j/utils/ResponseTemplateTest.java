@@ -0,0 +1,55 @@
+package io.github.azagniotov.stubby4j.utils;
+
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.google.common.truth.Truth.assertThat;
+import static io.github.azagniotov.stubby4j.utils.StringUtils.newStringUtf8;
+
+public class ResponseTemplateTest {
+
+    @Test
+    public void render_ShouldWriteTokenValuesInSinglePass() throws Exception {
+        final Map<String, String> tokensAndValues = new HashMap<>();
+        tokensAndValues.put("url.1", "ALEX");
+        tokensAndValues.put("query.1", "KOKO");
+        final ResponseTemplate responseTemplate = ResponseTemplate.compile("Hello <% url.1 %>, <%query.1    %>!<%url.1%>");
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        responseTemplate.render(outputStream, tokensAndValues);
+
+        assertThat(responseTemplate.hasTokens()).isTrue();
+        assertThat(newStringUtf8(outputStream.toByteArray())).isEqualTo("Hello ALEX, KOKO!ALEX");
+    }
+
+    @Test
+    public void render_ShouldKeepToken_WhenTokenValueIsNotCaptured() throws Exception {
+        final ResponseTemplate responseTemplate = ResponseTemplate.compile("content <% query.1 %> returned");
+
+        assertThat(responseTemplate.renderToString(new HashMap<>())).isEqualTo("content <% query.1 %> returned");
+    }
+
+    @Test
+    public void render_ShouldWriteTokenValuesAsIs() throws Exception {
+        final Map<String, String> tokensAndValues = new HashMap<>();
+        tokensAndValues.put("post.1", "$1 \\ <% post.1 %> \u00fcn\u00efc\u00f6d\u00e9");
+        final ResponseTemplate responseTemplate = ResponseTemplate.compile("\u00fcn\u00efc\u00f6d\u00e9 <%post.1%>");
+
+        assertThat(responseTemplate.renderToString(tokensAndValues)).isEqualTo("\u00fcn\u00efc\u00f6d\u00e9 $1 \\ <% post.1 %> \u00fcn\u00efc\u00f6d\u00e9");
+    }
+
+    @Test
+    public void compile_ShouldTreatMalformedTokensAsLiterals() throws Exception {
+        final Map<String, String> tokensAndValues = new HashMap<>();
+        tokensAndValues.put("url.1", "ALEX");
+
+        assertThat(ResponseTemplate.compile("<% %> <% url .1 %> <% url.1").hasTokens()).isFalse();
+        assertThat(ResponseTemplate.compile("<% <% url.1 %>").renderToString(tokensAndValues)).isEqualTo("<% ALEX");
+        assertThat(ResponseTemplate.compile("no tokens").renderToString(tokensAndValues)).isEqualTo("no tokens");
+        assertThat(ResponseTemplate.compile("").renderToString(tokensAndValues)).isEmpty();
+    }
+}
@@ -245,4 +245,13 @@ public class StringUtilsTest {
         assertThat("ababab").isEqualTo(StringUtils.repeat("ab", 3));
         assertThat("abcabcabc").isEqualTo(StringUtils.repeat("abc", 3));
     }
+
+    @Test
+    public void shouldCalculateFingerprint() {
+        assertThat(StringUtils.calculateFingerprint("")).isEqualTo(0xcbf29ce484222325L);
+        assertThat(StringUtils.calculateFingerprint("a")).isEqualTo(0xaf63dc4c8601ec8cL);
+        assertThat(StringUtils.calculateFingerprint("name=John&email=john@example.com"))
+                .isEqualTo(StringUtils.calculateFingerprint(new StringBuilder("name=John&").append("email=john@example.com").toString()));
+        assertThat(StringUtils.calculateFingerprint("ab")).isNotEqualTo(StringUtils.calculateFingerprint("ba"));
+    }
 }